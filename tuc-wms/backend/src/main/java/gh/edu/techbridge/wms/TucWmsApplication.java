@@ -1,11 +1,17 @@
 package gh.edu.techbridge.wms;
 
+import gh.edu.techbridge.wms.config.AttachmentProperties;
+import gh.edu.techbridge.wms.config.AutomationProperties;
 import gh.edu.techbridge.wms.config.MailProperties;
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import gh.edu.techbridge.wms.config.NotifyProperties;
+import gh.edu.techbridge.wms.config.TaskTransferProperties;
 import gh.edu.techbridge.wms.gemini.GeminiProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * TUC Work Management System — entry point.
@@ -13,7 +19,9 @@ import org.springframework.scheduling.annotation.EnableAsync;
  */
 @SpringBootApplication
 @EnableAsync                                       // async notification email (TaskMailService)
-@EnableConfigurationProperties({MailProperties.class, GeminiProperties.class})
+@EnableScheduling                                  // notification digest flush + daily due digest
+@EnableConfigurationProperties({MailProperties.class, NotifyProperties.class, GeminiProperties.class,
+        AttachmentProperties.class, AutomationProperties.class, TaskTransferProperties.class, NetScanProperties.class})
 public class TucWmsApplication {
     public static void main(String[] args) {
         SpringApplication.run(TucWmsApplication.class, args);
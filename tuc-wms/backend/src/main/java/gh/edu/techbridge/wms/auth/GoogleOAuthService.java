@@ -5,11 +5,14 @@ import gh.edu.techbridge.wms.audit.AuditService;
 import gh.edu.techbridge.wms.config.AuthProperties;
 import gh.edu.techbridge.wms.user.Role;
 import gh.edu.techbridge.wms.user.User;
+import gh.edu.techbridge.wms.user.UserChangedEvent;
 import gh.edu.techbridge.wms.user.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Objects;
 
 /**
  * Resolves a Google-authenticated profile to a TUC-WMS user:
@@ -32,11 +35,14 @@ public class GoogleOAuthService {
 
     private final UserRepository users;
     private final AuditService audit;
+    private final ApplicationEventPublisher events;
     private final String allowedDomain;
 
-    public GoogleOAuthService(UserRepository users, AuditService audit, AuthProperties props) {
+    public GoogleOAuthService(UserRepository users, AuditService audit, AuthProperties props,
+                              ApplicationEventPublisher events) {
         this.users = users;
         this.audit = audit;
+        this.events = events;
         this.allowedDomain = props.getAllowedDomain().toLowerCase();
     }
 
@@ -56,8 +62,10 @@ public class GoogleOAuthService {
         if (user == null) {
             user = users.save(new User(normalized, fullName, photoUrl, Role.STUDENT));
             audit.record(AuditEvent.USER_PROVISIONED, normalized, "role=STUDENT", sourceIp);
+            events.publishEvent(new UserChangedEvent(user.getId()));
         } else {
             // Refresh mutable profile fields from Google on each login.
+            if (!Objects.equals(user.getFullName(), fullName)) events.publishEvent(new UserChangedEvent(user.getId()));
             user.setFullName(fullName);
             user.setPhotoUrl(photoUrl);
         }
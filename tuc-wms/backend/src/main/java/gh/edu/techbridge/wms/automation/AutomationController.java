@@ -13,6 +13,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @RestController
@@ -21,15 +23,20 @@ public class AutomationController {
 
     private final AutomationRuleRepository ruleRepo;
     private final AutomationHistoryRepository historyRepo;
+    private final AutomationSkipStatRepository skipRepo;
     private final ProjectRepository projectRepo;
     private final ProjectPermissionService perms;
+    private final RuleIndexRegistry ruleIndex;
 
     public AutomationController(AutomationRuleRepository ruleRepo, AutomationHistoryRepository historyRepo,
-                                ProjectRepository projectRepo, ProjectPermissionService perms) {
+                                AutomationSkipStatRepository skipRepo, ProjectRepository projectRepo, ProjectPermissionService perms,
+                                RuleIndexRegistry ruleIndex) {
         this.ruleRepo = ruleRepo;
         this.historyRepo = historyRepo;
+        this.skipRepo = skipRepo;
         this.projectRepo = projectRepo;
         this.perms = perms;
+        this.ruleIndex = ruleIndex;
     }
 
     private Project project(Long id) {
@@ -74,6 +81,7 @@ public class AutomationController {
                 user.getId()
         );
         AutomationRule saved = ruleRepo.save(rule);
+        ruleIndex.reload(projectId);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
@@ -99,7 +107,9 @@ public class AutomationController {
         if (req.actionType() != null) rule.setActionType(req.actionType());
         if (req.actionConfig() != null) rule.setActionConfig(req.actionConfig());
 
-        return ruleRepo.save(rule);
+        AutomationRule saved = ruleRepo.save(rule);
+        ruleIndex.reload(projectId);
+        return saved;
     }
 
     @PutMapping("/rules/{ruleId}/toggle")
@@ -117,7 +127,9 @@ public class AutomationController {
         }
 
         rule.setActive(active);
-        return ruleRepo.save(rule);
+        AutomationRule saved = ruleRepo.save(rule);
+        ruleIndex.reload(projectId);
+        return saved;
     }
 
     @DeleteMapping("/rules/{ruleId}")
@@ -134,6 +146,7 @@ public class AutomationController {
         }
 
         ruleRepo.delete(rule);
+        ruleIndex.reload(projectId);
         return ResponseEntity.noContent().build();
     }
 
@@ -149,4 +162,18 @@ public class AutomationController {
         int cappedLimit = Math.min(Math.max(limit, 1), 100);
         return historyRepo.findByProjectIdOrderByRunAtDesc(projectId, PageRequest.of(page, cappedLimit));
     }
+
+    /** Hourly SKIPPED counts per rule (conditions not met) — these are not stored as history rows. */
+    @GetMapping("/history/skips")
+    public List<AutomationSkipStat> getSkipStats(@PathVariable Long projectId,
+                                                 @RequestParam(defaultValue = "24") int hours,
+                                                 Authentication auth) {
+        User user = perms.currentUser(auth);
+        Project p = project(projectId);
+        perms.requireView(user, p);
+
+        int cappedHours = Math.min(Math.max(hours, 1), 24 * 90);
+        Instant from = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(cappedHours - 1L, ChronoUnit.HOURS);
+        return skipRepo.findByProjectIdAndHourStartGreaterThanEqualOrderByHourStartDesc(projectId, from);
+    }
 }
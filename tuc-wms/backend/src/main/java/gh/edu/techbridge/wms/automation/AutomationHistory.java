@@ -6,10 +6,13 @@ import java.time.Instant;
 /**
  * Run logs for Automation Rules (FR-AUTO-007).
  * Records each time a rule triggers, whether it succeeded, and what action occurred.
+ * Written in batches by AutomationHistoryWriter; SKIPPED evaluations are only counted
+ * (AutomationSkipStat), so new rows are SUCCESS or FAILED.
  */
 @Entity
 @Table(name = "wms_automation_history", indexes = {
-        @Index(name = "idx_history_project", columnList = "projectId,runAt")
+        @Index(name = "idx_history_project", columnList = "projectId,runAt"),
+        @Index(name = "idx_history_run_at", columnList = "runAt")   // retention prune
 })
 public class AutomationHistory {
 
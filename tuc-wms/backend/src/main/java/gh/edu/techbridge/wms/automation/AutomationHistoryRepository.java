@@ -2,8 +2,16 @@ package gh.edu.techbridge.wms.automation;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
 import java.util.List;
 
 public interface AutomationHistoryRepository extends JpaRepository<AutomationHistory, Long> {
     List<AutomationHistory> findByProjectIdOrderByRunAtDesc(Long projectId, Pageable pageable);
+
+    /** Retention: the next chunk of expired row ids (idx_history_run_at). */
+    @Query("select h.id from AutomationHistory h where h.runAt < :cutoff order by h.runAt")
+    List<Long> findIdsRunBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
 }
@@ -0,0 +1,234 @@
+package gh.edu.techbridge.wms.automation;
+
+import gh.edu.techbridge.wms.common.AfterCommit;
+import gh.edu.techbridge.wms.config.AutomationProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffered writer for automation run history (FR-AUTO-007). Outcomes are accepted once the
+ * run's transaction commits (a retried run logs once) and flushed every historyFlushMs as
+ * JDBC batch inserts — AutomationHistory uses IDENTITY ids, so Hibernate cannot batch them. SKIPPED
+ * evaluations, which were most of the table, become in-memory counters per (rule, UTC hour)
+ * folded into wms_automation_skip_stats on each flush. A flush that fails puts its rows and
+ * counts back for the next one; while the database stays down the buffer keeps only the newest
+ * historyBufferMax rows, dropping (and counting) the oldest. A nightly job prunes expired detail rows
+ * in bounded, separately committed chunks so it never holds a long lock on the table.
+ */
+@Component
+public class AutomationHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AutomationHistoryWriter.class);
+
+    private static final String INSERT_HISTORY = "INSERT INTO wms_automation_history "
+            + "(project_id, rule_id, rule_name, task_id, task_title, status, message, run_at) VALUES (?,?,?,?,?,?,?,?)";
+    private static final String BUMP_SKIPS = "UPDATE wms_automation_skip_stats SET skip_count = skip_count + ?, "
+            + "last_reason = ? WHERE rule_id = ? AND hour_start = ?";
+    private static final String INSERT_SKIPS = "INSERT INTO wms_automation_skip_stats "
+            + "(project_id, rule_id, rule_name, hour_start, skip_count, last_reason) VALUES (?,?,?,?,?,?)";
+
+    private final AutomationProperties props;
+    private final JdbcTemplate jdbc;
+    private final AutomationHistoryRepository historyRepo;
+    private final AutomationSkipStatRepository skipRepo;
+    private final TransactionTemplate tx;
+
+    private final Queue<AutomationHistory> buffer = new ConcurrentLinkedQueue<>();
+    private final Map<SkipKey, SkipCounter> skips = new ConcurrentHashMap<>();
+    private final ReentrantLock flushing = new ReentrantLock();
+    private final AtomicLong droppedRows = new AtomicLong();
+
+    private record SkipKey(Long ruleId, Instant hourStart) { }
+
+    private static final class SkipCounter {
+        final Long projectId;
+        final String ruleName;
+        long count;          // guarded by the map's compute()
+        String lastReason;
+
+        SkipCounter(Long projectId, String ruleName) {
+            this.projectId = projectId;
+            this.ruleName = ruleName;
+        }
+    }
+
+    public AutomationHistoryWriter(AutomationProperties props, JdbcTemplate jdbc,
+                                   AutomationHistoryRepository historyRepo, AutomationSkipStatRepository skipRepo,
+                                   PlatformTransactionManager txManager) {
+        this.props = props;
+        this.jdbc = jdbc;
+        this.historyRepo = historyRepo;
+        this.skipRepo = skipRepo;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /** Log a SUCCESS/FAILED run. Buffered; dropped if the surrounding transaction rolls back. */
+    public void record(Long projectId, CompiledRule rule, Long taskId, String taskTitle, boolean success, String message) {
+        AutomationHistory h = new AutomationHistory(projectId, rule.id(), trim(rule.name(), 100), taskId,
+                trim(taskTitle, 200), success ? "SUCCESS" : "FAILED", trim(message, 1000));
+        AfterCommit.run(() -> buffer.add(h));
+    }
+
+    /**
+     * Log a FAILED outcome for an event that was never run (dropped or given up). Buffered at
+     * once: the caller is outside any transaction of its own, possibly in another's afterCommit.
+     */
+    public void notRun(Long projectId, CompiledRule rule, Long taskId, String reason) {
+        buffer.add(new AutomationHistory(projectId, rule.id(), trim(rule.name(), 100), taskId,
+                "Task #" + taskId, "FAILED", trim(reason, 1000)));
+    }
+
+    /** Count a SKIPPED evaluation against the rule's current hour. */
+    public void skipped(Long projectId, CompiledRule rule, String reason) {
+        SkipKey key = new SkipKey(rule.id(), Instant.now().truncatedTo(ChronoUnit.HOURS));
+        String why = trim(reason, 1000);
+        AfterCommit.run(() -> skips.compute(key, (k, c) -> {
+            if (c == null) c = new SkipCounter(projectId, trim(rule.name(), 100));
+            c.count++;
+            c.lastReason = why;
+            return c;
+        }));
+    }
+
+    @Scheduled(fixedDelayString = "${tucwms.automation.history-flush-ms:2000}")
+    public void flush() {
+        if (!flushing.tryLock()) return;   // another thread is already flushing
+        try {
+            flushHistory();
+            flushSkips();
+        } catch (Exception e) {
+            long dropped = droppedRows.get();
+            if (dropped > 0) {
+                log.warn("[automation] history flush failed ({} row(s) dropped so far): {}", dropped, e.toString());
+            } else {
+                log.warn("[automation] history flush failed: {}", e.toString());
+            }
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushHistory() {
+        List<AutomationHistory> batch = new ArrayList<>();
+        AutomationHistory h;
+        while ((h = buffer.poll()) != null) batch.add(h);
+        if (batch.isEmpty()) return;
+        try {
+            tx.executeWithoutResult(s -> jdbc.batchUpdate(INSERT_HISTORY, batch, props.getHistoryBatchSize(), (ps, r) -> {
+                ps.setLong(1, r.getProjectId());
+                ps.setLong(2, r.getRuleId());
+                ps.setString(3, r.getRuleName());
+                ps.setLong(4, r.getTaskId());
+                ps.setString(5, r.getTaskTitle());
+                ps.setString(6, r.getStatus());
+                ps.setString(7, r.getMessage());
+                ps.setTimestamp(8, Timestamp.from(r.getRunAt()));
+            }));
+        } catch (RuntimeException e) {
+            requeue(batch);   // rolled back: retry with the next flush (rows carry their own runAt)
+            throw e;
+        }
+    }
+
+    /**
+     * Put a failed batch back ahead of the rows buffered meanwhile, keeping at most
+     * historyBufferMax of the newest. Runs under the flush lock, so only record() and notRun()
+     * add concurrently; rows they add during the swap land at the tail and are kept.
+     */
+    private void requeue(List<AutomationHistory> batch) {
+        List<AutomationHistory> rows = new ArrayList<>(batch);
+        AutomationHistory h;
+        while ((h = buffer.poll()) != null) rows.add(h);
+        int over = rows.size() - Math.max(1, props.getHistoryBufferMax());
+        if (over > 0) {
+            if (droppedRows.getAndAdd(over) == 0) {
+                log.warn("[automation] history buffer full ({} rows) while the database is unavailable; "
+                        + "dropping the oldest rows until a flush succeeds", props.getHistoryBufferMax());
+            }
+            rows = rows.subList(over, rows.size());
+        }
+        buffer.addAll(rows);
+    }
+
+    /** Fold the skip counters into their hourly rows: UPDATE per (rule, hour), INSERT the new ones. */
+    private void flushSkips() {
+        if (skips.isEmpty()) return;
+        Map<SkipKey, SkipCounter> drained = new HashMap<>();
+        for (SkipKey key : List.copyOf(skips.keySet())) {
+            SkipCounter c = skips.remove(key);   // remove() is atomic with compute(): later skips start a new counter
+            if (c != null) drained.put(key, c);
+        }
+        try {
+            tx.executeWithoutResult(s -> {
+                List<Object[]> inserts = new ArrayList<>();
+                drained.forEach((key, c) -> {
+                    Timestamp hour = Timestamp.from(key.hourStart());
+                    if (jdbc.update(BUMP_SKIPS, c.count, c.lastReason, key.ruleId(), hour) == 0) {
+                        inserts.add(new Object[] {c.projectId, key.ruleId(), c.ruleName, hour, c.count, c.lastReason});
+                    }
+                });
+                if (!inserts.isEmpty()) jdbc.batchUpdate(INSERT_SKIPS, inserts);
+            });
+        } catch (RuntimeException e) {
+            // Rolled back: fold the drained counts into whatever accumulated meanwhile.
+            drained.forEach((key, old) -> skips.merge(key, old, (cur, o) -> {
+                cur.count += o.count;
+                return cur;
+            }));
+            throw e;
+        }
+    }
+
+    /**
+     * Nightly retention: delete detail rows older than historyRetentionDays, pruneChunkSize ids
+     * per transaction, and hourly skip counters older than skipStatsRetentionDays.
+     */
+    @Scheduled(cron = "${tucwms.automation.history-prune-cron:0 30 3 * * *}")
+    public void prune() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(props.getHistoryRetentionDays()));
+        int chunk = Math.max(1, props.getPruneChunkSize());
+        long deleted = 0;
+        List<Long> ids;
+        while (!(ids = historyRepo.findIdsRunBefore(cutoff, PageRequest.of(0, chunk))).isEmpty()) {
+            List<Long> batch = ids;
+            tx.executeWithoutResult(s -> historyRepo.deleteAllByIdInBatch(batch));
+            deleted += batch.size();
+            if (batch.size() < chunk) break;
+        }
+        Instant statsCutoff = Instant.now().minus(Duration.ofDays(props.getSkipStatsRetentionDays()));
+        Integer stats = tx.execute(s -> skipRepo.deleteOlderThan(statsCutoff));
+        if (deleted > 0 || (stats != null && stats > 0)) {
+            log.info("[automation] retention pruned {} history row(s) and {} skip counter(s)", deleted, stats);
+        }
+    }
+
+    private static String trim(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+}
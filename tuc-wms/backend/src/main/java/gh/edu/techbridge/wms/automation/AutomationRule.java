@@ -28,10 +28,10 @@ public class AutomationRule {
 
     // Trigger configuration
     @Column(nullable = false, length = 40)
-    private String triggerType; // TASK_CREATED, STATUS_CHANGED
+    private String triggerType; // TriggerType name: TASK_CREATED, STATUS_CHANGED, DUE_DATE_APPROACHING, OVERDUE, NO_ACTIVITY_FOR_N_DAYS
 
     @Column(length = 100)
-    private String triggerConfig; // e.g. target status
+    private String triggerConfig; // target status, or a day count for the time-based triggers
 
     // Condition configuration
     @Column(nullable = false, length = 40)
@@ -5,4 +5,6 @@ import java.util.List;
 
 public interface AutomationRuleRepository extends JpaRepository<AutomationRule, Long> {
     List<AutomationRule> findByProjectId(Long projectId);
+    List<AutomationRule> findByProjectIdAndActiveTrue(Long projectId);   // idx_rule_project
+    List<AutomationRule> findByActiveTrue();
 }
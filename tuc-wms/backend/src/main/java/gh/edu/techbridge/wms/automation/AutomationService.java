@@ -1,212 +1,304 @@
 package gh.edu.techbridge.wms.automation;
 
+import gh.edu.techbridge.wms.common.AfterCommit;
+import gh.edu.techbridge.wms.config.AutomationProperties;
 import gh.edu.techbridge.wms.project.Project;
 import gh.edu.techbridge.wms.project.ProjectRepository;
 import gh.edu.techbridge.wms.task.ProjectEventService;
 import gh.edu.techbridge.wms.task.Task;
+import gh.edu.techbridge.wms.task.TaskDto;
 import gh.edu.techbridge.wms.task.TaskRepository;
-import gh.edu.techbridge.wms.task.TaskPriority;
 import gh.edu.techbridge.wms.user.User;
 import gh.edu.techbridge.wms.user.UserRepository;
 import gh.edu.techbridge.wms.notify.NotificationService;
 import gh.edu.techbridge.wms.notify.TaskMailService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Automation execution pipeline (FR-AUTO). {@link #trigger} is called from the task request
+ * but only records the event: once the request transaction commits, the event is queued on a
+ * {@link KeyedSerialExecutor} keyed by task id, so runs for one task happen strictly in event
+ * order while different tasks run in parallel — task create/update latency no longer includes
+ * any rule work. Each run re-reads the committed task in its own transaction and retries on an
+ * optimistic-lock conflict with a concurrent edit; the retry waits at the head of its lane on a
+ * timer instead of holding a worker. An event that cannot run (queue full, or conflicts on
+ * every attempt) is logged as FAILED in the run history. Rule actions change the task through the
+ * repository and never raise task events themselves, so a run cannot re-trigger automation.
+ * Time-based rules arrive from {@link TimeTriggerScheduler} as one event per (task, rule) and
+ * run through the same lanes. With {@code tucwms.automation.synchronous} the run happens on the committing thread instead.
+ */
 @Service
 public class AutomationService {
 
-    private final AutomationRuleRepository ruleRepo;
-    private final AutomationHistoryRepository historyRepo;
+    private static final Logger log = LoggerFactory.getLogger(AutomationService.class);
+
+    private final RuleIndexRegistry ruleIndex;
+    private final AutomationHistoryWriter history;
+    private final TimeTriggerScheduler timers;
     private final TaskRepository taskRepo;
     private final ProjectRepository projectRepo;
     private final UserRepository userRepo;
     private final NotificationService notifications;
     private final TaskMailService taskMail;
     private final ProjectEventService sseEvents;
+    private final AutomationProperties props;
+    private final TransactionTemplate tx;
+    private final ExecutorService workerPool;   // null in synchronous mode
+    private final ScheduledExecutorService retryTimer;   // null in synchronous mode
+    private final KeyedSerialExecutor lanes;
 
-    private static final ThreadLocal<Boolean> runningAutomation = ThreadLocal.withInitial(() -> false);
+    /** A committed task change, as queued for the pipeline. {@code ruleId} is set for time-based fires only. */
+    record AutomationEvent(Long projectId, TriggerType type, Long taskId, Long actorId,
+                           String oldStatus, String newStatus, Long ruleId) { }
 
-    public AutomationService(AutomationRuleRepository ruleRepo, AutomationHistoryRepository historyRepo,
+    public AutomationService(RuleIndexRegistry ruleIndex, AutomationHistoryWriter history, TimeTriggerScheduler timers,
                              TaskRepository taskRepo, ProjectRepository projectRepo, UserRepository userRepo,
                              NotificationService notifications, TaskMailService taskMail,
-                             ProjectEventService sseEvents) {
-        this.ruleRepo = ruleRepo;
-        this.historyRepo = historyRepo;
+                             ProjectEventService sseEvents, AutomationProperties props,
+                             PlatformTransactionManager txManager) {
+        this.ruleIndex = ruleIndex;
+        this.history = history;
+        this.timers = timers;
         this.taskRepo = taskRepo;
         this.projectRepo = projectRepo;
         this.userRepo = userRepo;
         this.notifications = notifications;
         this.taskMail = taskMail;
         this.sseEvents = sseEvents;
+        this.props = props;
+        // REQUIRES_NEW: runs may start inside afterCommit of the triggering transaction.
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (props.isSynchronous()) {
+            this.workerPool = null;
+            this.retryTimer = null;
+            this.lanes = new KeyedSerialExecutor(Runnable::run, null, props.getQueueCapacity());
+        } else {
+            AtomicInteger n = new AtomicInteger();
+            this.workerPool = Executors.newFixedThreadPool(Math.max(1, props.getWorkerThreads()), r -> {
+                Thread t = new Thread(r, "automation-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "automation-retry");
+                t.setDaemon(true);
+                return t;
+            });
+            this.lanes = new KeyedSerialExecutor(workerPool, retryTimer, props.getQueueCapacity());
+        }
+        timers.onFire(this::fire);
     }
 
-    @Transactional
-    public void trigger(Long projectId, String eventType, Task task, User actor, String oldStatus, String newStatus) {
-        if (runningAutomation.get()) {
-            return; // Prevent recursive loops
+    /**
+     * Record a task event for automation. Cheap: the in-memory rule index is consulted and, if
+     * any rule could fire, the event is queued after the current transaction commits (a
+     * rolled-back change never runs automation).
+     */
+    public void trigger(Long projectId, TriggerType event, Task task, User actor, String oldStatus, String newStatus) {
+        if (ruleIndex.forProject(projectId).match(event, oldStatus, newStatus).isEmpty()) {
+            return;
         }
+        AutomationEvent e = new AutomationEvent(projectId, event, task.getId(),
+                actor == null ? null : actor.getId(), oldStatus, newStatus, null);
+        AfterCommit.run(() -> enqueue(e));
+    }
 
-        List<AutomationRule> rules = ruleRepo.findByProjectId(projectId);
+    /** A time-based rule fell due for a task (from TimeTriggerScheduler's tick). */
+    private void fire(TimeTriggerScheduler.Fire f) {
+        enqueue(new AutomationEvent(f.projectId(), f.type(), f.taskId(), null, null, null, f.ruleId()));
+    }
+
+    private void enqueue(AutomationEvent e) {
+        AtomicInteger attempts = new AtomicInteger();
+        if (!lanes.submit(e.taskId(), () -> attempt(e, attempts.incrementAndGet()))) {
+            log.warn("[automation] queue full ({} pending) — dropped {} for task {}",
+                    lanes.pending(), e.type(), e.taskId());
+            recordNotRun(e, "Not run: automation queue full");
+        }
+    }
+
+    /** One run of {@code e}; returns the delay before retrying after a version conflict, or -1 when done. */
+    private long attempt(AutomationEvent e, int attempt) {
+        try {
+            tx.executeWithoutResult(s -> execute(e));
+            return -1;
+        } catch (OptimisticLockingFailureException conflict) {
+            if (attempt >= props.getMaxAttempts()) {
+                log.warn("[automation] {} on task {} gave up after {} conflicting attempts",
+                        e.type(), e.taskId(), attempt);
+                recordNotRun(e, "Not run: task changed concurrently on all " + attempt + " attempts");
+                return -1;
+            }
+            return 25L * attempt;   // let the competing writer finish
+        }
+    }
+
+    /** History for an event that never ran: FAILED against every rule it would have matched. */
+    private void recordNotRun(AutomationEvent e, String reason) {
+        RuleIndex index = ruleIndex.forProject(e.projectId());
+        List<CompiledRule> rules;
+        if (e.ruleId() != null) {
+            CompiledRule rule = index.rule(e.type(), e.ruleId());
+            rules = rule == null ? List.of() : List.of(rule);
+        } else {
+            rules = index.match(e.type(), e.oldStatus(), e.newStatus());
+        }
+        rules.forEach(rule -> history.notRun(e.projectId(), rule, e.taskId(), reason));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (workerPool == null) return;
+        retryTimer.shutdownNow();   // waiting retries are abandoned with the rest of the queue
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("[automation] {} queued run(s) abandoned at shutdown", lanes.pending());
+        }
+    }
+
+    /** One run: re-match against the committed task, execute, save. Side effects leave after commit. */
+    private void execute(AutomationEvent e) {
+        Long projectId = e.projectId();
+        List<CompiledRule> rules;
+        if (e.ruleId() != null) {
+            CompiledRule rule = ruleIndex.forProject(projectId).rule(e.type(), e.ruleId());
+            rules = rule == null ? List.of() : List.of(rule);   // null: rule deleted or disabled since scheduling
+        } else {
+            rules = ruleIndex.forProject(projectId).match(e.type(), e.oldStatus(), e.newStatus());
+        }
         if (rules.isEmpty()) {
             return;
         }
 
+        Task task = taskRepo.findById(e.taskId()).orElse(null);
+        if (task == null) {
+            return; // deleted before its automation ran
+        }
         Project project = projectRepo.findById(projectId).orElse(null);
         if (project == null) {
             return;
         }
+        User actor = e.actorId() == null ? null : userRepo.findById(e.actorId()).orElse(null);
+        if (e.ruleId() != null && !stillDue(rules.get(0), task, project)) {
+            return;
+        }
 
-        try {
-            runningAutomation.set(true);
-            boolean taskMutated = false;
-
-            for (AutomationRule rule : rules) {
-                if (!rule.isActive()) {
-                    continue;
-                }
-
-                // Check Trigger
-                boolean triggered = false;
-                if (rule.getTriggerType().equals("TASK_CREATED") && eventType.equals("TASK_CREATED")) {
-                    triggered = true;
-                } else if (rule.getTriggerType().equals("STATUS_CHANGED") && eventType.equals("STATUS_CHANGED")) {
-                    String targetStatus = rule.getTriggerConfig();
-                    if (targetStatus == null || targetStatus.isBlank() || targetStatus.equalsIgnoreCase("ANY")) {
-                        triggered = oldStatus != null && !oldStatus.equals(newStatus);
-                    } else {
-                        triggered = targetStatus.equalsIgnoreCase(newStatus) && (oldStatus == null || !oldStatus.equalsIgnoreCase(newStatus));
-                    }
-                }
-
-                if (!triggered) {
-                    continue;
-                }
+        boolean taskMutated = false;
 
-                // Check Condition
-                boolean conditionMet = false;
-                String condType = rule.getConditionType();
-                String condConfig = rule.getConditionConfig();
-
-                if (condType == null || condType.equals("NONE")) {
-                    conditionMet = true;
-                } else if (condType.equals("PRIORITY_IS")) {
-                    conditionMet = task.getPriority() != null && task.getPriority().name().equalsIgnoreCase(condConfig);
-                } else if (condType.equals("IS_MILESTONE")) {
-                    conditionMet = task.isMilestone();
-                } else if (condType.equals("HAS_TAG")) {
-                    conditionMet = task.getTags() != null && task.getTags().stream().anyMatch(t -> t.equalsIgnoreCase(condConfig));
-                }
+        for (CompiledRule rule : rules) {
+            if (!rule.condition().test(task)) {
+                history.skipped(projectId, rule, "Condition not met: " + rule.conditionLabel());
+                continue;
+            }
 
-                if (!conditionMet) {
-                    historyRepo.save(new AutomationHistory(projectId, rule.getId(), rule.getName(),
-                            task.getId(), task.getTitle(), "SKIPPED", "Condition not met: " + condType + " = " + condConfig));
-                    continue;
-                }
+            // Execute Action
+            String runMessage;
+            boolean success = false;
 
-                // Execute Action
-                String actType = rule.getActionType();
-                String actConfig = rule.getActionConfig();
-                String runMessage = "";
-                boolean success = false;
-
-                try {
-                    if (actType.equals("ASSIGN_TO_USER")) {
-                        Long targetUserId = Long.parseLong(actConfig);
-                        User targetUser = userRepo.findById(targetUserId).orElse(null);
-                        if (targetUser != null) {
+            try {
+                switch (rule.action()) {
+                    case CompiledRule.Action.AssignTo a -> {
+                        User targetUser = userRepo.findById(a.userId()).orElse(null);
+                        if (targetUser == null) {
+                            runMessage = "Target user not found (ID: " + a.userId() + ")";
+                        } else if (!task.getAssigneeIds().contains(a.userId())) {
                             Set<Long> assignees = new HashSet<>(task.getAssigneeIds());
-                            if (!assignees.contains(targetUserId)) {
-                                assignees.add(targetUserId);
-                                task.setAssigneeIds(assignees);
-                                taskMutated = true;
-                                notifications.notifyTaskAssigned(targetUser, task, project, actor);
-                                taskMail.notifyAssigned(targetUser, task, project, actor);
-                                runMessage = "Assigned task to user: " + targetUser.getFullName();
-                                success = true;
-                            } else {
-                                runMessage = "User " + targetUser.getFullName() + " is already assigned.";
-                                success = true;
-                            }
+                            assignees.add(a.userId());
+                            task.setAssigneeIds(assignees);
+                            taskMutated = true;
+                            notifications.notifyTaskAssigned(targetUser, task, project, actor);
+                            AfterCommit.run(() -> taskMail.notifyAssigned(targetUser, task, project, actor));
+                            runMessage = "Assigned task to user: " + targetUser.getFullName();
+                            success = true;
                         } else {
-                            runMessage = "Target user not found (ID: " + actConfig + ")";
+                            runMessage = "User " + targetUser.getFullName() + " is already assigned.";
+                            success = true;
                         }
-                    } else if (actType.equals("SET_PRIORITY")) {
-                        TaskPriority priority = TaskPriority.valueOf(actConfig.toUpperCase());
-                        if (task.getPriority() != priority) {
-                            task.setPriority(priority);
+                    }
+                    case CompiledRule.Action.SetPriority sp -> {
+                        if (task.getPriority() != sp.priority()) {
+                            task.setPriority(sp.priority());
                             taskMutated = true;
-                            runMessage = "Set task priority to " + priority;
+                            runMessage = "Set task priority to " + sp.priority();
                         } else {
-                            runMessage = "Priority was already " + priority;
+                            runMessage = "Priority was already " + sp.priority();
                         }
                         success = true;
-                    } else if (actType.equals("MOVE_TO_STATUS")) {
-                        if (project.getStages().contains(actConfig)) {
-                            if (!actConfig.equals(task.getStatus())) {
+                    }
+                    case CompiledRule.Action.MoveToStatus m -> {
+                        if (project.getStages().contains(m.status())) {
+                            if (!m.status().equals(task.getStatus())) {
                                 String prevStatus = task.getStatus();
-                                task.setStatus(actConfig);
+                                task.setStatus(m.status());
                                 taskMutated = true;
-                                runMessage = "Moved task from '" + prevStatus + "' to '" + actConfig + "'";
+                                runMessage = "Moved task from '" + prevStatus + "' to '" + m.status() + "'";
                             } else {
-                                runMessage = "Task is already in status '" + actConfig + "'";
+                                runMessage = "Task is already in status '" + m.status() + "'";
                             }
                             success = true;
                         } else {
-                            runMessage = "Target stage '" + actConfig + "' is not a valid workflow stage for this project.";
+                            runMessage = "Target stage '" + m.status() + "' is not a valid workflow stage for this project.";
                         }
-                    } else if (actType.equals("SEND_NOTIFICATION_TO_OWNER")) {
+                    }
+                    case CompiledRule.Action.NotifyOwner n -> {
                         User owner = userRepo.findById(project.getOwnerId()).orElse(null);
                         if (owner != null) {
                             notifications.notifyTaskAssigned(owner, task, project, actor);
-                            taskMail.notifyAssigned(owner, task, project, actor);
+                            AfterCommit.run(() -> taskMail.notifyAssigned(owner, task, project, actor));
                             runMessage = "Sent notification to project owner: " + owner.getFullName();
                             success = true;
                         } else {
                             runMessage = "Project owner not found (ID: " + project.getOwnerId() + ")";
                         }
-                    } else {
-                        runMessage = "Unknown action type: " + actType;
                     }
-                } catch (Exception e) {
-                    runMessage = "Error executing action: " + e.getMessage();
+                    case CompiledRule.Action.Invalid inv -> runMessage = inv.message();
                 }
-
-                historyRepo.save(new AutomationHistory(projectId, rule.getId(), rule.getName(),
-                        task.getId(), task.getTitle(), success ? "SUCCESS" : "FAILED", runMessage));
+            } catch (Exception ex) {
+                runMessage = "Error executing action: " + ex.getMessage();
             }
 
-            if (taskMutated) {
-                Task savedTask = taskRepo.save(task);
-                Map<String, Object> dto = dto(savedTask);
-                sseEvents.publish(projectId, "task.updated", dto);
-            }
+            history.record(projectId, rule, task.getId(), task.getTitle(), success, runMessage);
+        }
 
-        } finally {
-            runningAutomation.remove();
+        if (taskMutated) {
+            Task savedTask = taskRepo.saveAndFlush(task);   // flush: surface a version conflict here, inside the retry
+            timers.taskChanged(savedTask);
+            TaskDto dto = TaskDto.of(savedTask);
+            AfterCommit.run(() -> sseEvents.publish(projectId, "task.updated", dto));
         }
     }
 
-    private Map<String, Object> dto(Task t) {
-        Map<String, Object> m = new HashMap<>();
-        m.put("id", t.getId());
-        m.put("projectId", t.getProjectId());
-        m.put("title", t.getTitle());
-        m.put("description", t.getDescription());
-        m.put("assigneeIds", new ArrayList<>(t.getAssigneeIds()));
-        m.put("startDate", t.getStartDate());
-        m.put("dueDate", t.getDueDate());
-        m.put("milestone", t.isMilestone());
-        m.put("priority", t.getPriority() == null ? null : t.getPriority().name());
-        m.put("status", t.getStatus());
-        m.put("tags", new ArrayList<>(t.getTags()));
-        m.put("parentTaskId", t.getParentTaskId());
-        m.put("blockedByTaskIds", new ArrayList<>(t.getBlockedByTaskIds()));
-        m.put("createdByUserId", t.getCreatedByUserId());
-        m.put("createdAt", t.getCreatedAt());
-        m.put("updatedAt", t.getUpdatedAt());
-        return m;
+    /**
+     * Guard for a time-based fire: the committed task must still be due for the rule (its due
+     * date may have moved since the timer was set) and must not be in the project's final stage.
+     */
+    private boolean stillDue(CompiledRule rule, Task task, Project project) {
+        List<String> stages = project.getStages();
+        if (!stages.isEmpty() && stages.get(stages.size() - 1).equals(task.getStatus())) {
+            history.skipped(project.getId(), rule, "Task is already in the final stage");
+            return false;
+        }
+        Instant at = timers.fireAt(rule, task.getDueDate(), task.getUpdatedAt());
+        if (at == null || at.isAfter(Instant.now())) {
+            return false;   // rescheduled by the change that moved it
+        }
+        return rule.trigger() != TriggerType.DUE_DATE_APPROACHING || !task.getDueDate().isBefore(LocalDate.now());
     }
 }
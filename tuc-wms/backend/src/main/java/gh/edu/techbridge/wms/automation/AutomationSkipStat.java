@@ -0,0 +1,49 @@
+package gh.edu.techbridge.wms.automation;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Hourly count of SKIPPED evaluations per rule (FR-AUTO-007). A rule whose condition is not
+ * met was logged as one history row per event; it is now one row per rule per hour, kept up
+ * to date by AutomationHistoryWriter. {@code lastReason} is the most recent skip message.
+ */
+@Entity
+@Table(name = "wms_automation_skip_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_skip_rule_hour", columnNames = {"ruleId", "hourStart"}),
+        indexes = @Index(name = "idx_skip_project", columnList = "projectId,hourStart"))
+public class AutomationSkipStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long projectId;
+
+    @Column(nullable = false)
+    private Long ruleId;
+
+    @Column(nullable = false, length = 100)
+    private String ruleName;
+
+    /** Start of the UTC hour this row counts. */
+    @Column(nullable = false)
+    private Instant hourStart;
+
+    @Column(nullable = false)
+    private long skipCount;
+
+    @Column(length = 1000)
+    private String lastReason;
+
+    protected AutomationSkipStat() { }
+
+    public Long getId() { return id; }
+    public Long getProjectId() { return projectId; }
+    public Long getRuleId() { return ruleId; }
+    public String getRuleName() { return ruleName; }
+    public Instant getHourStart() { return hourStart; }
+    public long getSkipCount() { return skipCount; }
+    public String getLastReason() { return lastReason; }
+}
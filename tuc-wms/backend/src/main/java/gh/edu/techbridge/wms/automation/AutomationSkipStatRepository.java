@@ -0,0 +1,17 @@
+package gh.edu.techbridge.wms.automation;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AutomationSkipStatRepository extends JpaRepository<AutomationSkipStat, Long> {
+    List<AutomationSkipStat> findByProjectIdAndHourStartGreaterThanEqualOrderByHourStartDesc(Long projectId, Instant from);
+
+    @Modifying
+    @Query("delete from AutomationSkipStat s where s.hourStart < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
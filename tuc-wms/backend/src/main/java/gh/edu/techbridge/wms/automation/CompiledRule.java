@@ -0,0 +1,143 @@
+package gh.edu.techbridge.wms.automation;
+
+import gh.edu.techbridge.wms.task.Task;
+import gh.edu.techbridge.wms.task.TaskPriority;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * An {@link AutomationRule} with its string configuration parsed once, when the rule index is
+ * built: the condition becomes a {@link Condition} predicate (priority enum, lower-cased tag
+ * set) and the action a typed {@link Action}. A config that cannot be parsed compiles to a
+ * never-matching condition or an {@link Action.Invalid} — the same outcome the old per-event
+ * string evaluation produced, minus the parsing on every task event.
+ */
+record CompiledRule(Long id, String name, TriggerType trigger, String targetStatus, int triggerDays,
+                    Condition condition, String conditionLabel, Action action) {
+
+    /** Rule condition, evaluated against the task that raised the event. */
+    sealed interface Condition extends Predicate<Task> {
+        record Always() implements Condition {
+            public boolean test(Task t) { return true; }
+        }
+        record Never() implements Condition {
+            public boolean test(Task t) { return false; }
+        }
+        record PriorityIs(TaskPriority priority) implements Condition {
+            public boolean test(Task t) { return t.getPriority() == priority; }
+        }
+        record IsMilestone() implements Condition {
+            public boolean test(Task t) { return t.isMilestone(); }
+        }
+        /** Any of the configured tags (comma-separated), case-insensitive. */
+        record HasTag(Set<String> tags) implements Condition {
+            public boolean test(Task t) {
+                if (t.getTags() == null) return false;
+                for (String tag : t.getTags()) {
+                    if (tag != null && tags.contains(tag.toLowerCase(Locale.ROOT))) return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /** Rule action with its target already resolved from actionConfig. */
+    sealed interface Action {
+        record AssignTo(Long userId) implements Action { }
+        record SetPriority(TaskPriority priority) implements Action { }
+        record MoveToStatus(String status) implements Action { }
+        record NotifyOwner() implements Action { }
+        /** Unparseable or unknown action; running it only records {@code message} as a failure. */
+        record Invalid(String message) implements Action { }
+    }
+
+    /** Null when the trigger type is unknown — such a rule is simply not indexed. */
+    static CompiledRule compile(AutomationRule r) {
+        TriggerType trigger = TriggerType.parse(r.getTriggerType());
+        if (trigger == null) return null;
+        String target = r.getTriggerConfig();
+        int days = 0;
+        if (trigger.timeBased()) {
+            days = days(target, trigger == TriggerType.NO_ACTIVITY_FOR_N_DAYS ? 7 : 1);
+            target = null;
+        } else if (target == null || target.isBlank() || target.equalsIgnoreCase("ANY")) {
+            target = null;
+        }
+        return new CompiledRule(r.getId(), r.getName(), trigger, target, days,
+                condition(r.getConditionType(), r.getConditionConfig()),
+                r.getConditionType() + " = " + r.getConditionConfig(),
+                action(r.getActionType(), r.getActionConfig()));
+    }
+
+    /**
+     * When a time-based rule is due for a task with the given due date and last change, in
+     * {@code zone} at {@code hour}; null if it never is (no due date).
+     */
+    Instant fireAt(LocalDate dueDate, Instant lastChanged, ZoneId zone, int hour) {
+        return switch (trigger) {
+            case DUE_DATE_APPROACHING -> dueDate == null ? null
+                    : dueDate.minusDays(triggerDays).atTime(hour, 0).atZone(zone).toInstant();
+            case OVERDUE -> dueDate == null ? null
+                    : dueDate.plusDays(1).atTime(hour, 0).atZone(zone).toInstant();
+            case NO_ACTIVITY_FOR_N_DAYS -> lastChanged == null ? null
+                    : lastChanged.plus(Duration.ofDays(triggerDays));
+            default -> null;
+        };
+    }
+
+    private static int days(String config, int fallback) {
+        if (config == null || config.isBlank()) return fallback;
+        try {
+            int d = Integer.parseInt(config.trim());
+            return d >= 0 && d <= 365 ? d : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static Condition condition(String type, String config) {
+        if (type == null || type.equals("NONE")) return new Condition.Always();
+        return switch (type) {
+            case "PRIORITY_IS" -> {
+                try {
+                    yield config == null ? new Condition.Never()
+                            : new Condition.PriorityIs(TaskPriority.valueOf(config.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    yield new Condition.Never();
+                }
+            }
+            case "IS_MILESTONE" -> new Condition.IsMilestone();
+            case "HAS_TAG" -> {
+                Set<String> tags = config == null ? Set.of() : Arrays.stream(config.split(","))
+                        .map(s -> s.trim().toLowerCase(Locale.ROOT))
+                        .filter(s -> !s.isEmpty())
+                        .collect(Collectors.toUnmodifiableSet());
+                yield tags.isEmpty() ? new Condition.Never() : new Condition.HasTag(tags);
+            }
+            default -> new Condition.Never();
+        };
+    }
+
+    private static Action action(String type, String config) {
+        if (type == null) return new Action.Invalid("Unknown action type: null");
+        try {
+            return switch (type) {
+                case "ASSIGN_TO_USER" -> new Action.AssignTo(Long.parseLong(config.trim()));
+                case "SET_PRIORITY" -> new Action.SetPriority(TaskPriority.valueOf(config.trim().toUpperCase(Locale.ROOT)));
+                case "MOVE_TO_STATUS" -> new Action.MoveToStatus(config);
+                case "SEND_NOTIFICATION_TO_OWNER" -> new Action.NotifyOwner();
+                default -> new Action.Invalid("Unknown action type: " + type);
+            };
+        } catch (RuntimeException e) {
+            return new Action.Invalid("Error executing action: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package gh.edu.techbridge.wms.automation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs submitted work one-at-a-time per key, in submission order, on a shared worker
+ * {@link Executor}; different keys run in parallel. Each key with pending work has a lane
+ * (a small FIFO) that occupies at most one worker at a time and yields after
+ * {@value #BATCH} items so a busy key cannot starve the others. Lanes are dropped when they
+ * drain, so idle keys cost nothing. The total number of queued items is capped at
+ * {@code capacity}; {@link #submit} returns false instead of queueing past it.
+ *
+ * An item may ask to run again after a delay. It stays at the head of its lane, so later
+ * items for the key still wait behind it, but the lane gives its worker back and is
+ * resubmitted by {@code delays} — no worker sleeps. Without {@code delays} (synchronous use)
+ * the item is retried at once.
+ */
+final class KeyedSerialExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+    private static final int BATCH = 16;
+
+    /** Queued work: returns the delay in ms before it should run again, or a negative value when done. */
+    @FunctionalInterface
+    interface Work {
+        long run();
+    }
+
+    private final Executor workers;
+    private final ScheduledExecutorService delays;   // null: retry immediately
+    private final int capacity;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<Object, Lane> lanes = new ConcurrentHashMap<>();
+
+    KeyedSerialExecutor(Executor workers, ScheduledExecutorService delays, int capacity) {
+        this.workers = workers;
+        this.delays = delays;
+        this.capacity = capacity;
+    }
+
+    /** Queue {@code work} behind everything already queued for {@code key}. False when full. */
+    boolean submit(Object key, Work work) {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            return false;
+        }
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(key, Lane::new);
+            boolean start;
+            synchronized (lane) {
+                if (lane.retired) continue;          // drained and removed under us — take a fresh lane
+                lane.queue.add(work);
+                start = !lane.scheduled;
+                lane.scheduled = true;
+            }
+            if (start) workers.execute(lane);
+            return true;
+        }
+    }
+
+    int pending() { return pending.get(); }
+
+    private final class Lane implements Runnable {
+        final Object key;
+        final ArrayDeque<Work> queue = new ArrayDeque<>();
+        boolean scheduled;
+        boolean retired;
+
+        Lane(Object key) { this.key = key; }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH; i++) {
+                Work next;
+                synchronized (this) {
+                    next = queue.peek();             // only this runner removes, so it stays the head
+                    if (next == null) {
+                        scheduled = false;
+                        retired = true;
+                        lanes.remove(key, this);
+                        return;
+                    }
+                }
+                long retryMs;
+                try {
+                    retryMs = next.run();
+                } catch (Throwable t) {
+                    log.warn("[automation] queued work for {} failed: {}", key, t.toString());
+                    retryMs = -1;
+                }
+                if (retryMs >= 0 && delays != null) {
+                    try {
+                        delays.schedule(() -> workers.execute(this), retryMs, TimeUnit.MILLISECONDS);
+                        return;                      // lane stays scheduled while it waits
+                    } catch (RejectedExecutionException shuttingDown) {
+                        retryMs = -1;
+                    }
+                }
+                if (retryMs >= 0) continue;          // synchronous: retry in place
+                synchronized (this) {
+                    queue.poll();
+                }
+                pending.decrementAndGet();
+            }
+            workers.execute(this);                   // still busy: go to the back of the worker queue
+        }
+    }
+}
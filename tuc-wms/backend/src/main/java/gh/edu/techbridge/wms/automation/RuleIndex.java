@@ -0,0 +1,91 @@
+package gh.edu.techbridge.wms.automation;
+
+import java.util.*;
+
+/**
+ * Immutable, per-project index of the active automation rules, keyed by trigger type. A
+ * STATUS_CHANGED rule aimed at one stage is filed under that stage (lower-case), so a status
+ * event only touches the rules for its target stage plus the "any change" rules. Lists are in
+ * rule-id order, matching the evaluation order of the old findByProjectId scan. Never mutated
+ * after {@link #build}: a rule change builds a new index and swaps it in (RuleIndexRegistry).
+ */
+final class RuleIndex {
+
+    static final RuleIndex EMPTY = new RuleIndex(Map.of(), Map.of(), List.of(), List.of(), 0);
+
+    private final Map<TriggerType, List<CompiledRule>> byTrigger;
+    private final Map<String, List<CompiledRule>> onStatusTo;
+    private final List<CompiledRule> onAnyStatusChange;
+    private final List<CompiledRule> timeRules;
+    private final int size;
+
+    private RuleIndex(Map<TriggerType, List<CompiledRule>> byTrigger, Map<String, List<CompiledRule>> onStatusTo,
+                      List<CompiledRule> onAnyStatusChange, List<CompiledRule> timeRules, int size) {
+        this.byTrigger = byTrigger;
+        this.onStatusTo = onStatusTo;
+        this.onAnyStatusChange = onAnyStatusChange;
+        this.timeRules = timeRules;
+        this.size = size;
+    }
+
+    static RuleIndex build(Collection<AutomationRule> rules) {
+        List<AutomationRule> sorted = rules.stream()
+                .filter(AutomationRule::isActive)
+                .sorted(Comparator.comparing(AutomationRule::getId))
+                .toList();
+        Map<TriggerType, List<CompiledRule>> byTrigger = new EnumMap<>(TriggerType.class);
+        Map<String, List<CompiledRule>> onStatusTo = new HashMap<>();
+        List<CompiledRule> onAny = new ArrayList<>();
+        List<CompiledRule> timed = new ArrayList<>();
+        int size = 0;
+        for (AutomationRule r : sorted) {
+            CompiledRule c = CompiledRule.compile(r);
+            if (c == null) continue;
+            size++;
+            if (c.trigger() == TriggerType.STATUS_CHANGED) {
+                if (c.targetStatus() == null) onAny.add(c);
+                else onStatusTo.computeIfAbsent(c.targetStatus().toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(c);
+            } else {
+                byTrigger.computeIfAbsent(c.trigger(), k -> new ArrayList<>()).add(c);
+                if (c.trigger().timeBased()) timed.add(c);
+            }
+        }
+        if (size == 0) return EMPTY;
+        byTrigger.replaceAll((k, v) -> List.copyOf(v));
+        onStatusTo.replaceAll((k, v) -> List.copyOf(v));
+        return new RuleIndex(Collections.unmodifiableMap(byTrigger), Map.copyOf(onStatusTo), List.copyOf(onAny),
+                List.copyOf(timed), size);
+    }
+
+    /** Rules whose trigger fires for this event, in rule-id order. No allocation when nothing matches. */
+    List<CompiledRule> match(TriggerType event, String oldStatus, String newStatus) {
+        if (event != TriggerType.STATUS_CHANGED) return byTrigger.getOrDefault(event, List.of());
+
+        List<CompiledRule> any = oldStatus != null && !oldStatus.equals(newStatus) ? onAnyStatusChange : List.of();
+        List<CompiledRule> targeted = newStatus == null || (oldStatus != null && oldStatus.equalsIgnoreCase(newStatus))
+                ? List.of()
+                : onStatusTo.getOrDefault(newStatus.toLowerCase(Locale.ROOT), List.of());
+        if (targeted.isEmpty()) return any;
+        if (any.isEmpty()) return targeted;
+        List<CompiledRule> merged = new ArrayList<>(any.size() + targeted.size());
+        int i = 0, j = 0;
+        while (i < any.size() || j < targeted.size()) {
+            if (j == targeted.size() || (i < any.size() && any.get(i).id() < targeted.get(j).id())) merged.add(any.get(i++));
+            else merged.add(targeted.get(j++));
+        }
+        return merged;
+    }
+
+    /** Time-based rules (due date / inactivity), scheduled per task by TimeTriggerScheduler. */
+    List<CompiledRule> timeRules() { return timeRules; }
+
+    /** One rule by id, for a timer that fired for exactly that rule; null if it is gone. */
+    CompiledRule rule(TriggerType trigger, Long ruleId) {
+        for (CompiledRule r : byTrigger.getOrDefault(trigger, List.of())) {
+            if (r.id().equals(ruleId)) return r;
+        }
+        return null;
+    }
+
+    int size() { return size; }
+}
@@ -0,0 +1,80 @@
+package gh.edu.techbridge.wms.automation;
+
+import gh.edu.techbridge.wms.common.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the compiled {@link RuleIndex} of every project (FR-AUTO). All active rules are
+ * loaded in one query at startup; afterwards a task event resolves its rules from memory with
+ * no DB access. Any rule create/update/toggle/delete calls {@link #reload}, which rebuilds that
+ * project's index once the change has committed and swaps it in with a single map put —
+ * readers always see either the old or the new index, never a half-built one, and a
+ * {@link Reloaded} event tells TimeTriggerScheduler to reschedule that project. In-memory
+ * (single instance), like ProjectEventService.
+ */
+@Component
+public class RuleIndexRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleIndexRegistry.class);
+
+    /** Published after a project's index has been swapped. */
+    record Reloaded(Long projectId) { }
+
+    private final AutomationRuleRepository ruleRepo;
+    private final ApplicationEventPublisher publisher;
+    private final Map<Long, RuleIndex> byProject = new ConcurrentHashMap<>();
+
+    public RuleIndexRegistry(AutomationRuleRepository ruleRepo, ApplicationEventPublisher publisher) {
+        this.ruleRepo = ruleRepo;
+        this.publisher = publisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)   // before TimeTriggerScheduler.rebuild reads the indexes
+    public void loadAll() {
+        Map<Long, List<AutomationRule>> grouped = ruleRepo.findByActiveTrue().stream()
+                .collect(Collectors.groupingBy(AutomationRule::getProjectId));
+        grouped.forEach((projectId, rules) -> byProject.put(projectId, RuleIndex.build(rules)));
+        log.info("[automation] indexed {} active rule(s) across {} project(s)",
+                grouped.values().stream().mapToInt(List::size).sum(), grouped.size());
+    }
+
+    /** The project's current index; built on first use if the startup load has not covered it. */
+    RuleIndex forProject(Long projectId) {
+        return byProject.computeIfAbsent(projectId, this::build);
+    }
+
+    /** Rebuild the project's index after the current transaction (if any) commits. */
+    public void reload(Long projectId) {
+        Runnable swap = () -> {
+            byProject.put(projectId, build(projectId));
+            publisher.publishEvent(new Reloaded(projectId));
+        };
+        AfterCommit.run(swap);
+    }
+
+    /** Projects whose loaded index has at least one time-based rule. */
+    Set<Long> projectsWithTimeRules() {
+        return byProject.entrySet().stream()
+                .filter(e -> !e.getValue().timeRules().isEmpty())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private RuleIndex build(Long projectId) {
+        return RuleIndex.build(ruleRepo.findByProjectIdAndActiveTrue(projectId));
+    }
+}
@@ -0,0 +1,205 @@
+package gh.edu.techbridge.wms.automation;
+
+import gh.edu.techbridge.wms.common.AfterCommit;
+import gh.edu.techbridge.wms.config.AutomationProperties;
+import gh.edu.techbridge.wms.task.Task;
+import gh.edu.techbridge.wms.task.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Drives the time-based automation triggers (DUE_DATE_APPROACHING, OVERDUE,
+ * NO_ACTIVITY_FOR_N_DAYS). Every (task, time rule) pair gets one timer on an in-memory
+ * {@link TimingWheel} with one-minute ticks, so the periodic tick only touches timers that are
+ * actually due — there is no recurring scan of the task table. The wheel is rebuilt at startup
+ * from two index range scans (due dates from yesterday on, tasks changed within the longest
+ * inactivity window), and kept current by {@link #taskChanged} / {@link #taskRemoved} from the
+ * task write paths and by rule-index reloads. A fire is handed to AutomationService, which
+ * re-checks the rule against the committed task before running it. Fire times already in the
+ * past when a timer is (re)scheduled are not replayed, so edits and restarts never fire a rule
+ * twice; a fire missed while the server was down is skipped. In-memory (single instance), like
+ * RuleIndexRegistry.
+ */
+@Component
+public class TimeTriggerScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeTriggerScheduler.class);
+
+    private static final long TICK_MS = 60_000;
+    private static final int WHEEL_SIZE = 60;
+
+    /** A time rule falling due for one task. */
+    record Fire(Long projectId, Long taskId, Long ruleId, TriggerType type) { }
+
+    private record TaskTimers(Long projectId, List<TimingWheel.Timer<Fire>> timers) { }
+
+    private final RuleIndexRegistry ruleIndex;
+    private final TaskRepository taskRepo;
+    private final AutomationProperties props;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Guarded by `this`: the wheel is single-threaded.
+    private final TimingWheel<Fire> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, System.currentTimeMillis());
+    private final Map<Long, TaskTimers> byTask = new HashMap<>();
+    private volatile Consumer<Fire> sink = f -> { };
+
+    public TimeTriggerScheduler(RuleIndexRegistry ruleIndex, TaskRepository taskRepo, AutomationProperties props) {
+        this.ruleIndex = ruleIndex;
+        this.taskRepo = taskRepo;
+        this.props = props;
+    }
+
+    /** Where fires go (AutomationService registers itself; avoids a constructor cycle). */
+    void onFire(Consumer<Fire> sink) {
+        this.sink = sink;
+    }
+
+    /** When {@code rule} is due for a task, in the configured zone and hour. */
+    Instant fireAt(CompiledRule rule, LocalDate dueDate, Instant lastChanged) {
+        return rule.fireAt(dueDate, lastChanged, zone, props.getTimeTriggerHour());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Set<Long> projects = ruleIndex.projectsWithTimeRules();
+        if (projects.isEmpty()) return;
+        int scheduled = scheduleProjects(projects);
+        log.info("[automation] scheduled {} time trigger(s) across {} project(s)", scheduled, projects.size());
+    }
+
+    /** A task was created or changed: recompute its timers once the change commits. */
+    public void taskChanged(Task t) {
+        if (ruleIndex.forProject(t.getProjectId()).timeRules().isEmpty()) return;
+        Long taskId = t.getId(), projectId = t.getProjectId();
+        LocalDate due = t.getDueDate();
+        Instant changedAt = Instant.now();   // @PreUpdate sets updatedAt at flush, after this call
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                cancel(taskId);
+                schedule(taskId, projectId, due, changedAt, Instant.now());
+            }
+        });
+    }
+
+    /** A task was deleted: drop its timers once the delete commits. */
+    public void taskRemoved(Long taskId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                cancel(taskId);
+            }
+        });
+    }
+
+    /** Many tasks of one project were written at once (CSV import): rescan that project after commit. */
+    public void projectTasksChanged(Long projectId) {
+        if (ruleIndex.forProject(projectId).timeRules().isEmpty()) return;
+        AfterCommit.run(() -> scheduleProjects(Set.of(projectId)));
+    }
+
+    @EventListener
+    public void onRulesReloaded(RuleIndexRegistry.Reloaded e) {
+        synchronized (this) {
+            byTask.entrySet().removeIf(en -> {
+                if (!en.getValue().projectId().equals(e.projectId())) return false;
+                en.getValue().timers().forEach(wheel::cancel);
+                return true;
+            });
+        }
+        if (!ruleIndex.forProject(e.projectId()).timeRules().isEmpty()) {
+            scheduleProjects(Set.of(e.projectId()));
+        }
+    }
+
+    @Scheduled(fixedDelay = 30_000)
+    public void tick() {
+        List<Fire> due;
+        synchronized (this) {
+            due = wheel.advance(System.currentTimeMillis());
+            for (Fire f : due) {
+                TaskTimers tt = byTask.get(f.taskId());
+                if (tt != null) {
+                    tt.timers().removeIf(t -> t.payload == f);
+                    if (tt.timers().isEmpty()) byTask.remove(f.taskId());
+                }
+            }
+        }
+        for (Fire f : due) {
+            try {
+                sink.accept(f);
+            } catch (RuntimeException ex) {
+                log.warn("[automation] time trigger {} for task {} failed: {}", f.type(), f.taskId(), ex.toString());
+            }
+        }
+    }
+
+    /** Pending timers, for diagnostics. */
+    public synchronized int pending() {
+        return wheel.size();
+    }
+
+    private int scheduleProjects(Set<Long> projects) {
+        Instant now = Instant.now();
+        Set<Long> dueProjects = new HashSet<>();
+        Set<Long> idleProjects = new HashSet<>();
+        int maxIdleDays = 0;
+        for (Long projectId : projects) {
+            for (CompiledRule r : ruleIndex.forProject(projectId).timeRules()) {
+                if (r.trigger() == TriggerType.NO_ACTIVITY_FOR_N_DAYS) {
+                    idleProjects.add(projectId);
+                    maxIdleDays = Math.max(maxIdleDays, r.triggerDays());
+                } else {
+                    dueProjects.add(projectId);
+                }
+            }
+        }
+        Map<Long, TaskRepository.TimerRow> rows = new HashMap<>();
+        if (!dueProjects.isEmpty()) {
+            // OVERDUE fires the day after the due date, so yesterday's tasks may still be ahead.
+            LocalDate from = LocalDate.now(zone).minusDays(1);
+            taskRepo.findTimerRowsDueFrom(from, dueProjects).forEach(r -> rows.put(r.getId(), r));
+        }
+        if (!idleProjects.isEmpty()) {
+            Instant since = now.minus(Duration.ofDays(maxIdleDays));
+            taskRepo.findTimerRowsUpdatedSince(idleProjects, since).forEach(r -> rows.putIfAbsent(r.getId(), r));
+        }
+        int scheduled = 0;
+        synchronized (this) {
+            for (TaskRepository.TimerRow r : rows.values()) {
+                cancel(r.getId());
+                scheduled += schedule(r.getId(), r.getProjectId(), r.getDueDate(), r.getUpdatedAt(), now);
+            }
+        }
+        return scheduled;
+    }
+
+    /** Caller holds the lock. Only fire times after {@code now} are scheduled. */
+    private int schedule(Long taskId, Long projectId, LocalDate due, Instant lastChanged, Instant now) {
+        List<TimingWheel.Timer<Fire>> timers = new ArrayList<>();
+        for (CompiledRule rule : ruleIndex.forProject(projectId).timeRules()) {
+            Instant at = fireAt(rule, due, lastChanged);
+            if (at == null || !at.isAfter(now)) continue;
+            TimingWheel.Timer<Fire> t = wheel.schedule(at.toEpochMilli(),
+                    new Fire(projectId, taskId, rule.id(), rule.trigger()));
+            if (t != null) timers.add(t);
+        }
+        if (!timers.isEmpty()) byTask.put(taskId, new TaskTimers(projectId, timers));
+        return timers.size();
+    }
+
+    /** Caller holds the lock. */
+    private void cancel(Long taskId) {
+        TaskTimers tt = byTask.remove(taskId);
+        if (tt != null) tt.timers().forEach(wheel::cancel);
+    }
+}
@@ -0,0 +1,135 @@
+package gh.edu.techbridge.wms.automation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck; the Kafka purgatory layout). The first wheel
+ * has {@code wheelSize} buckets of {@code tickMs}; each overflow wheel is created on demand
+ * with a tick equal to the span of the wheel below, so a timer months away costs the same to
+ * add as one a minute away. Only non-empty buckets sit in a small priority queue ordered by
+ * expiry; {@link #advance} pops the expired ones and re-inserts their timers one level down
+ * until they fall due. Insert, cancel and per-timer expiry are O(1); advancing costs
+ * O(log buckets) per expired bucket, independent of how many timers are pending. A timer
+ * fires at most one tick after its deadline, never before it.
+ * Not thread-safe — the owner serialises access.
+ */
+final class TimingWheel<T> {
+
+    static final class Timer<T> {
+        final long deadline;
+        final T payload;
+        private final long slot;   // deadline rounded up to the next tick: never fires early
+        private Bucket<T> bucket;
+
+        private Timer(long deadline, long slot, T payload) {
+            this.deadline = deadline;
+            this.slot = slot;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Bucket<T> {
+        final Set<Timer<T>> timers = new LinkedHashSet<>();   // identity equality: O(1) cancel
+        long expiration = -1;
+    }
+
+    private final class Wheel {
+        final long tickMs;
+        final long interval;
+        final Bucket<T>[] buckets;
+        long currentTime;
+        Wheel overflow;
+
+        @SuppressWarnings("unchecked")
+        Wheel(long tickMs, long startMs) {
+            this.tickMs = tickMs;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) buckets[i] = new Bucket<>();
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        /** False when the timer is already due at this wheel's resolution. */
+        boolean add(Timer<T> t) {
+            if (t.slot < currentTime + tickMs) return false;
+            if (t.slot < currentTime + interval) {
+                long virtualId = t.slot / tickMs;
+                Bucket<T> b = buckets[(int) (virtualId % wheelSize)];
+                b.timers.add(t);
+                t.bucket = b;
+                long expiration = virtualId * tickMs;
+                if (b.expiration != expiration) {   // bucket was empty (flushed): (re)queue it
+                    b.expiration = expiration;
+                    queue.add(b);
+                }
+                return true;
+            }
+            if (overflow == null) overflow = new Wheel(interval, currentTime);
+            return overflow.add(t);
+        }
+
+        void advance(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) overflow.advance(currentTime);
+            }
+        }
+    }
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final PriorityQueue<Bucket<T>> queue = new PriorityQueue<>(Comparator.comparingLong(b -> b.expiration));
+    private final Wheel root;
+    private int size;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.root = new Wheel(tickMs, startMs);
+    }
+
+    /** Schedule {@code payload} for {@code deadlineMs}; null when that is already due (caller fires it). */
+    Timer<T> schedule(long deadlineMs, T payload) {
+        Timer<T> t = new Timer<>(deadlineMs, deadlineMs + tickMs - 1, payload);
+        if (!root.add(t)) return null;
+        size++;
+        return t;
+    }
+
+    void cancel(Timer<T> t) {
+        if (t != null && t.bucket != null) {
+            t.bucket.timers.remove(t);
+            t.bucket = null;
+            size--;
+        }
+    }
+
+    /** Move the clock to {@code nowMs}; returns the payloads that fell due, in deadline-bucket order. */
+    List<T> advance(long nowMs) {
+        List<T> due = new ArrayList<>();
+        Bucket<T> b;
+        while ((b = queue.peek()) != null && b.expiration <= nowMs) {
+            queue.poll();
+            root.advance(b.expiration);
+            List<Timer<T>> flushed = new ArrayList<>(b.timers);
+            b.timers.clear();
+            b.expiration = -1;
+            for (Timer<T> t : flushed) {
+                t.bucket = null;
+                if (!root.add(t)) {   // due now; otherwise it cascaded into a finer bucket
+                    size--;
+                    due.add(t.payload);
+                }
+            }
+        }
+        root.advance(nowMs);
+        return due;
+    }
+
+    int size() { return size; }
+}
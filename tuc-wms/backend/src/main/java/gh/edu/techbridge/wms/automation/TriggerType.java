@@ -0,0 +1,30 @@
+package gh.edu.techbridge.wms.automation;
+
+/**
+ * What an automation rule fires on (FR-AUTO-002). Stored by name in AutomationRule.triggerType.
+ * The time-based kinds take a day count in triggerConfig and are driven by TimeTriggerScheduler.
+ */
+public enum TriggerType {
+    TASK_CREATED,
+    STATUS_CHANGED,
+    /** triggerConfig days (default 1) before the due date, at tucwms.automation.time-trigger-hour. */
+    DUE_DATE_APPROACHING,
+    /** The morning after the due date, at tucwms.automation.time-trigger-hour. */
+    OVERDUE,
+    /** triggerConfig days (default 7) after the task was last changed. */
+    NO_ACTIVITY_FOR_N_DAYS;
+
+    boolean timeBased() {
+        return this == DUE_DATE_APPROACHING || this == OVERDUE || this == NO_ACTIVITY_FOR_N_DAYS;
+    }
+
+    /** Lenient parse of a stored trigger name; null for unknown values (such a rule never fires). */
+    static TriggerType parse(String name) {
+        if (name == null) return null;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
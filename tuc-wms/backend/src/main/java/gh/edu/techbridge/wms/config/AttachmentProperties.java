@@ -0,0 +1,45 @@
+package gh.edu.techbridge.wms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds tucwms.attachments.* — task attachment storage (FR-TASK-007). File content lives on
+ * the local filesystem under {@code storageDir}, addressed by SHA-256, never in the database.
+ * Rows written before this store existed still carry a BLOB; with {@code migrateBlobs} on,
+ * AttachmentBlobMigrator moves them out at startup, {@code migrationBatchSize} rows per query.
+ *
+ * Resumable uploads (ChunkedUploadService) accept files up to {@code maxUploadSize} bytes in
+ * chunks of at most {@code chunkSize}; a session idle for {@code uploadTtlMinutes} is dropped
+ * together with its staging file, and a user may hold {@code maxOpenUploadsPerUser} at once.
+ *
+ * Stored content no row references (deleted attachments, rolled-back uploads) is removed by a
+ * sweep once it is {@code orphanGraceMinutes} old.
+ */
+@ConfigurationProperties(prefix = "tucwms.attachments")
+public class AttachmentProperties {
+    private String storageDir = "./data/attachments";
+    private boolean migrateBlobs = true;
+    private int migrationBatchSize = 25;
+    private long maxUploadSize = 250L * 1024 * 1024;
+    private int chunkSize = 4 * 1024 * 1024;
+    private int uploadTtlMinutes = 24 * 60;
+    private int maxOpenUploadsPerUser = 5;
+    private int orphanGraceMinutes = 60;
+
+    public String getStorageDir() { return storageDir; }
+    public void setStorageDir(String v) { this.storageDir = v; }
+    public boolean isMigrateBlobs() { return migrateBlobs; }
+    public void setMigrateBlobs(boolean v) { this.migrateBlobs = v; }
+    public int getMigrationBatchSize() { return migrationBatchSize; }
+    public void setMigrationBatchSize(int v) { this.migrationBatchSize = v; }
+    public long getMaxUploadSize() { return maxUploadSize; }
+    public void setMaxUploadSize(long v) { this.maxUploadSize = v; }
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int v) { this.chunkSize = v; }
+    public int getUploadTtlMinutes() { return uploadTtlMinutes; }
+    public void setUploadTtlMinutes(int v) { this.uploadTtlMinutes = v; }
+    public int getMaxOpenUploadsPerUser() { return maxOpenUploadsPerUser; }
+    public void setMaxOpenUploadsPerUser(int v) { this.maxOpenUploadsPerUser = v; }
+    public int getOrphanGraceMinutes() { return orphanGraceMinutes; }
+    public void setOrphanGraceMinutes(int v) { this.orphanGraceMinutes = v; }
+}
@@ -0,0 +1,59 @@
+package gh.edu.techbridge.wms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds tucwms.automation.* — the automation execution pipeline (FR-AUTO). Rule runs are
+ * queued after the task change commits and executed on {@code workerThreads} threads, one at
+ * a time per task; at most {@code queueCapacity} runs wait at once (beyond that new events are
+ * dropped and logged as FAILED). A run that hits an optimistic-lock conflict is retried up to
+ * {@code maxAttempts} times. {@code synchronous=true} runs each event on the committing
+ * thread instead — deterministic, for tests and local debugging.
+ *
+ * Run history is buffered and batch-inserted every {@code historyFlushMs} (or as soon as
+ * {@code historyBatchSize} rows are waiting); while flushes fail, at most
+ * {@code historyBufferMax} rows are held and the oldest are dropped. SKIPPED evaluations are not stored per event but
+ * counted per rule per hour. Detail rows older than {@code historyRetentionDays} and hourly
+ * skip counters older than {@code skipStatsRetentionDays} are pruned nightly, in chunks of
+ * {@code pruneChunkSize} rows.
+ *
+ * Due-date rules (DUE_DATE_APPROACHING, OVERDUE) fire at {@code timeTriggerHour} o'clock,
+ * server time, on the day they fall due.
+ */
+@ConfigurationProperties(prefix = "tucwms.automation")
+public class AutomationProperties {
+    private boolean synchronous = false;
+    private int workerThreads = 4;
+    private int queueCapacity = 10_000;
+    private int maxAttempts = 3;
+    private int historyBatchSize = 200;
+    private long historyFlushMs = 2000;
+    private int historyBufferMax = 50_000;
+    private int historyRetentionDays = 90;
+    private int skipStatsRetentionDays = 365;
+    private int pruneChunkSize = 1000;
+    private int timeTriggerHour = 8;
+
+    public boolean isSynchronous() { return synchronous; }
+    public void setSynchronous(boolean v) { this.synchronous = v; }
+    public int getWorkerThreads() { return workerThreads; }
+    public void setWorkerThreads(int v) { this.workerThreads = v; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int v) { this.queueCapacity = v; }
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(int v) { this.maxAttempts = v; }
+    public int getHistoryBatchSize() { return historyBatchSize; }
+    public void setHistoryBatchSize(int v) { this.historyBatchSize = v; }
+    public long getHistoryFlushMs() { return historyFlushMs; }
+    public void setHistoryFlushMs(long v) { this.historyFlushMs = v; }
+    public int getHistoryBufferMax() { return historyBufferMax; }
+    public void setHistoryBufferMax(int v) { this.historyBufferMax = v; }
+    public int getHistoryRetentionDays() { return historyRetentionDays; }
+    public void setHistoryRetentionDays(int v) { this.historyRetentionDays = v; }
+    public int getSkipStatsRetentionDays() { return skipStatsRetentionDays; }
+    public void setSkipStatsRetentionDays(int v) { this.skipStatsRetentionDays = v; }
+    public int getPruneChunkSize() { return pruneChunkSize; }
+    public void setPruneChunkSize(int v) { this.pruneChunkSize = v; }
+    public int getTimeTriggerHour() { return timeTriggerHour; }
+    public void setTimeTriggerHour(int v) { this.timeTriggerHour = v; }
+}
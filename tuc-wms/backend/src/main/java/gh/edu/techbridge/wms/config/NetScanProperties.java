@@ -0,0 +1,102 @@
+package gh.edu.techbridge.wms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds tucwms.netscan.* — subnet discovery. A sweep probes every host address of
+ * {@code scanRanges} (IPv4 CIDRs; a manual scan may only target a range inside one of them)
+ * from virtual threads, at most {@code maxConcurrentHosts} hosts at a time and at most
+ * {@code probesPerSecond} probes overall. A host is up if it answers an ICMP echo
+ * ({@code icmpProbe}) or a TCP connect to one of {@code probePorts} — accepted or refused —
+ * within {@code hostTimeoutMs}, the budget shared by all its probes. ICMP echoes are blocking
+ * native calls, so they run on a pool of {@code icmpThreads} platform threads. MAC addresses come from
+ * the kernel ARP table at {@code arpPath} (a plain file, so a fake one can stand in for tests)
+ * and devices are upserted by MAC, {@code upsertBatchSize} per JDBC batch. A sweep larger than
+ * {@code maxHostsPerScan} addresses is refused. {@code scanCron} = "-" disables scheduled sweeps.
+ *
+ * Bandwidth: every {@code bwSampleMs} the collector reads the interface counters at
+ * {@code procNetDevPath} (/proc/net/dev format) and stores one sample per interface with the
+ * bytes moved since the previous read. {@code bwDevices} maps kernel device names to NsInterface
+ * names (whose capacity gives the utilisation); empty = devices whose kernel name is itself an
+ * NsInterface name. Devices that match no NsInterface are not sampled (logged once each).
+ * {@code bwCollectorEnabled=false} turns the collector off.
+ *
+ * Samples are also rolled up into 1-minute, 5-minute and 1-hour buckets as they arrive. Each
+ * tier has its own retention (raw samples {@code bwRawRetentionHours}, then
+ * {@code bwMinuteRetentionHours}, {@code bwFiveMinuteRetentionDays}, {@code bwHourRetentionDays}),
+ * enforced on {@code bwPruneCron} in chunks of {@code bwPruneChunkSize} rows per transaction.
+ * History queries read the finest tier that covers the range in at most
+ * {@code bwHistoryMaxPoints} points per interface.
+ */
+@ConfigurationProperties(prefix = "tucwms.netscan")
+public class NetScanProperties {
+    private List<String> scanRanges = new ArrayList<>(List.of("192.168.1.0/24"));
+    private List<Integer> probePorts = new ArrayList<>(List.of(80, 443, 22, 445, 3389, 8080));
+    private boolean icmpProbe = true;
+    private int icmpThreads = 16;
+    private int hostTimeoutMs = 1500;
+    private int probesPerSecond = 500;
+    private int maxConcurrentHosts = 256;
+    private int maxHostsPerScan = 4096;
+    private String arpPath = "/proc/net/arp";
+    private int upsertBatchSize = 200;
+    private String scanCron = "-";
+    private boolean bwCollectorEnabled = true;
+    private long bwSampleMs = 30_000;
+    private String procNetDevPath = "/proc/net/dev";
+    private Map<String, String> bwDevices = new LinkedHashMap<>();
+    private int bwRawRetentionHours = 24;
+    private int bwMinuteRetentionHours = 72;
+    private int bwFiveMinuteRetentionDays = 14;
+    private int bwHourRetentionDays = 400;
+    private int bwPruneChunkSize = 1000;
+    private int bwHistoryMaxPoints = 300;
+
+    public List<String> getScanRanges() { return scanRanges; }
+    public void setScanRanges(List<String> v) { this.scanRanges = v; }
+    public List<Integer> getProbePorts() { return probePorts; }
+    public void setProbePorts(List<Integer> v) { this.probePorts = v; }
+    public boolean isIcmpProbe() { return icmpProbe; }
+    public void setIcmpProbe(boolean v) { this.icmpProbe = v; }
+    public int getIcmpThreads() { return icmpThreads; }
+    public void setIcmpThreads(int v) { this.icmpThreads = v; }
+    public int getHostTimeoutMs() { return hostTimeoutMs; }
+    public void setHostTimeoutMs(int v) { this.hostTimeoutMs = v; }
+    public int getProbesPerSecond() { return probesPerSecond; }
+    public void setProbesPerSecond(int v) { this.probesPerSecond = v; }
+    public int getMaxConcurrentHosts() { return maxConcurrentHosts; }
+    public void setMaxConcurrentHosts(int v) { this.maxConcurrentHosts = v; }
+    public int getMaxHostsPerScan() { return maxHostsPerScan; }
+    public void setMaxHostsPerScan(int v) { this.maxHostsPerScan = v; }
+    public String getArpPath() { return arpPath; }
+    public void setArpPath(String v) { this.arpPath = v; }
+    public int getUpsertBatchSize() { return upsertBatchSize; }
+    public void setUpsertBatchSize(int v) { this.upsertBatchSize = v; }
+    public String getScanCron() { return scanCron; }
+    public void setScanCron(String v) { this.scanCron = v; }
+    public boolean isBwCollectorEnabled() { return bwCollectorEnabled; }
+    public void setBwCollectorEnabled(boolean v) { this.bwCollectorEnabled = v; }
+    public long getBwSampleMs() { return bwSampleMs; }
+    public void setBwSampleMs(long v) { this.bwSampleMs = v; }
+    public String getProcNetDevPath() { return procNetDevPath; }
+    public void setProcNetDevPath(String v) { this.procNetDevPath = v; }
+    public Map<String, String> getBwDevices() { return bwDevices; }
+    public void setBwDevices(Map<String, String> v) { this.bwDevices = v; }
+    public int getBwRawRetentionHours() { return bwRawRetentionHours; }
+    public void setBwRawRetentionHours(int v) { this.bwRawRetentionHours = v; }
+    public int getBwMinuteRetentionHours() { return bwMinuteRetentionHours; }
+    public void setBwMinuteRetentionHours(int v) { this.bwMinuteRetentionHours = v; }
+    public int getBwFiveMinuteRetentionDays() { return bwFiveMinuteRetentionDays; }
+    public void setBwFiveMinuteRetentionDays(int v) { this.bwFiveMinuteRetentionDays = v; }
+    public int getBwHourRetentionDays() { return bwHourRetentionDays; }
+    public void setBwHourRetentionDays(int v) { this.bwHourRetentionDays = v; }
+    public int getBwPruneChunkSize() { return bwPruneChunkSize; }
+    public void setBwPruneChunkSize(int v) { this.bwPruneChunkSize = v; }
+    public int getBwHistoryMaxPoints() { return bwHistoryMaxPoints; }
+    public void setBwHistoryMaxPoints(int v) { this.bwHistoryMaxPoints = v; }
+}
@@ -0,0 +1,26 @@
+package gh.edu.techbridge.wms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds tucwms.notify.* — notification coalescing. Assignment events for one recipient
+ * are held for {@code digestWindowSeconds} and then sent as ONE in-app notification + ONE
+ * email (a bulk assign of 200 tasks is one message, not 200). 0 = no coalescing window
+ * beyond the next flush tick. The daily due-soon/overdue digest runs on {@code dueDigestCron}.
+ */
+@ConfigurationProperties(prefix = "tucwms.notify")
+public class NotifyProperties {
+    private int digestWindowSeconds = 60;
+    private String dueDigestCron = "0 0 7 * * *";          // 07:00 daily, server time
+    private int dueSoonDays = 2;                            // due today .. today+N counts as "due soon"
+    private int overdueLookbackDays = 14;                   // older overdue tasks stop being nagged about
+
+    public int getDigestWindowSeconds() { return digestWindowSeconds; }
+    public void setDigestWindowSeconds(int v) { this.digestWindowSeconds = v; }
+    public String getDueDigestCron() { return dueDigestCron; }
+    public void setDueDigestCron(String v) { this.dueDigestCron = v; }
+    public int getDueSoonDays() { return dueSoonDays; }
+    public void setDueSoonDays(int v) { this.dueSoonDays = v; }
+    public int getOverdueLookbackDays() { return overdueLookbackDays; }
+    public void setOverdueLookbackDays(int v) { this.overdueLookbackDays = v; }
+}
@@ -0,0 +1,31 @@
+package gh.edu.techbridge.wms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Binds tucwms.task-transfer.* — bulk task export (CSV/XLSX) and CSV import. Export rows are
+ * read through a forward-only JDBC cursor with {@code exportFetchSize} rows per network round
+ * trip, and labelled (assignee names, tags) {@code exportChunkSize} tasks at a time, so memory
+ * stays bounded by those two numbers whatever the project size. Import validates the whole
+ * file first, then inserts {@code importBatchSize} tasks per JDBC batch.
+ */
+@ConfigurationProperties(prefix = "tucwms.task-transfer")
+public class TaskTransferProperties {
+    private int exportFetchSize = 500;
+    private int exportChunkSize = 500;
+    private int importMaxRows = 10_000;
+    private int importBatchSize = 500;
+    /** Row errors listed in an import report; further errors are only counted. */
+    private int importMaxErrors = 500;
+
+    public int getExportFetchSize() { return exportFetchSize; }
+    public void setExportFetchSize(int v) { this.exportFetchSize = v; }
+    public int getExportChunkSize() { return exportChunkSize; }
+    public void setExportChunkSize(int v) { this.exportChunkSize = v; }
+    public int getImportMaxRows() { return importMaxRows; }
+    public void setImportMaxRows(int v) { this.importMaxRows = v; }
+    public int getImportBatchSize() { return importBatchSize; }
+    public void setImportBatchSize(int v) { this.importBatchSize = v; }
+    public int getImportMaxErrors() { return importMaxErrors; }
+    public void setImportMaxErrors(int v) { this.importMaxErrors = v; }
+}
@@ -0,0 +1,65 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/** Gemini proxy operations for SystemAdmins (SecurityConfig locks /api/admin/** to ROLE_SYSTEM_ADMIN). */
+@RestController
+@RequestMapping("/api/admin/gemini")
+public class GeminiAdminController {
+
+    private final GeminiResponseCache cache;
+    private final GeminiSingleFlight flights;
+    private final GeminiAdmission admission;
+    private final GeminiUsageMeter usage;
+
+    public GeminiAdminController(GeminiResponseCache cache, GeminiSingleFlight flights, GeminiAdmission admission,
+                                 GeminiUsageMeter usage) {
+        this.cache = cache;
+        this.flights = flights;
+        this.admission = admission;
+        this.usage = usage;
+    }
+
+    public record UsageReport(int hours, List<GeminiUsageRepository.Totals> totals,
+                              Map<String, GeminiUsageMeter.ModelLatency> latency) { }
+
+    /** Response cache hit rate, bytes saved and current size (memory + spill dir). */
+    @GetMapping("/cache")
+    public GeminiResponseCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /** Drop every cached response, e.g. after a model update upstream. */
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCache() {
+        cache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    /** Single-flight coalescing: calls in flight, calls started, requests that joined one, calls abandoned. */
+    @GetMapping("/flights")
+    public GeminiSingleFlight.Stats flightStats() {
+        return flights.stats();
+    }
+
+    /** Admission control: breaker state, bulkhead slots in use, tracked callers and rejection counts. */
+    @GetMapping("/admission")
+    public GeminiAdmission.Stats admissionStats() {
+        return admission.stats();
+    }
+
+    /**
+     * Who is using the quota: requests, errors, tokens and bytes per caller and model over the
+     * last {@code hours} hours (heaviest first), plus upstream latency / TTFB percentiles per
+     * model since startup.
+     */
+    @GetMapping("/usage")
+    public UsageReport usage(@RequestParam(defaultValue = "24") int hours) {
+        int capped = Math.min(Math.max(hours, 1), 24 * 90);
+        return new UsageReport(capped, usage.totals(capped), usage.latency());
+    }
+}
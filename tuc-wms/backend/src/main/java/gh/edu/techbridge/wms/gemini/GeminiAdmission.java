@@ -0,0 +1,152 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the Gemini endpoints, checked before any upstream work:
+ * <ol>
+ *   <li>the circuit breaker — upstream known to be down → 503;</li>
+ *   <li>a token bucket per caller (JWT subject, or the shared service proxy key, which gets
+ *       its own larger budget since it fronts a whole fleet app) → 429;</li>
+ *   <li>a concurrency bulkhead per endpoint type, so slow {@code predict} calls cannot take
+ *       every request thread from {@code generate} and {@code stream} → 503.</li>
+ * </ol>
+ * A rejection carries the seconds after which a retry can succeed, for {@code Retry-After}.
+ * An admitted call holds a {@link Permit} (a bulkhead slot) until it is closed. Buckets are
+ * in memory (single instance); idle full ones are dropped periodically.
+ */
+@Component
+public class GeminiAdmission {
+
+    public enum Endpoint { GENERATE, STREAM, PREDICT }
+
+    /** Why a call was turned away; {@code status} is 429 or 503. */
+    public static final class Rejected extends RuntimeException {
+        public final int status;
+        public final long retryAfterSeconds;
+
+        Rejected(int status, long retryAfterMs, String message) {
+            super(message, null, false, false);
+            this.status = status;
+            this.retryAfterSeconds = Math.max(1, (retryAfterMs + 999) / 1000);
+        }
+    }
+
+    /** A held bulkhead slot; closing it more than once is harmless. */
+    public static final class Permit implements AutoCloseable {
+        private final Semaphore slots;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        private Permit(Semaphore slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void close() {
+            if (open.compareAndSet(true, false)) slots.release();
+        }
+    }
+
+    public record Stats(GeminiCircuitBreaker.State breaker, Map<Endpoint, Integer> inUse, int callers,
+                        long rateLimited, long bulkheadFull, long breakerOpen) { }
+
+    private final GeminiProperties props;
+    private final GeminiCircuitBreaker breaker;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Endpoint, Semaphore> bulkheads = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Integer> limits = new EnumMap<>(Endpoint.class);
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong bulkheadFull = new AtomicLong();
+    private final AtomicLong breakerOpen = new AtomicLong();
+
+    public GeminiAdmission(GeminiProperties props, GeminiCircuitBreaker breaker) {
+        this.props = props;
+        this.breaker = breaker;
+        limits.put(Endpoint.GENERATE, props.getBulkheadGenerate());
+        limits.put(Endpoint.STREAM, props.getBulkheadStream());
+        limits.put(Endpoint.PREDICT, props.getBulkheadPredict());
+        limits.forEach((ep, n) -> bulkheads.put(ep, new Semaphore(Math.max(1, n))));
+    }
+
+    /**
+     * Admit one call from {@code caller} ("user:&lt;subject&gt;" or "proxy") to {@code endpoint},
+     * or throw {@link Rejected}. The returned permit must be closed when the call ends.
+     */
+    public Permit admit(String caller, Endpoint endpoint) {
+        long closedIn = breaker.retryAfter();
+        if (closedIn > 0) {
+            breakerOpen.incrementAndGet();
+            throw new Rejected(503, closedIn, "Gemini upstream is unavailable; retry later.");
+        }
+        boolean proxy = "proxy".equals(caller);
+        TokenBucket bucket = buckets.computeIfAbsent(caller, k -> proxy
+                ? new TokenBucket(props.getProxyRateLimitBurst(), props.getProxyRateLimitPerMinute())
+                : new TokenBucket(props.getRateLimitBurst(), props.getRateLimitPerMinute()));
+        long wait = bucket.tryTake();
+        if (wait > 0) {
+            rateLimited.incrementAndGet();
+            throw new Rejected(429, wait, "Rate limit exceeded for Gemini requests; retry later.");
+        }
+        Semaphore slots = bulkheads.get(endpoint);
+        if (!slots.tryAcquire()) {
+            bulkheadFull.incrementAndGet();
+            throw new Rejected(503, 1000, "Gemini proxy is at capacity; retry shortly.");
+        }
+        return new Permit(slots);
+    }
+
+    public Stats stats() {
+        Map<Endpoint, Integer> inUse = new EnumMap<>(Endpoint.class);
+        bulkheads.forEach((ep, s) -> inUse.put(ep, Math.max(1, limits.get(ep)) - s.availablePermits()));
+        return new Stats(breaker.state(), inUse, buckets.size(), rateLimited.get(), bulkheadFull.get(), breakerOpen.get());
+    }
+
+    /** Forget callers whose bucket has refilled completely — they are indistinguishable from new ones. */
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void evictIdle() {
+        buckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    /** Classic token bucket: {@code capacity} burst, refilled continuously at {@code perMinute}. */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double perNano;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(int capacity, int perMinute) {
+            this.capacity = Math.max(1, capacity);
+            this.perNano = Math.max(1, perMinute) / 60e9;
+            this.tokens = this.capacity;
+        }
+
+        /** 0 when a token was taken, else milliseconds until one will be available. */
+        synchronized long tryTake() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / perNano / 1_000_000);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * perNano);
+            refilledAt = now;
+        }
+    }
+}
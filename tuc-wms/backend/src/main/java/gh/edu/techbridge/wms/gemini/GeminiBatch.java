@@ -0,0 +1,175 @@
+package gh.edu.techbridge.wms.gemini;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@code /api/gemini/batch}: a list of generateContent bodies answered with at most
+ * {@code batch-parallelism} upstream calls at a time, each bounded by
+ * {@code batch-item-timeout-seconds}. Every item goes through the normal generate path
+ * (admission, response cache, single-flight, breaker) and is admitted as it starts, so a
+ * batch spends the caller's rate budget like the same calls made one by one. Results are
+ * written as one NDJSON line per item in completion order —
+ * {@code {"index":i,"status":200,"cache":"MISS","response":{...}}} — so the batch takes about
+ * as long as its slowest items rather than the sum. No thread waits: the next item is started
+ * from the completion callback of the previous one.
+ */
+@Component
+public class GeminiBatch {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiBatch.class);
+
+    private final GeminiProperties props;
+    private final GeminiClient client;
+    private final GeminiAdmission admission;
+    private final GeminiUsageMeter meter;
+    private final ObjectMapper mapper;
+
+    public GeminiBatch(GeminiProperties props, GeminiClient client, GeminiAdmission admission,
+                       GeminiUsageMeter meter, ObjectMapper mapper) {
+        this.props = props;
+        this.client = client;
+        this.admission = admission;
+        this.meter = meter;
+        this.mapper = mapper;
+    }
+
+    /** How long a batch of {@code items} may take at most, for the response timeout. */
+    long maxDurationMs(int items) {
+        int waves = (items + parallelism() - 1) / parallelism();
+        return (waves * props.getBatchItemTimeoutSeconds() + 30) * 1000;
+    }
+
+    /**
+     * Start answering {@code items} (raw generateContent bodies) for {@code caller}, writing
+     * result lines to {@code sink} and closing it after the last one.
+     */
+    Run start(String caller, String model, List<String> items, boolean cacheOptIn, GeminiRelay.Sink sink) {
+        Run run = new Run(caller, model, items, cacheOptIn, sink);
+        run.start();
+        return run;
+    }
+
+    private int parallelism() {
+        return Math.max(1, props.getBatchParallelism());
+    }
+
+    /** One batch in progress. */
+    final class Run {
+        private final String caller;
+        private final String model;
+        private final List<String> items;
+        private final boolean cacheOptIn;
+        private final GeminiRelay.Sink sink;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final Map<Integer, CompletableFuture<GeminiClient.Result>> inFlight = new ConcurrentHashMap<>();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Run(String caller, String model, List<String> items, boolean cacheOptIn, GeminiRelay.Sink sink) {
+            this.caller = caller;
+            this.model = model;
+            this.items = items;
+            this.cacheOptIn = cacheOptIn;
+            this.sink = sink;
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        private void start() {
+            if (items.isEmpty()) {
+                sink.close();
+                return;
+            }
+            for (int i = Math.min(parallelism(), items.size()); i > 0; i--) launch();
+        }
+
+        /** The client went away: abort the calls in flight and start no more. */
+        void cancel() {
+            if (!cancelled.compareAndSet(false, true)) return;
+            inFlight.values().forEach(call -> call.cancel(true));
+            sink.close();
+        }
+
+        private void launch() {
+            int index = next.getAndIncrement();
+            if (index >= items.size() || cancelled.get()) return;
+            GeminiAdmission.Permit permit;
+            try {
+                permit = admission.admit(caller, GeminiAdmission.Endpoint.GENERATE);
+            } catch (GeminiAdmission.Rejected r) {
+                emit(index, r.status, GeminiController.errorJson(r.getMessage()), false);
+                itemDone();
+                return;
+            }
+            long started = System.nanoTime();
+            CompletableFuture<GeminiClient.Result> call = client.generateContentAsync(model, items.get(index), cacheOptIn);
+            inFlight.put(index, call);
+            CompletableFuture.delayedExecutor(props.getBatchItemTimeoutSeconds(), TimeUnit.SECONDS)
+                    .execute(() -> { if (!call.isDone()) call.cancel(true); });
+            call.whenComplete((r, e) -> {
+                permit.close();
+                inFlight.remove(index);
+                long elapsed = System.nanoTime() - started;
+                if (r != null) meter.recordCall(caller, model, r, elapsed);
+                else meter.recordFailure(caller, model, e instanceof CancellationException ? 504 : 502, elapsed);
+                if (cancelled.get()) return;
+                if (e instanceof CancellationException) {
+                    emit(index, 504, "{\"error\":\"Gemini upstream timed out\"}", false);
+                } else if (e != null) {
+                    emit(index, 502, "{\"error\":\"Gemini upstream call failed\"}", false);
+                } else {
+                    emit(index, r.status(), r.body(), r.cached());
+                }
+                itemDone();
+            });
+            if (cancelled.get()) call.cancel(true);   // cancel() ran before the put
+        }
+
+        private void itemDone() {
+            if (remaining.decrementAndGet() == 0) {
+                if (!cancelled.get()) sink.close();
+            } else {
+                launch();
+            }
+        }
+
+        private void emit(int index, int status, String body, boolean cached) {
+            ObjectNode line = mapper.createObjectNode();
+            line.put("index", index);
+            line.put("status", status);
+            if (status < 400) line.put("cache", cached ? "HIT" : "MISS");
+            line.set("response", parseOrText(body));
+            try {
+                sink.write((mapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException e) {
+                log.debug("[gemini] batch client went away: {}", e.toString());
+                cancel();
+            }
+        }
+
+        private JsonNode parseOrText(String body) {
+            try {
+                JsonNode node = mapper.readTree(body);
+                if (node != null && !node.isMissingNode()) return node;
+            } catch (IOException e) {
+                // not JSON: relayed as a string
+            }
+            return mapper.getNodeFactory().textNode(body);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Circuit breaker around the Gemini upstream. {@code breaker-failure-threshold} consecutive
+ * failures (5xx, 429 quota exhaustion, or no response at all) open it for
+ * {@code breaker-open-seconds}, during which callers are turned away at once instead of each
+ * waiting out a timeout. After that one trial call is let through (half-open): success closes
+ * the breaker, failure opens it again. A call the client abandoned counts as neither.
+ * GeminiAdmission checks {@link #retryAfter} before admitting a request (so it can answer
+ * with Retry-After); GeminiClient takes the actual pass right before going upstream — a
+ * request answered from the cache never uses the half-open trial — and records the outcome.
+ */
+@Component
+public class GeminiCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final GeminiProperties props;
+
+    // Guarded by `this`.
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public GeminiCircuitBreaker(GeminiProperties props) {
+        this.props = props;
+    }
+
+    /** 0 if calls are being let through, else roughly the milliseconds until one will be. Reserves nothing. */
+    synchronized long retryAfter() {
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now < openUntil) return openUntil - now;
+        if (state == State.HALF_OPEN && trialInFlight) return 1000;
+        return 0;
+    }
+
+    /** 0 if a call may go upstream now (taking the half-open trial if due), else the milliseconds to wait. */
+    synchronized long tryPass() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case CLOSED:
+                return 0;
+            case OPEN:
+                if (now < openUntil) return openUntil - now;
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return 0;
+            default:   // HALF_OPEN: one trial at a time
+                if (trialInFlight) return 1000;
+                trialInFlight = true;
+                return 0;
+        }
+    }
+
+    /** An upstream response arrived with this HTTP status. */
+    void record(int status) {
+        if (status >= 500 || status == 429) failure();
+        else success();
+    }
+
+    synchronized void success() {
+        if (state != State.CLOSED) log.info("[gemini] upstream recovered, circuit closed");
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void failure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= props.getBreakerFailureThreshold()) {
+            if (state != State.OPEN) {
+                log.warn("[gemini] {} consecutive upstream failures, circuit open for {}s",
+                        consecutiveFailures, props.getBreakerOpenSeconds());
+            }
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + props.getBreakerOpenSeconds() * 1000;
+        }
+    }
+
+    /** The call was cancelled before it had an outcome; frees the half-open trial slot. */
+    synchronized void abandoned() {
+        trialInFlight = false;
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) return State.HALF_OPEN;
+        return state;
+    }
+}
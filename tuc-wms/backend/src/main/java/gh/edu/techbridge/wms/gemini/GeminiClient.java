@@ -1,5 +1,6 @@
 package gh.edu.techbridge.wms.gemini;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -11,6 +12,11 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
 
 /**
  * Server-side client for the Google Generative Language REST API. The Gemini API key
@@ -23,19 +29,47 @@ public class GeminiClient {
 
     private static final Logger log = LoggerFactory.getLogger(GeminiClient.class);
 
+    private static final String UNAVAILABLE = "{\"error\":\"Gemini upstream is unavailable; retry later.\"}";
+
     private final GeminiProperties props;
+    private final GeminiResponseCache cache;
+    private final GeminiRequestKeys keys;
+    private final GeminiSingleFlight flights;
+    private final GeminiCircuitBreaker breaker;
     private final HttpClient http = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10)).build();
+    // One daemon thread serves the idle timeouts of every open relay.
+    private final ScheduledExecutorService relayTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gemini-relay-timer");
+        t.setDaemon(true);
+        return t;
+    });
 
-    public GeminiClient(GeminiProperties props) {
+    public GeminiClient(GeminiProperties props, GeminiResponseCache cache, GeminiRequestKeys keys,
+                        GeminiSingleFlight flights, GeminiCircuitBreaker breaker) {
         this.props = props;
+        this.cache = cache;
+        this.keys = keys;
+        this.flights = flights;
+        this.breaker = breaker;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relayTimer.shutdownNow();
     }
 
-    /** Outcome of an upstream call: HTTP status to relay + the raw response body. */
-    public record Result(int status, String body) {}
+    /**
+     * Outcome of an upstream call: HTTP status to relay + the raw response body; {@code cached} =
+     * served by GeminiResponseCache, {@code coalesced} = another identical call's result, shared
+     * by GeminiSingleFlight (only that call's leader went upstream).
+     */
+    public record Result(int status, String body, boolean cached, boolean coalesced) {
+        public Result(int status, String body) { this(status, body, false, false); }
+        public Result(int status, String body, boolean cached) { this(status, body, cached, false); }
 
-    /** Outcome of a streaming call: status + the live upstream body stream to relay. */
-    public record Stream(int status, java.io.InputStream body) {}
+        Result asCoalesced() { return new Result(status, body, cached, true); }
+    }
 
     /**
      * Forward a generateContent request to Gemini. {@code requestJson} is the raw
@@ -44,7 +78,39 @@ public class GeminiClient {
      * verbatim so callers get Gemini's own error detail.
      */
     public Result generateContent(String model, String requestJson) {
-        return call(model, "generateContent", requestJson, Duration.ofSeconds(60));
+        return generateContent(model, requestJson, false);
+    }
+
+    /** Blocking form of {@link #generateContentAsync}. */
+    public Result generateContent(String model, String requestJson, boolean cacheOptIn) {
+        return generateContentAsync(model, requestJson, cacheOptIn).join();
+    }
+
+    /**
+     * Non-blocking generateContent. Answered from {@link GeminiResponseCache} when the request
+     * is deterministic (temperature 0) or {@code cacheOptIn} is set and an identical request
+     * succeeded within the TTL; otherwise an identical request already upstream is joined
+     * ({@link GeminiSingleFlight}) rather than sent again. Cancelling the returned future
+     * detaches this caller, and aborts the upstream call once no caller is left. Never
+     * completes exceptionally for upstream failures — those are a 502 Result.
+     */
+    public CompletableFuture<Result> generateContentAsync(String model, String requestJson, boolean cacheOptIn) {
+        String chosen = (model == null || model.isBlank()) ? props.getDefaultModel() : model;
+        Object body = keys.parse(requestJson);
+        String key = body == null ? null : keys.hash("generateContent", chosen, body);
+        boolean cacheable = cache.cacheable("generateContent", body, cacheOptIn);
+        if (cacheable) {
+            String hit = cache.get(key);
+            if (hit != null) return CompletableFuture.completedFuture(new Result(200, hit, true));
+        }
+        Supplier<CompletableFuture<Result>> upstream = () -> {
+            CompletableFuture<Result> call = callAsync(chosen, "generateContent", requestJson, Duration.ofSeconds(60));
+            if (cacheable) {
+                call.thenAccept(r -> { if (r.status() == 200) cache.put(key, r.body()); });
+            }
+            return call;
+        };
+        return key != null && props.isSingleFlightEnabled() ? flights.join(key, upstream) : upstream.get();
     }
 
     /**
@@ -53,65 +119,125 @@ public class GeminiClient {
      * ({@code {"instances":[...],"parameters":{...}}}) supplied by the caller; the proxy
      * adds only the model + key. Image generation is slower, so the timeout is longer.
      * The key never reaches the browser (same custody as {@link #generateContent}).
+     * Buffers the whole response — for in-process callers that inspect it; the HTTP proxy
+     * uses {@link #relayPredict}.
      */
     public Result predict(String model, String requestJson) {
         return call(model, "predict", requestJson, Duration.ofSeconds(120));
     }
 
     /**
-     * Forward a {@code :streamGenerateContent} request to Gemini using SSE
-     * ({@code alt=sse}) and return the LIVE upstream body stream so the caller can
-     * relay each event to the browser as it arrives (progressive BridgeBot answers).
-     * Same key custody as {@link #generateContent}: the key is on the URL only and
-     * never reaches the browser. On an upstream error the body is drained and
-     * re-wrapped so the caller can still relay the detail.
+     * {@link #predict} as a passthrough: the upstream body (several MB of base64 per Imagen
+     * image) is relayed into {@code sink} chunk by chunk as it arrives and is never held whole
+     * or decoded, so concurrent image requests do not spike the heap. See {@link GeminiRelay}.
      */
-    public Stream streamGenerateContent(String model, String requestJson) {
+    public GeminiRelay relayPredict(String model, String requestJson, GeminiRelay.Sink sink) {
+        return relay(model, "predict", requestJson, sink);
+    }
+
+    /**
+     * Forward a {@code :streamGenerateContent} request to Gemini using SSE ({@code alt=sse})
+     * and relay each upstream chunk into {@code sink} as it arrives (progressive BridgeBot
+     * answers) — asynchronously, see {@link GeminiRelay}. Same key custody as
+     * {@link #generateContent}: the key is on the URL only and never reaches the browser.
+     * The returned relay reports the upstream status once headers arrive; an upstream error
+     * body is relayed whole, so the caller still gets Gemini's detail.
+     */
+    public GeminiRelay relayStream(String model, String requestJson, GeminiRelay.Sink sink) {
+        return relay(model, "streamGenerateContent?alt=sse", requestJson, sink);
+    }
+
+    private GeminiRelay relay(String model, String method, String requestJson, GeminiRelay.Sink sink) {
         String chosen = (model == null || model.isBlank()) ? props.getDefaultModel() : model;
-        String url = props.getBaseUrl()
-                + "/v1beta/models/" + URLEncoder.encode(chosen, StandardCharsets.UTF_8)
-                + ":streamGenerateContent?alt=sse&key=" + URLEncoder.encode(props.getApiKey(), StandardCharsets.UTF_8);
-        try {
-            HttpRequest req = HttpRequest.newBuilder(URI.create(url))
-                    .timeout(Duration.ofSeconds(120))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestJson, StandardCharsets.UTF_8))
-                    .build();
-            HttpResponse<java.io.InputStream> res = http.send(req, HttpResponse.BodyHandlers.ofInputStream());
+        String target = chosen + ":" + method.replace("?alt=sse", "");
+        GeminiRelay relay = new GeminiRelay(sink, relayTimer,
+                Duration.ofSeconds(props.getStreamIdleTimeoutSeconds()), target);
+        if (breaker.tryPass() > 0) {
+            relay.fail(503, UNAVAILABLE);
+            return relay;
+        }
+        // The timeout runs until response headers; the relay's idle timeout covers the body.
+        CompletableFuture<HttpResponse<Void>> exchange =
+                http.sendAsync(request(chosen, method, requestJson, Duration.ofSeconds(120)), info -> {
+                    breaker.record(info.statusCode());
+                    return relay.forStatus(info.statusCode());
+                });
+        relay.exchange(exchange);
+        exchange.whenComplete((res, e) -> {
+            if (e == null) return;
+            if (isCancellation(e)) {
+                breaker.abandoned();   // the caller left before upstream answered
+                relay.cancel();
+                return;
+            }
+            breaker.failure();
+            log.warn("[gemini] {} call failed: {}", target, e.toString());
+            relay.fail(502, "{\"error\":\"Gemini upstream call failed\"}");
+        });
+        return relay;
+    }
+
+    /**
+     * Asynchronous upstream call on the HttpClient's own threads. Upstream failures become a
+     * 502 Result; cancelling the returned future aborts the HTTP exchange.
+     */
+    private CompletableFuture<Result> callAsync(String chosen, String method, String requestJson, Duration timeout) {
+        if (breaker.tryPass() > 0) return CompletableFuture.completedFuture(new Result(503, UNAVAILABLE));
+        CompletableFuture<HttpResponse<String>> exchange =
+                http.sendAsync(request(chosen, method, requestJson, timeout), HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<Result> result = exchange.handle((res, e) -> {
+            if (isCancellation(e)) {
+                breaker.abandoned();   // the caller left; says nothing about upstream health
+                return new Result(499, "{\"error\":\"Cancelled\"}");
+            }
+            if (e != null) {
+                breaker.failure();
+                log.warn("[gemini] {} call for model {} failed: {}", method, chosen, e.toString());
+                return new Result(502, "{\"error\":\"Gemini upstream call failed\"}");
+            }
+            breaker.record(res.statusCode());
             if (res.statusCode() >= 400) {
-                String err = new String(res.body().readAllBytes(), StandardCharsets.UTF_8);
-                log.warn("[gemini] upstream {} for {}:streamGenerateContent — body: {}", res.statusCode(), chosen, err);
-                return new Stream(res.statusCode(),
-                        new java.io.ByteArrayInputStream(err.getBytes(StandardCharsets.UTF_8)));
+                log.warn("[gemini] upstream {} for {}:{} — body: {}", res.statusCode(), chosen, method, res.body());
             }
-            return new Stream(res.statusCode(), res.body());
-        } catch (Exception e) {
-            log.warn("[gemini] streamGenerateContent call for model {} failed: {}", chosen, e.toString());
-            return new Stream(502, new java.io.ByteArrayInputStream(
-                    "{\"error\":\"Gemini upstream stream failed\"}".getBytes(StandardCharsets.UTF_8)));
-        }
+            return new Result(res.statusCode(), res.body());
+        });
+        result.whenComplete((r, e) -> { if (result.isCancelled()) exchange.cancel(true); });
+        return result;
     }
 
     /** Shared upstream call for both :generateContent and :predict. */
     private Result call(String model, String method, String requestJson, Duration timeout) {
         String chosen = (model == null || model.isBlank()) ? props.getDefaultModel() : model;
-        String url = props.getBaseUrl()
-                + "/v1beta/models/" + URLEncoder.encode(chosen, StandardCharsets.UTF_8)
-                + ":" + method + "?key=" + URLEncoder.encode(props.getApiKey(), StandardCharsets.UTF_8);
+        if (breaker.tryPass() > 0) return new Result(503, UNAVAILABLE);
         try {
-            HttpRequest req = HttpRequest.newBuilder(URI.create(url))
-                    .timeout(timeout)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestJson, StandardCharsets.UTF_8))
-                    .build();
-            HttpResponse<String> res = http.send(req, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> res = http.send(request(chosen, method, requestJson, timeout),
+                    HttpResponse.BodyHandlers.ofString());
+            breaker.record(res.statusCode());
             if (res.statusCode() >= 400) {
                 log.warn("[gemini] upstream {} for {}:{} — body: {}", res.statusCode(), chosen, method, res.body());
             }
             return new Result(res.statusCode(), res.body());
         } catch (Exception e) {
+            breaker.failure();
             log.warn("[gemini] {} call for model {} failed: {}", method, chosen, e.toString());
             return new Result(502, "{\"error\":\"Gemini upstream call failed\"}");
         }
     }
+
+    private static boolean isCancellation(Throwable e) {
+        return e instanceof CancellationException || (e != null && e.getCause() instanceof CancellationException);
+    }
+
+    /** POST of {@code requestJson} to {@code models/<chosen>:<method>}, key on the URL; {@code method} may carry a query. */
+    private HttpRequest request(String chosen, String method, String requestJson, Duration timeout) {
+        String url = props.getBaseUrl()
+                + "/v1beta/models/" + URLEncoder.encode(chosen, StandardCharsets.UTF_8)
+                + ":" + method + (method.contains("?") ? "&" : "?")
+                + "key=" + URLEncoder.encode(props.getApiKey(), StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(requestJson, StandardCharsets.UTF_8))
+                .build();
+    }
 }
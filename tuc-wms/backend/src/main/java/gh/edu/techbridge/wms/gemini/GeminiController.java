@@ -1,5 +1,8 @@
 package gh.edu.techbridge.wms.gemini;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -10,11 +13,17 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Central Gemini key proxy (Phase 2 of the PM2→WMS migration). Every TUC app that
@@ -30,12 +39,26 @@ import java.util.Map;
 @RequestMapping("/api/gemini")
 public class GeminiController {
 
+    /** Longer than the 60s upstream timeout, so a slow upstream surfaces as its own 502 first. */
+    private static final long GENERATE_TIMEOUT_MS = 75_000;
+    /** Likewise for /stream and /predict, where the 120s upstream timeout runs until the response headers. */
+    private static final long RELAY_HEADERS_TIMEOUT_MS = 135_000;
+
     private final GeminiProperties props;
     private final GeminiClient client;
+    private final GeminiAdmission admission;
+    private final GeminiBatch batch;
+    private final GeminiUsageMeter meter;
+    private final ObjectMapper mapper;
 
-    public GeminiController(GeminiProperties props, GeminiClient client) {
+    public GeminiController(GeminiProperties props, GeminiClient client, GeminiAdmission admission,
+                            GeminiBatch batch, GeminiUsageMeter meter, ObjectMapper mapper) {
         this.props = props;
         this.client = client;
+        this.admission = admission;
+        this.batch = batch;
+        this.meter = meter;
+        this.mapper = mapper;
     }
 
     /**
@@ -77,23 +100,106 @@ public class GeminiController {
      */
     @PostMapping(value = "/generate", consumes = MediaType.APPLICATION_JSON_VALUE,
                  produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<String> generate(@RequestParam(required = false) String model,
+    public DeferredResult<ResponseEntity<String>> generate(@RequestParam(required = false) String model,
                                             @RequestHeader(value = "X-Gemini-Proxy-Key", required = false) String proxyKey,
+                                            @RequestHeader(value = "X-Gemini-Cache", required = false) String cacheMode,
                                             @RequestBody String requestJson) {
+        DeferredResult<ResponseEntity<String>> deferred = new DeferredResult<>(GENERATE_TIMEOUT_MS);
         if (!isAuthorised(proxyKey)) {
-            return ResponseEntity.status(401)
+            deferred.setResult(ResponseEntity.status(401)
                     .contentType(MediaType.APPLICATION_JSON)
-                    .body("{\"error\":\"Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.\"}");
+                    .body("{\"error\":\"Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.\"}"));
+            return deferred;
         }
         if (!props.isEnabled()) {
-            return ResponseEntity.status(503)
+            deferred.setResult(ResponseEntity.status(503)
                     .contentType(MediaType.APPLICATION_JSON)
-                    .body("{\"error\":\"GEMINI_API_KEY not configured on the WMS server.\"}");
+                    .body("{\"error\":\"GEMINI_API_KEY not configured on the WMS server.\"}"));
+            return deferred;
         }
-        GeminiClient.Result r = client.generateContent(model, requestJson);
-        return ResponseEntity.status(r.status())
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(r.body());
+        String caller = caller(proxyKey);
+        GeminiAdmission.Permit permit;
+        try {
+            permit = admission.admit(caller, GeminiAdmission.Endpoint.GENERATE);
+        } catch (GeminiAdmission.Rejected r) {
+            deferred.setResult(rejected(r));
+            return deferred;
+        }
+        deferred.onCompletion(permit::close);
+        long started = System.nanoTime();
+        // Async: the request thread is released while upstream works, and identical concurrent
+        // requests share one call (GeminiSingleFlight). A disconnect or timeout detaches this
+        // caller; the upstream call is aborted once no caller is left.
+        // X-Gemini-Cache: allow opts a non-zero-temperature request into the response cache.
+        CompletableFuture<GeminiClient.Result> call =
+                client.generateContentAsync(model, requestJson, "allow".equalsIgnoreCase(cacheMode));
+        call.whenComplete((r, e) -> {
+            permit.close();
+            if (r != null) meter.recordCall(caller, model, r, System.nanoTime() - started);
+            else meter.recordFailure(caller, model, e instanceof CancellationException ? 504 : 502, System.nanoTime() - started);
+            deferred.setResult(e != null
+                    ? ResponseEntity.status(502).contentType(MediaType.APPLICATION_JSON)
+                            .body("{\"error\":\"Gemini upstream call failed\"}")
+                    : ResponseEntity.status(r.status())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("X-Gemini-Cache", r.cached() ? "HIT" : "MISS")
+                            .body(r.body()));
+        });
+        deferred.onTimeout(() -> {
+            call.cancel(true);
+            deferred.setResult(ResponseEntity.status(504).contentType(MediaType.APPLICATION_JSON)
+                    .body("{\"error\":\"Gemini upstream timed out\"}"));
+        });
+        deferred.onError(t -> call.cancel(true));
+        return deferred;
+    }
+
+    /**
+     * Answer several generateContent requests in one call. Body is a JSON array of raw
+     * generateContent bodies (at most {@code batch-max-items}); ?model= and X-Gemini-Cache
+     * apply to every item. The response is NDJSON, one line per item in completion order:
+     * {@code {"index":0,"status":200,"cache":"MISS","response":{...}}} — see GeminiBatch.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> batch(@RequestParam(required = false) String model,
+                                                     @RequestHeader(value = "X-Gemini-Proxy-Key", required = false) String proxyKey,
+                                                     @RequestHeader(value = "X-Gemini-Cache", required = false) String cacheMode,
+                                                     @RequestBody String requestJson) {
+        String caller = caller(proxyKey);
+        if (caller == null) {
+            return emitterError(401, "Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.", 0);
+        }
+        if (!props.isEnabled()) {
+            return emitterError(503, "GEMINI_API_KEY not configured on the WMS server.", 0);
+        }
+        JsonNode root;
+        try {
+            root = mapper.readTree(requestJson);
+        } catch (IOException e) {
+            root = null;
+        }
+        if (root == null || !root.isArray() || root.isEmpty()) {
+            return emitterError(400, "Body must be a non-empty JSON array of generateContent requests.", 0);
+        }
+        if (root.size() > props.getBatchMaxItems()) {
+            return emitterError(400, "At most " + props.getBatchMaxItems() + " requests per batch.", 0);
+        }
+        List<String> items = new ArrayList<>(root.size());
+        for (JsonNode item : root) items.add(item.toString());
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batch.maxDurationMs(items.size()));
+        GeminiBatch.Run run = batch.start(caller, model, items, "allow".equalsIgnoreCase(cacheMode), new GeminiRelay.Sink() {
+            @Override public void write(byte[] chunk) throws IOException { emitter.send(chunk); }
+            @Override public void close() { emitter.complete(); }
+        });
+        emitter.onTimeout(run::cancel);
+        emitter.onError(t -> run.cancel());
+        emitter.onCompletion(run::cancel);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header("X-Accel-Buffering", "no")
+                .header("Cache-Control", "no-cache")
+                .body(emitter);
     }
 
     /**
@@ -102,45 +208,96 @@ public class GeminiController {
      * event so BridgeBot can render the answer progressively instead of waiting for
      * the whole reply. {@code X-Accel-Buffering: no} tells nginx not to buffer this
      * response (no nginx config change needed); the key stays server-side.
+     * Fully async: no request thread is held while waiting for upstream headers or
+     * between chunks (GeminiRelay), and a client disconnect cancels the upstream call.
      */
     @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_JSON_VALUE,
                  produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String model,
+    public DeferredResult<ResponseEntity<ResponseBodyEmitter>> stream(@RequestParam(required = false) String model,
                                                         @RequestHeader(value = "X-Gemini-Proxy-Key", required = false) String proxyKey,
                                                         @RequestBody String requestJson) {
         if (!isAuthorised(proxyKey)) {
-            return sseError(401, "Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.");
+            return immediate(emitterError(401, "Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.", 0));
         }
         if (!props.isEnabled()) {
-            return sseError(503, "GEMINI_API_KEY not configured on the WMS server.");
-        }
-        GeminiClient.Stream upstream = client.streamGenerateContent(model, requestJson);
-        StreamingResponseBody body = out -> {
-            try (InputStream in = upstream.body()) {
-                byte[] buf = new byte[8192];
-                int n;
-                while ((n = in.read(buf)) != -1) {
-                    out.write(buf, 0, n);
-                    out.flush();
-                }
-            }
-        };
-        MediaType contentType = upstream.status() >= 400 ? MediaType.APPLICATION_JSON : MediaType.TEXT_EVENT_STREAM;
-        return ResponseEntity.status(upstream.status())
-                .contentType(contentType)
+            return immediate(emitterError(503, "GEMINI_API_KEY not configured on the WMS server.", 0));
+        }
+        String caller = caller(proxyKey);
+        GeminiAdmission.Permit permit;
+        try {
+            permit = admission.admit(caller, GeminiAdmission.Endpoint.STREAM);
+        } catch (GeminiAdmission.Rejected r) {
+            return immediate(emitterError(r.status, r.getMessage(), r.retryAfterSeconds));
+        }
+        return relayed(caller, model, permit, MediaType.TEXT_EVENT_STREAM,
+                sink -> client.relayStream(model, requestJson, sink));
+    }
+
+    /**
+     * Answer with a relayed upstream body: headers go out as soon as upstream's arrive (the
+     * upstream status is relayed), the body follows chunk by chunk through an emitter. The
+     * admission permit is held until the relay ends, and the call is metered then; a client
+     * disconnect, emitter timeout or header timeout cancels the upstream call.
+     */
+    private DeferredResult<ResponseEntity<ResponseBodyEmitter>> relayed(String caller, String model,
+            GeminiAdmission.Permit permit, MediaType okType, Function<GeminiRelay.Sink, GeminiRelay> start) {
+        long started = System.nanoTime();
+        DeferredResult<ResponseEntity<ResponseBodyEmitter>> deferred = new DeferredResult<>(RELAY_HEADERS_TIMEOUT_MS);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(props.getStreamTimeoutSeconds() * 1000);
+        GeminiRelay relay = start.apply(new GeminiRelay.Sink() {
+            @Override public void write(byte[] chunk) throws IOException { emitter.send(chunk); }
+            @Override public void close() { emitter.complete(); }
+        });
+        relay.done().whenComplete((v, e) -> {
+            permit.close();
+            meter.recordRelay(caller, model, relay, System.nanoTime() - started);
+        });
+        emitter.onTimeout(relay::cancel);
+        emitter.onError(t -> relay.cancel());
+        emitter.onCompletion(relay::cancel);
+        relay.status().thenAccept(status -> deferred.setResult(ResponseEntity.status(status)
+                .contentType(status >= 400 ? MediaType.APPLICATION_JSON : okType)
                 .header("X-Accel-Buffering", "no")
                 .header("Cache-Control", "no-cache")
-                .body(body);
+                .body(emitter)));
+        deferred.onTimeout(() -> {
+            relay.cancel();
+            deferred.setResult(emitterError(504, "Gemini upstream timed out", 0));
+        });
+        deferred.onError(t -> relay.cancel());
+        return deferred;
+    }
+
+    private static <T> DeferredResult<T> immediate(T result) {
+        DeferredResult<T> deferred = new DeferredResult<>();
+        deferred.setResult(result);
+        return deferred;
     }
 
-    /** Small JSON error as a StreamingResponseBody, so the auth/config guards match the /stream return type. */
-    private ResponseEntity<StreamingResponseBody> sseError(int status, String message) {
-        String json = "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
-        StreamingResponseBody body = out -> {
-            out.write(json.getBytes(StandardCharsets.UTF_8));
-            out.flush();
-        };
-        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    /** Small JSON error as a completed emitter, so the guards match the /stream and /predict return type. */
+    private static ResponseEntity<ResponseBodyEmitter> emitterError(int status, String message, long retryAfterSeconds) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            emitter.send(errorJson(message).getBytes(StandardCharsets.UTF_8));   // held until the response starts
+        } catch (IOException ignored) {
+            // not written yet, cannot fail
+        }
+        emitter.complete();
+        ResponseEntity.BodyBuilder b = ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON);
+        if (retryAfterSeconds > 0) b.header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return b.body(emitter);
+    }
+
+    /** 429/503 from admission control, with Retry-After. */
+    private static ResponseEntity<String> rejected(GeminiAdmission.Rejected r) {
+        return ResponseEntity.status(r.status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(r.retryAfterSeconds))
+                .body(errorJson(r.getMessage()));
+    }
+
+    static String errorJson(String message) {
+        return "{\"error\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
     }
 
     /**
@@ -148,33 +305,42 @@ public class GeminiController {
      * (imagen-4.0-*), which are not served by {@code :generateContent}. Body is the raw
      * predict request JSON ({@code instances}/{@code parameters}); ?model= selects the
      * Imagen model. Same auth + verbatim relay as {@link #generate}; the key stays server-side.
+     * The response body is passed through as it arrives rather than buffered (see {@link #relayed}).
      */
     @PostMapping(value = "/predict", consumes = MediaType.APPLICATION_JSON_VALUE,
                  produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<String> predict(@RequestParam(required = false) String model,
+    public DeferredResult<ResponseEntity<ResponseBodyEmitter>> predict(@RequestParam(required = false) String model,
                                           @RequestHeader(value = "X-Gemini-Proxy-Key", required = false) String proxyKey,
                                           @RequestBody String requestJson) {
         if (!isAuthorised(proxyKey)) {
-            return ResponseEntity.status(401)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body("{\"error\":\"Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.\"}");
+            return immediate(emitterError(401, "Unauthorised: present a WMS bearer token or a valid X-Gemini-Proxy-Key.", 0));
         }
         if (!props.isEnabled()) {
-            return ResponseEntity.status(503)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body("{\"error\":\"GEMINI_API_KEY not configured on the WMS server.\"}");
+            return immediate(emitterError(503, "GEMINI_API_KEY not configured on the WMS server.", 0));
         }
-        GeminiClient.Result r = client.predict(model, requestJson);
-        return ResponseEntity.status(r.status())
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(r.body());
+        String caller = caller(proxyKey);
+        GeminiAdmission.Permit permit;
+        try {
+            permit = admission.admit(caller, GeminiAdmission.Endpoint.PREDICT);
+        } catch (GeminiAdmission.Rejected r) {
+            return immediate(emitterError(r.status, r.getMessage(), r.retryAfterSeconds));
+        }
+        // Passthrough: Imagen bodies are megabytes of base64 the proxy never needs to look at.
+        return relayed(caller, model, permit, MediaType.APPLICATION_JSON,
+                sink -> client.relayPredict(model, requestJson, sink));
     }
 
     /** Accept either an authenticated WMS user (JWT) or a valid service proxy key. */
     private boolean isAuthorised(String presentedProxyKey) {
-        if (props.matchesProxyKey(presentedProxyKey)) return true;
+        return caller(presentedProxyKey) != null;
+    }
+
+    /** Rate-limit identity: "proxy" for the service key, "user:&lt;JWT subject&gt;" for a WMS user, null if neither. */
+    private String caller(String presentedProxyKey) {
+        if (props.matchesProxyKey(presentedProxyKey)) return "proxy";
         var auth = SecurityContextHolder.getContext().getAuthentication();
-        return auth != null && auth.isAuthenticated()
+        boolean user = auth != null && auth.isAuthenticated()
                 && !"anonymousUser".equals(String.valueOf(auth.getPrincipal()));
+        return user ? "user:" + auth.getName() : null;
     }
 }
@@ -28,6 +28,54 @@ public class GeminiProperties {
     /** Base URL of the Generative Language REST API. */
     private String baseUrl = "https://generativelanguage.googleapis.com";
 
+    /**
+     * Response cache for deterministic generateContent calls (temperature 0) and requests
+     * that opt in with {@code X-Gemini-Cache: allow}. Entries live {@code cacheTtlSeconds};
+     * memory is bounded by entry count and total bytes, and LRU victims spill to
+     * {@code cacheDir} (blank = no spill) up to {@code cacheDiskMaxBytes}.
+     */
+    private boolean cacheEnabled = true;
+    private long cacheTtlSeconds = 3600;
+    private int cacheMaxEntries = 1000;
+    private long cacheMaxBytes = 32L * 1024 * 1024;
+    private int cacheMaxEntryBytes = 1024 * 1024;
+    private String cacheDir = "";
+    private long cacheDiskMaxBytes = 256L * 1024 * 1024;
+
+    /** Identical generateContent requests already upstream are joined instead of sent again. */
+    private boolean singleFlightEnabled = true;
+
+    /**
+     * Admission control (GeminiAdmission): a token bucket per WMS user and a larger one for
+     * the shared proxy key, a concurrency limit per endpoint type, and a circuit breaker that
+     * opens after {@code breakerFailureThreshold} consecutive upstream failures.
+     */
+    private int rateLimitPerMinute = 30;
+    private int rateLimitBurst = 10;
+    private int proxyRateLimitPerMinute = 600;
+    private int proxyRateLimitBurst = 100;
+    private int bulkheadGenerate = 32;
+    private int bulkheadStream = 64;
+    private int bulkheadPredict = 8;
+    private int breakerFailureThreshold = 5;
+    private long breakerOpenSeconds = 30;
+
+    /**
+     * /stream relay: closed when upstream sends nothing for {@code streamIdleTimeoutSeconds}
+     * (thinking models can pause a while between chunks), and after {@code streamTimeoutSeconds}
+     * in total.
+     */
+    private long streamIdleTimeoutSeconds = 60;
+    private long streamTimeoutSeconds = 600;
+
+    /** /batch: at most {@code batchMaxItems} requests, {@code batchParallelism} upstream at once, each bounded. */
+    private int batchMaxItems = 20;
+    private int batchParallelism = 4;
+    private long batchItemTimeoutSeconds = 75;
+
+    /** Hourly usage rows (GeminiUsageMeter) older than this are pruned nightly. */
+    private int usageRetentionDays = 90;
+
     public String getApiKey() { return apiKey; }
     public void setApiKey(String v) { this.apiKey = v; }
 
@@ -51,5 +99,57 @@ public class GeminiProperties {
     public String getBaseUrl() { return baseUrl; }
     public void setBaseUrl(String v) { this.baseUrl = v; }
 
+    public boolean isCacheEnabled() { return cacheEnabled; }
+    public void setCacheEnabled(boolean v) { this.cacheEnabled = v; }
+    public long getCacheTtlSeconds() { return cacheTtlSeconds; }
+    public void setCacheTtlSeconds(long v) { this.cacheTtlSeconds = v; }
+    public int getCacheMaxEntries() { return cacheMaxEntries; }
+    public void setCacheMaxEntries(int v) { this.cacheMaxEntries = v; }
+    public long getCacheMaxBytes() { return cacheMaxBytes; }
+    public void setCacheMaxBytes(long v) { this.cacheMaxBytes = v; }
+    public int getCacheMaxEntryBytes() { return cacheMaxEntryBytes; }
+    public void setCacheMaxEntryBytes(int v) { this.cacheMaxEntryBytes = v; }
+    public String getCacheDir() { return cacheDir; }
+    public void setCacheDir(String v) { this.cacheDir = v; }
+    public long getCacheDiskMaxBytes() { return cacheDiskMaxBytes; }
+    public void setCacheDiskMaxBytes(long v) { this.cacheDiskMaxBytes = v; }
+
+    public boolean isSingleFlightEnabled() { return singleFlightEnabled; }
+    public void setSingleFlightEnabled(boolean v) { this.singleFlightEnabled = v; }
+
+    public int getRateLimitPerMinute() { return rateLimitPerMinute; }
+    public void setRateLimitPerMinute(int v) { this.rateLimitPerMinute = v; }
+    public int getRateLimitBurst() { return rateLimitBurst; }
+    public void setRateLimitBurst(int v) { this.rateLimitBurst = v; }
+    public int getProxyRateLimitPerMinute() { return proxyRateLimitPerMinute; }
+    public void setProxyRateLimitPerMinute(int v) { this.proxyRateLimitPerMinute = v; }
+    public int getProxyRateLimitBurst() { return proxyRateLimitBurst; }
+    public void setProxyRateLimitBurst(int v) { this.proxyRateLimitBurst = v; }
+    public int getBulkheadGenerate() { return bulkheadGenerate; }
+    public void setBulkheadGenerate(int v) { this.bulkheadGenerate = v; }
+    public int getBulkheadStream() { return bulkheadStream; }
+    public void setBulkheadStream(int v) { this.bulkheadStream = v; }
+    public int getBulkheadPredict() { return bulkheadPredict; }
+    public void setBulkheadPredict(int v) { this.bulkheadPredict = v; }
+    public int getBreakerFailureThreshold() { return breakerFailureThreshold; }
+    public void setBreakerFailureThreshold(int v) { this.breakerFailureThreshold = v; }
+    public long getBreakerOpenSeconds() { return breakerOpenSeconds; }
+    public void setBreakerOpenSeconds(long v) { this.breakerOpenSeconds = v; }
+
+    public long getStreamIdleTimeoutSeconds() { return streamIdleTimeoutSeconds; }
+    public void setStreamIdleTimeoutSeconds(long v) { this.streamIdleTimeoutSeconds = v; }
+    public long getStreamTimeoutSeconds() { return streamTimeoutSeconds; }
+    public void setStreamTimeoutSeconds(long v) { this.streamTimeoutSeconds = v; }
+
+    public int getBatchMaxItems() { return batchMaxItems; }
+    public void setBatchMaxItems(int v) { this.batchMaxItems = v; }
+    public int getBatchParallelism() { return batchParallelism; }
+    public void setBatchParallelism(int v) { this.batchParallelism = v; }
+    public long getBatchItemTimeoutSeconds() { return batchItemTimeoutSeconds; }
+    public void setBatchItemTimeoutSeconds(long v) { this.batchItemTimeoutSeconds = v; }
+
+    public int getUsageRetentionDays() { return usageRetentionDays; }
+    public void setUsageRetentionDays(int v) { this.usageRetentionDays = v; }
+
     public boolean isEnabled() { return apiKey != null && !apiKey.isBlank(); }
 }
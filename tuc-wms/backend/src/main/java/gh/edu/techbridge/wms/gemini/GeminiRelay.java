@@ -0,0 +1,254 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Relays one Gemini response body into a {@link Sink} as the chunks arrive, as a
+ * {@code java.net.http} BodySubscriber — used for {@code :streamGenerateContent?alt=sse}
+ * events and for large {@code :predict} (Imagen base64) bodies, which pass through without
+ * ever being held whole or decoded to a String. No thread waits on the upstream body, so an
+ * open relay costs a connection, not a request thread. Backpressure: exactly one
+ * chunk is requested at a time, and the next only after the sink has taken the previous one,
+ * so a slow client stops upstream reads instead of piling bytes up in memory. The relay ends
+ * when upstream completes or fails, when the sink rejects a write (the client went away),
+ * when nothing arrives for the idle timeout, or on {@link #cancel}; every path cancels the
+ * upstream exchange and closes the sink exactly once. An upstream error status (≥ 400) is
+ * not relayed chunk by chunk: its body is collected (bounded), logged and written as one.
+ */
+public final class GeminiRelay implements HttpResponse.BodySubscriber<Void> {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiRelay.class);
+
+    private static final int MAX_ERROR_BODY = 64 * 1024;
+    /** Trailing bytes kept for metering: the last SSE event's usageMetadata fits comfortably. */
+    private static final int TAIL = 4096;
+
+    /** Where relayed bytes go. {@code write} may block on a slow client — that is the backpressure. */
+    public interface Sink {
+        void write(byte[] chunk) throws IOException;
+        void close();
+    }
+
+    private final Sink sink;
+    private final ScheduledExecutorService timer;
+    private final long idleNanos;
+    private final String target;
+    private final CompletableFuture<Integer> status = new CompletableFuture<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private volatile Flow.Subscription subscription;
+    private volatile CompletableFuture<?> exchange;
+    private volatile ScheduledFuture<?> idleCheck;
+    private final long startedAt = System.nanoTime();
+    private volatile long lastActivity = startedAt;
+    private volatile long firstByteAt;
+    private volatile long bytes;
+    // Last TAIL bytes relayed; only touched by the subscriber callbacks until done() completes.
+    private final byte[] tail = new byte[TAIL];
+    private int tailLen;
+    // Non-null once upstream answered >= 400; only touched by the (serialised) subscriber callbacks.
+    private ByteArrayOutputStream errorBody;
+
+    /** {@code target} ("model:method") is only for log lines. */
+    GeminiRelay(Sink sink, ScheduledExecutorService timer, Duration idleTimeout, String target) {
+        this.sink = sink;
+        this.timer = timer;
+        this.idleNanos = idleTimeout.toNanos();
+        this.target = target;
+    }
+
+    /** Upstream HTTP status, known once the response headers arrive (502/503 if the call never got that far). */
+    public CompletableFuture<Integer> status() {
+        return status;
+    }
+
+    /** Completes when the relay has ended, for whatever reason. */
+    public CompletableFuture<Void> done() {
+        return done;
+    }
+
+    /** Bytes written to the sink (error bodies included). */
+    public long bytesRelayed() {
+        return bytes;
+    }
+
+    /** Nanoseconds from the start of the call to the first body byte written, or -1 if none was. */
+    public long firstByteNanos() {
+        long at = firstByteAt;
+        return at == 0 ? -1 : at - startedAt;
+    }
+
+    /** The last few KB relayed, where a stream's final usageMetadata sits; read once {@link #done()} has completed. */
+    public String usageTail() {
+        return new String(tail, 0, tailLen, StandardCharsets.UTF_8);
+    }
+
+    /** Stop relaying: cancels upstream and closes the sink. Harmless after the relay has ended. */
+    public void cancel() {
+        finish();
+    }
+
+    /** The BodyHandler: upstream headers arrived with {@code code}. */
+    HttpResponse.BodySubscriber<Void> forStatus(int code) {
+        if (code >= 400) errorBody = new ByteArrayOutputStream();
+        status.complete(code);
+        return this;
+    }
+
+    /** The upstream exchange, cancelled when the relay ends before it does. */
+    void exchange(CompletableFuture<?> exchange) {
+        this.exchange = exchange;
+        if (finished.get()) exchange.cancel(true);
+    }
+
+    /** Answer with {@code json} without (further) upstream involvement: breaker open, or the call failed before headers. */
+    void fail(int code, String json) {
+        if (status.complete(code)) {
+            try {
+                written(json.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) {
+                // the client is gone as well
+            }
+        }
+        finish();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+        subscription = s;
+        if (finished.get()) {
+            s.cancel();
+            return;
+        }
+        scheduleIdleCheck(idleNanos);
+        s.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (finished.get()) return;
+        lastActivity = System.nanoTime();
+        byte[] chunk = concat(items);
+        if (errorBody != null) {
+            errorBody.write(chunk, 0, Math.min(chunk.length, MAX_ERROR_BODY - errorBody.size()));
+        } else {
+            try {
+                written(chunk);
+            } catch (IOException | RuntimeException e) {
+                log.debug("[gemini] {} client went away: {}", target, e.toString());
+                finish();
+                return;
+            }
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        if (!finished.get()) log.warn("[gemini] {} relay broke off: {}", target, t.toString());
+        finish();
+    }
+
+    @Override
+    public void onComplete() {
+        if (errorBody != null && !finished.get()) {
+            String err = errorBody.toString(StandardCharsets.UTF_8);
+            log.warn("[gemini] upstream {} for {} — body: {}", status.getNow(0), target, err);
+            try {
+                written(err.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) {
+                // the client is gone as well
+            }
+        }
+        finish();
+    }
+
+    /** The body is relayed, not collected; there is nothing to hand back, so the response completes at headers. */
+    @Override
+    public CompletionStage<Void> getBody() {
+        return CompletableFuture.completedStage(null);
+    }
+
+    private void written(byte[] chunk) throws IOException {
+        sink.write(chunk);
+        if (firstByteAt == 0) firstByteAt = System.nanoTime();
+        bytes += chunk.length;
+        if (chunk.length >= TAIL) {
+            System.arraycopy(chunk, chunk.length - TAIL, tail, 0, TAIL);
+            tailLen = TAIL;
+        } else {
+            int keep = Math.min(tailLen, TAIL - chunk.length);
+            System.arraycopy(tail, tailLen - keep, tail, 0, keep);
+            System.arraycopy(chunk, 0, tail, keep, chunk.length);
+            tailLen = keep + chunk.length;
+        }
+    }
+
+    private void scheduleIdleCheck(long delayNanos) {
+        ScheduledFuture<?> check;
+        try {
+            check = timer.schedule(this::checkIdle, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            return;   // timer shut down: the app is stopping and the connection goes with it
+        }
+        idleCheck = check;
+        if (finished.get()) check.cancel(false);
+    }
+
+    private void checkIdle() {
+        if (finished.get()) return;
+        long idle = System.nanoTime() - lastActivity;
+        if (idle < idleNanos) {
+            scheduleIdleCheck(idleNanos - idle);
+            return;
+        }
+        log.warn("[gemini] {} idle for {}s, closing", target, TimeUnit.NANOSECONDS.toSeconds(idleNanos));
+        finish();
+    }
+
+    private void finish() {
+        if (!finished.compareAndSet(false, true)) return;
+        ScheduledFuture<?> check = idleCheck;
+        if (check != null) check.cancel(false);
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+        CompletableFuture<?> call = exchange;
+        if (call != null && !call.isDone()) call.cancel(true);
+        status.complete(502);
+        try {
+            sink.close();
+        } finally {
+            done.complete(null);
+        }
+    }
+
+    private static byte[] concat(List<ByteBuffer> items) {
+        int size = 0;
+        for (ByteBuffer b : items) size += b.remaining();
+        byte[] out = new byte[size];
+        int pos = 0;
+        for (ByteBuffer b : items) {
+            int n = b.remaining();
+            b.get(out, pos, n);
+            pos += n;
+        }
+        return out;
+    }
+}
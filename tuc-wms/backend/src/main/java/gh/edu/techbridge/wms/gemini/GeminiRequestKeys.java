@@ -0,0 +1,49 @@
+package gh.edu.techbridge.wms.gemini;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Identity of a Gemini request: the SHA-256 of method, model and the canonicalised body
+ * (parsed, then re-serialised with object keys sorted and no whitespace), so the same prompt
+ * sent with different key order or formatting gets the same key. Shared by the response cache
+ * and single-flight coalescing.
+ */
+@Component
+public class GeminiRequestKeys {
+
+    private final ObjectMapper canonical;
+
+    public GeminiRequestKeys(ObjectMapper mapper) {
+        this.canonical = mapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                .configure(SerializationFeature.INDENT_OUTPUT, false);
+    }
+
+    /** The request body as plain maps/lists, or null when it is not JSON (upstream will reject it). */
+    Object parse(String requestJson) {
+        try {
+            return canonical.readValue(requestJson, Object.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Hex SHA-256 of method, model and the canonical form of an already-parsed body. */
+    String hash(String method, String model, Object body) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update((method + "\n" + model + "\n").getBytes(StandardCharsets.UTF_8));
+            sha.update(canonical.writeValueAsBytes(body));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
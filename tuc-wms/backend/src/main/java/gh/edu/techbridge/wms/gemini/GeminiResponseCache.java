@@ -0,0 +1,242 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Response cache for the Gemini proxy. Only deterministic requests are cached — a
+ * generateContent body whose generationConfig.temperature is 0 — plus any request the caller
+ * explicitly opts in ({@code X-Gemini-Cache: allow}); only 200 responses are stored. Entries
+ * are keyed by {@link GeminiRequestKeys} (SHA-256 of method, model and canonical body), so
+ * two clients sending the same prompt with different key order or formatting share one.
+ * Memory is an access-ordered LRU bounded by entry count and total bytes; entries expire
+ * after the TTL. With {@code cache-dir} set, entries pushed out of memory while still fresh
+ * spill to one file each and are promoted back on a disk hit; the directory is swept of
+ * expired files and trimmed to its byte budget periodically. Counters are plain atomics read
+ * by {@link #stats()} (no metrics library in this module).
+ */
+@Component
+public class GeminiResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiResponseCache.class);
+
+    public record Stats(boolean enabled, long hits, long diskHits, long misses, long bypassed, double hitRate,
+                        long bytesSaved, int entries, long bytes, long diskBytes) { }
+
+    private record Entry(String body, int bytes, long expiresAt) { }
+
+    private final GeminiProperties props;
+    private final Path dir;
+
+    // Guarded by `this`.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    public GeminiResponseCache(GeminiProperties props) {
+        this.props = props;
+        this.dir = props.getCacheDir() == null || props.getCacheDir().isBlank() ? null : Path.of(props.getCacheDir());
+        if (dir != null) {
+            try {
+                Files.createDirectories(dir);
+                sweep();
+            } catch (IOException e) {
+                log.warn("[gemini] cache dir {} unusable, caching in memory only: {}", dir, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Whether a response to this request may be cached: the cache is on and the request is
+     * deterministic (generateContent at temperature 0) or opted in. {@code body} is the parsed
+     * request (GeminiRequestKeys), null when it was not JSON.
+     */
+    boolean cacheable(String method, Object body, boolean optIn) {
+        if (!props.isCacheEnabled() || body == null
+                || !(optIn || ("generateContent".equals(method) && zeroTemperature(body)))) {
+            bypassed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean zeroTemperature(Object body) {
+        return body instanceof Map<?, ?> m
+                && m.get("generationConfig") instanceof Map<?, ?> config
+                && config.get("temperature") instanceof Number t
+                && t.doubleValue() == 0.0;
+    }
+
+    /** The cached body for {@code key}, or null on a miss. */
+    String get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (e.expiresAt() > now) {
+                    hits.incrementAndGet();
+                    bytesSaved.addAndGet(e.bytes());
+                    return e.body();
+                }
+                remove(key);
+            }
+        }
+        Entry spilled = readSpilled(key, now);
+        if (spilled != null) {
+            diskHits.incrementAndGet();
+            bytesSaved.addAndGet(spilled.bytes());
+            store(key, spilled);
+            return spilled.body();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** Store a successful upstream response; bodies over cache-max-entry-bytes are not kept. */
+    void put(String key, String body) {
+        int size = body.getBytes(StandardCharsets.UTF_8).length;
+        if (size > props.getCacheMaxEntryBytes()) return;
+        store(key, new Entry(body, size, System.currentTimeMillis() + props.getCacheTtlSeconds() * 1000));
+    }
+
+    private void store(String key, Entry entry) {
+        List<Map.Entry<String, Entry>> evicted = new ArrayList<>();
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.bytes();
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while ((entries.size() > props.getCacheMaxEntries() || bytes > props.getCacheMaxBytes()) && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                it.remove();
+                bytes -= eldest.getValue().bytes();
+                evicted.add(eldest);
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> e : evicted) {
+            if (e.getValue().expiresAt() > now) spill(e.getKey(), e.getValue());
+        }
+    }
+
+    /** Caller holds the lock. */
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) bytes -= old.bytes();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+        if (dir != null) {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.forEach(GeminiResponseCache::deleteQuietly);
+            } catch (IOException e) {
+                log.warn("[gemini] could not clear cache dir: {}", e.toString());
+            }
+            diskBytes.set(0);
+        }
+    }
+
+    public Stats stats() {
+        long h = hits.get() + diskHits.get();
+        long lookups = h + misses.get();
+        int n;
+        long b;
+        synchronized (this) {
+            n = entries.size();
+            b = bytes;
+        }
+        return new Stats(props.isCacheEnabled(), hits.get(), diskHits.get(), misses.get(), bypassed.get(),
+                lookups == 0 ? 0.0 : (double) h / lookups, bytesSaved.get(), n, b, diskBytes.get());
+    }
+
+    // ---- disk spill: one file per key, first line the expiry (epoch ms), then the body ----
+
+    private void spill(String key, Entry e) {
+        if (dir == null || diskBytes.get() + e.bytes() > props.getCacheDiskMaxBytes()) return;
+        Path target = dir.resolve(key + ".json");
+        Path tmp = dir.resolve(key + ".tmp");
+        try {
+            Files.writeString(tmp, e.expiresAt() + "\n" + e.body(), StandardCharsets.UTF_8);
+            long size = Files.size(tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskBytes.addAndGet(size);
+        } catch (IOException ex) {
+            deleteQuietly(tmp);
+            log.warn("[gemini] cache spill failed: {}", ex.toString());
+        }
+    }
+
+    /** A fresh spilled entry, removed from disk (it moves back to memory); null if absent or expired. */
+    private Entry readSpilled(String key, long now) {
+        if (dir == null) return null;
+        Path file = dir.resolve(key + ".json");
+        if (!Files.exists(file)) return null;
+        try {
+            long size = Files.size(file);
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            if (Files.deleteIfExists(file)) diskBytes.addAndGet(-size);
+            int nl = content.indexOf('\n');
+            long expiresAt = Long.parseLong(content.substring(0, nl));
+            if (expiresAt <= now) return null;
+            String body = content.substring(nl + 1);
+            return new Entry(body, body.getBytes(StandardCharsets.UTF_8).length, expiresAt);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /** Drop expired spill files (by modification time + TTL) and trim the oldest beyond the disk budget. */
+    @Scheduled(fixedDelay = 5 * 60 * 1000)
+    public void sweep() {
+        if (dir == null || !Files.isDirectory(dir)) return;
+        long cutoff = System.currentTimeMillis() - props.getCacheTtlSeconds() * 1000;
+        record SpillFile(Path path, long modified, long size) { }
+        List<SpillFile> live = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                if (a.lastModifiedTime().toMillis() < cutoff) deleteQuietly(p);
+                else live.add(new SpillFile(p, a.lastModifiedTime().toMillis(), a.size()));
+            }
+        } catch (IOException e) {
+            log.warn("[gemini] cache sweep failed: {}", e.toString());
+            return;
+        }
+        live.sort(Comparator.comparingLong(SpillFile::modified));
+        long total = live.stream().mapToLong(SpillFile::size).sum();
+        for (SpillFile f : live) {
+            if (total <= props.getCacheDiskMaxBytes()) break;
+            deleteQuietly(f.path());
+            total -= f.size();
+        }
+        diskBytes.set(total);
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+            // swept again next time
+        }
+    }
+}
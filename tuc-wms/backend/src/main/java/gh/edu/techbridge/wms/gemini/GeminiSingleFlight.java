@@ -0,0 +1,119 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical in-flight Gemini calls: while a request with a given key (see
+ * {@link GeminiRequestKeys}) is upstream, further requests with the same key wait on that
+ * call instead of starting their own, and all of them receive its one result — an upstream
+ * error status or an exception reaches every waiter alike; followers get it marked
+ * {@link GeminiClient.Result#coalesced()} so usage is charged to the leader only. Each waiter holds its own future;
+ * cancelling it (the client went away) only detaches that waiter, and when the last waiter
+ * has gone the upstream call itself is cancelled. A finished call leaves the map at once, so
+ * this never serves a stale answer — reuse after completion is GeminiResponseCache's job.
+ */
+@Component
+public class GeminiSingleFlight {
+
+    public record Stats(int inFlight, long leaders, long coalesced, long abandoned) { }
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+
+    /** One shared upstream call and the number of waiters still interested in it. */
+    private final class Flight {
+        final String key;
+        final CompletableFuture<GeminiClient.Result> result = new CompletableFuture<>();
+        volatile CompletableFuture<GeminiClient.Result> upstream;
+        private int waiters;       // guarded by this
+        private boolean closed;    // guarded by this: abandoned, takes no new waiters
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        synchronized boolean enter() {
+            if (closed) return false;
+            waiters++;
+            return true;
+        }
+
+        void leave() {
+            synchronized (this) {
+                if (--waiters > 0 || result.isDone()) return;
+                closed = true;
+            }
+            inFlight.remove(key, this);
+            abandoned.incrementAndGet();
+            CompletableFuture<GeminiClient.Result> call = upstream;
+            if (call != null) call.cancel(true);
+            result.cancel(false);
+        }
+    }
+
+    /**
+     * The result of {@code call} for {@code key}, shared with any identical call already in
+     * flight. {@code call} is started only when there is none; it must return a future whose
+     * cancellation aborts the upstream exchange.
+     */
+    CompletableFuture<GeminiClient.Result> join(String key, Supplier<CompletableFuture<GeminiClient.Result>> call) {
+        while (true) {
+            Flight created = new Flight(key);
+            Flight flight = inFlight.putIfAbsent(key, created);
+            boolean leader = flight == null;
+            if (leader) flight = created;
+            if (!flight.enter()) {
+                inFlight.remove(key, flight);   // abandoned between lookup and enter: start afresh
+                continue;
+            }
+            if (leader) {
+                leaders.incrementAndGet();
+                start(flight, call);
+            } else {
+                coalesced.incrementAndGet();
+            }
+            return waiter(flight, leader);
+        }
+    }
+
+    private void start(Flight flight, Supplier<CompletableFuture<GeminiClient.Result>> call) {
+        CompletableFuture<GeminiClient.Result> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        flight.upstream = upstream;
+        if (flight.result.isCancelled()) upstream.cancel(true);   // every waiter left while it was starting
+        upstream.whenComplete((r, e) -> {
+            inFlight.remove(flight.key, flight);
+            if (e != null) flight.result.completeExceptionally(e);
+            else flight.result.complete(r);
+        });
+    }
+
+    /** This waiter's own view of the shared result; cancelling it detaches only this waiter. */
+    private CompletableFuture<GeminiClient.Result> waiter(Flight flight, boolean leader) {
+        CompletableFuture<GeminiClient.Result> mine = new CompletableFuture<>();
+        flight.result.whenComplete((r, e) -> {
+            if (e != null) mine.completeExceptionally(e);
+            else mine.complete(leader ? r : r.asCoalesced());
+        });
+        mine.whenComplete((r, e) -> {
+            if (mine.isCancelled()) flight.leave();
+        });
+        return mine;
+    }
+
+    public Stats stats() {
+        return new Stats(inFlight.size(), leaders.get(), coalesced.get(), abandoned.get());
+    }
+}
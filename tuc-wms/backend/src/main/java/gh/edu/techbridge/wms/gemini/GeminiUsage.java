@@ -0,0 +1,80 @@
+package gh.edu.techbridge.wms.gemini;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Hourly Gemini usage per caller ("user:&lt;subject&gt;" or "proxy") and model, kept up to
+ * date by GeminiUsageMeter. Tokens come from the upstream {@code usageMetadata} and are only
+ * counted for responses that actually went upstream (not cache hits). {@code latencyMs} sums
+ * upstream wall time over the same responses; {@code ttfbMs}/{@code ttfbCount} cover relayed
+ * (stream/predict) responses only.
+ */
+@Entity
+@Table(name = "wms_gemini_usage",
+        uniqueConstraints = @UniqueConstraint(name = "uk_gemini_usage_hour", columnNames = {"caller", "model", "hourStart"}),
+        indexes = @Index(name = "idx_gemini_usage_hour", columnList = "hourStart"))
+public class GeminiUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 160)
+    private String caller;
+
+    @Column(nullable = false, length = 100)
+    private String model;
+
+    /** Start of the UTC hour this row counts. */
+    @Column(nullable = false)
+    private Instant hourStart;
+
+    @Column(nullable = false)
+    private long requests;
+
+    /** Responses with status >= 400 (including 502/504 from the proxy itself). */
+    @Column(nullable = false)
+    private long errors;
+
+    @Column(nullable = false)
+    private long cacheHits;
+
+    @Column(nullable = false)
+    private long promptTokens;
+
+    @Column(nullable = false)
+    private long candidateTokens;
+
+    @Column(nullable = false)
+    private long totalTokens;
+
+    @Column(nullable = false)
+    private long bytesOut;
+
+    @Column(nullable = false)
+    private long latencyMs;
+
+    @Column(nullable = false)
+    private long ttfbMs;
+
+    @Column(nullable = false)
+    private long ttfbCount;
+
+    protected GeminiUsage() { }
+
+    public Long getId() { return id; }
+    public String getCaller() { return caller; }
+    public String getModel() { return model; }
+    public Instant getHourStart() { return hourStart; }
+    public long getRequests() { return requests; }
+    public long getErrors() { return errors; }
+    public long getCacheHits() { return cacheHits; }
+    public long getPromptTokens() { return promptTokens; }
+    public long getCandidateTokens() { return candidateTokens; }
+    public long getTotalTokens() { return totalTokens; }
+    public long getBytesOut() { return bytesOut; }
+    public long getLatencyMs() { return latencyMs; }
+    public long getTtfbMs() { return ttfbMs; }
+    public long getTtfbCount() { return ttfbCount; }
+}
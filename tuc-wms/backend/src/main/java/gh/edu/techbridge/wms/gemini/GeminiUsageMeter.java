@@ -0,0 +1,272 @@
+package gh.edu.techbridge.wms.gemini;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Meters Gemini proxy traffic per caller and model: requests, errors, cache hits, prompt /
+ * candidate / total tokens from the upstream {@code usageMetadata}, bytes relayed, upstream
+ * latency and, for relayed responses, time to first byte. Cache hits and calls coalesced onto
+ * an identical in-flight call count as requests and cache hits only; tokens and latency are
+ * charged to the call that went upstream. Recording only bumps LongAdders in a
+ * map keyed by (caller, model, UTC hour) — no lock on the request path. Every usage-flush-ms
+ * the counters are drained ({@code sumThenReset}) and folded into wms_gemini_usage, one row
+ * per key, UPDATE first and a batch INSERT for the new ones (as AutomationHistoryWriter does
+ * for skip counters); rows of a failed write are kept and merged into the next flush. A model
+ * name becomes a key only once upstream has accepted it (or it is the default); anything else
+ * is metered as {@value #OTHER_MODEL}, so bogus ?model= values cannot grow the map or break
+ * the column. A past hour's counters are dropped from the map one flush after their
+ * last drain, so a request completing right at the hour boundary is still counted. Latency and
+ * TTFB percentiles per model are in-process histograms since startup (no metrics library in
+ * this module), reported by {@link #latency()}.
+ */
+@Component
+public class GeminiUsageMeter {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiUsageMeter.class);
+
+    private static final String BUMP = "UPDATE wms_gemini_usage SET requests = requests + ?, errors = errors + ?, "
+            + "cache_hits = cache_hits + ?, prompt_tokens = prompt_tokens + ?, candidate_tokens = candidate_tokens + ?, "
+            + "total_tokens = total_tokens + ?, bytes_out = bytes_out + ?, latency_ms = latency_ms + ?, "
+            + "ttfb_ms = ttfb_ms + ?, ttfb_count = ttfb_count + ? WHERE caller = ? AND model = ? AND hour_start = ?";
+    private static final String INSERT = "INSERT INTO wms_gemini_usage (caller, model, hour_start, requests, errors, "
+            + "cache_hits, prompt_tokens, candidate_tokens, total_tokens, bytes_out, latency_ms, ttfb_ms, ttfb_count) "
+            + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private static final Pattern PROMPT = Pattern.compile("\"promptTokenCount\"\\s*:\\s*(\\d+)");
+    private static final Pattern CANDIDATES = Pattern.compile("\"candidatesTokenCount\"\\s*:\\s*(\\d+)");
+    private static final Pattern TOTAL = Pattern.compile("\"totalTokenCount\"\\s*:\\s*(\\d+)");
+    private static final Pattern MODEL = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+    static final String OTHER_MODEL = "(other)";
+
+    /** Per-model latency percentiles; {@code ttfb} is empty for models only used through /generate. */
+    public record ModelLatency(LatencyHistogram.Snapshot upstream, LatencyHistogram.Snapshot ttfb) { }
+
+    private record Key(String caller, String model, Instant hourStart) { }
+
+    private static final class Counters {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder candidateTokens = new LongAdder();
+        final LongAdder totalTokens = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final LongAdder latencyMs = new LongAdder();
+        final LongAdder ttfbMs = new LongAdder();
+        final LongAdder ttfbCount = new LongAdder();
+
+        /** Drain into column sums in BUMP order, or null if nothing was recorded since the last drain. */
+        long[] drain() {
+            long[] v = {requests.sumThenReset(), errors.sumThenReset(), cacheHits.sumThenReset(),
+                    promptTokens.sumThenReset(), candidateTokens.sumThenReset(), totalTokens.sumThenReset(),
+                    bytesOut.sumThenReset(), latencyMs.sumThenReset(), ttfbMs.sumThenReset(),
+                    ttfbCount.sumThenReset()};
+            return v[0] == 0 ? null : v;
+        }
+    }
+
+    private static final class ModelHistograms {
+        final LatencyHistogram upstream = new LatencyHistogram();
+        final LatencyHistogram ttfb = new LatencyHistogram();
+    }
+
+    private final GeminiProperties props;
+    private final JdbcTemplate jdbc;
+    private final GeminiUsageRepository repo;
+    private final TransactionTemplate tx;
+
+    private final Map<Key, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<String, ModelHistograms> histograms = new ConcurrentHashMap<>();
+    private final Set<String> knownModels = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushing = new ReentrantLock();
+    // Guarded by `flushing`: past-hour counters removed from the map, drained once more next flush.
+    private List<Map.Entry<Key, Counters>> retired = new ArrayList<>();
+    // Guarded by `flushing`: drained sums whose write failed, merged into the next flush.
+    private Map<Key, long[]> unwritten = new HashMap<>();
+
+    public GeminiUsageMeter(GeminiProperties props, JdbcTemplate jdbc, GeminiUsageRepository repo,
+                            PlatformTransactionManager txManager) {
+        this.props = props;
+        this.jdbc = jdbc;
+        this.repo = repo;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * A buffered response (/generate, a /batch item): tokens are read from its body unless it was
+     * a cache hit or shared from an identical in-flight call, which was charged for them.
+     */
+    void recordCall(String caller, String model, GeminiClient.Result r, long elapsedNanos) {
+        boolean reused = r.cached() || r.coalesced();
+        record(caller, model, r.status(), reused, r.body() == null ? 0 : r.body().length(),
+                elapsedNanos, -1, reused ? null : r.body());
+    }
+
+    /** A call that ended without a response (timed out, failed in the proxy). */
+    void recordFailure(String caller, String model, int status, long elapsedNanos) {
+        record(caller, model, status, false, 0, elapsedNanos, -1, null);
+    }
+
+    /** A relayed response (/stream, /predict) once the relay has ended. */
+    void recordRelay(String caller, String model, GeminiRelay relay, long elapsedNanos) {
+        record(caller, model, relay.status().getNow(502), false, relay.bytesRelayed(), elapsedNanos,
+                relay.firstByteNanos(), relay.usageTail());
+    }
+
+    private void record(String caller, String model, int status, boolean cached, long bytes,
+                        long elapsedNanos, long ttfbNanos, CharSequence usageText) {
+        String m = meteredModel(model, status);
+        Counters c = counters.computeIfAbsent(new Key(caller, m, Instant.now().truncatedTo(ChronoUnit.HOURS)),
+                k -> new Counters());
+        c.requests.increment();
+        if (status >= 400) c.errors.increment();
+        c.bytesOut.add(bytes);
+        if (cached) {
+            c.cacheHits.increment();
+            return;
+        }
+        long ms = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        c.latencyMs.add(ms);
+        ModelHistograms h = histograms.computeIfAbsent(m, k -> new ModelHistograms());
+        h.upstream.record(ms);
+        if (ttfbNanos >= 0) {
+            long ttfb = TimeUnit.NANOSECONDS.toMillis(ttfbNanos);
+            c.ttfbMs.add(ttfb);
+            c.ttfbCount.increment();
+            h.ttfb.record(ttfb);
+        }
+        if (usageText != null) {
+            int at = lastIndexOf(usageText, "\"usageMetadata\"");
+            if (at >= 0) {
+                c.promptTokens.add(count(PROMPT, usageText, at));
+                c.candidateTokens.add(count(CANDIDATES, usageText, at));
+                c.totalTokens.add(count(TOTAL, usageText, at));
+            }
+        }
+    }
+
+    /** The model name to key counters by: the default, one upstream has accepted, or OTHER_MODEL. */
+    private String meteredModel(String model, int status) {
+        if (model == null || model.isBlank() || model.equals(props.getDefaultModel())) return props.getDefaultModel();
+        if (knownModels.contains(model)) return model;
+        if (status < 400 && MODEL.matcher(model).matches()) {
+            knownModels.add(model);
+            return model;
+        }
+        return OTHER_MODEL;
+    }
+
+    /** First match of {@code p} after {@code from} — the fields of the last usageMetadata object. */
+    private static long count(Pattern p, CharSequence text, int from) {
+        Matcher m = p.matcher(text);
+        return m.find(from) ? Long.parseLong(m.group(1)) : 0;
+    }
+
+    private static int lastIndexOf(CharSequence text, String needle) {
+        return text instanceof String s ? s.lastIndexOf(needle) : text.toString().lastIndexOf(needle);
+    }
+
+    @Scheduled(fixedDelayString = "${tucwms.gemini.usage-flush-ms:60000}")
+    public void flush() {
+        if (!flushing.tryLock()) return;
+        try {
+            Instant hour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+            Map<Key, long[]> rows = unwritten;
+            unwritten = new HashMap<>();
+            for (Map.Entry<Key, Counters> e : retired) {
+                long[] v = e.getValue().drain();
+                if (v != null) rows.merge(e.getKey(), v, GeminiUsageMeter::add);
+            }
+            List<Map.Entry<Key, Counters>> retiring = new ArrayList<>();
+            for (Map.Entry<Key, Counters> e : counters.entrySet()) {
+                long[] v = e.getValue().drain();
+                if (v != null) rows.merge(e.getKey(), v, GeminiUsageMeter::add);
+                if (e.getKey().hourStart().isBefore(hour)) retiring.add(Map.entry(e.getKey(), e.getValue()));
+            }
+            retiring.forEach(e -> counters.remove(e.getKey(), e.getValue()));
+            retired = retiring;
+            if (rows.isEmpty()) return;
+            try {
+                write(rows);
+            } catch (RuntimeException e) {
+                unwritten = rows;   // rolled back: nothing of it is in the table yet
+                throw e;
+            }
+        } catch (Exception e) {
+            log.warn("[gemini] usage flush failed: {}", e.toString());
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) a[i] += b[i];
+        return a;
+    }
+
+    private void write(Map<Key, long[]> rows) {
+        tx.executeWithoutResult(s -> {
+            List<Object[]> inserts = new ArrayList<>();
+            rows.forEach((k, v) -> {
+                Timestamp hour = Timestamp.from(k.hourStart());
+                if (jdbc.update(BUMP, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9],
+                        k.caller(), k.model(), hour) == 0) {
+                    inserts.add(new Object[] {k.caller(), k.model(), hour,
+                            v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9]});
+                }
+            });
+            if (!inserts.isEmpty()) jdbc.batchUpdate(INSERT, inserts);
+        });
+    }
+
+    /** Flushed usage per caller and model over the last {@code hours} hours (current hour included). */
+    public List<GeminiUsageRepository.Totals> totals(int hours) {
+        flush();
+        Instant from = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(hours - 1L, ChronoUnit.HOURS);
+        return repo.totalsSince(from);
+    }
+
+    /** Upstream latency and TTFB percentiles per model since startup. */
+    public Map<String, ModelLatency> latency() {
+        Map<String, ModelLatency> out = new TreeMap<>();
+        histograms.forEach((model, h) -> out.put(model, new ModelLatency(h.upstream.snapshot(), h.ttfb.snapshot())));
+        return out;
+    }
+
+    /** Nightly retention for the hourly rows. */
+    @Scheduled(cron = "${tucwms.gemini.usage-prune-cron:0 45 3 * * *}")
+    public void prune() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(props.getUsageRetentionDays()));
+        Integer n = tx.execute(s -> repo.deleteOlderThan(cutoff));
+        if (n != null && n > 0) log.info("[gemini] usage retention pruned {} hourly row(s)", n);
+    }
+}
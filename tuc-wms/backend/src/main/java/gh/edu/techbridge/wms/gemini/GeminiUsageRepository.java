@@ -0,0 +1,41 @@
+package gh.edu.techbridge.wms.gemini;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface GeminiUsageRepository extends JpaRepository<GeminiUsage, Long> {
+
+    /** Usage summed per caller and model since {@code from}, heaviest token users first. */
+    interface Totals {
+        String getCaller();
+        String getModel();
+        long getRequests();
+        long getErrors();
+        long getCacheHits();
+        long getPromptTokens();
+        long getCandidateTokens();
+        long getTotalTokens();
+        long getBytesOut();
+        long getLatencyMs();
+        long getTtfbMs();
+        long getTtfbCount();
+    }
+
+    @Query("select u.caller as caller, u.model as model, sum(u.requests) as requests, sum(u.errors) as errors, "
+            + "sum(u.cacheHits) as cacheHits, sum(u.promptTokens) as promptTokens, "
+            + "sum(u.candidateTokens) as candidateTokens, sum(u.totalTokens) as totalTokens, "
+            + "sum(u.bytesOut) as bytesOut, sum(u.latencyMs) as latencyMs, sum(u.ttfbMs) as ttfbMs, "
+            + "sum(u.ttfbCount) as ttfbCount "
+            + "from GeminiUsage u where u.hourStart >= :from group by u.caller, u.model "
+            + "order by sum(u.totalTokens) desc")
+    List<Totals> totalsSince(@Param("from") Instant from);
+
+    @Modifying
+    @Query("delete from GeminiUsage u where u.hourStart < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
@@ -152,7 +152,7 @@ public class NetScanService {
             for (IfaceSeed iface : ifaces) {
                 double pct = Math.max(0, Math.min(100, iface.basePct() + (Math.random() - 0.5) * 20));
                 long bi    = (long)(pct / 100.0 * iface.capacityMbps() * 1_000_000 / 8 * 1800);
-                bwSamples.save(new NsBwSample(iface.name(), bi, (long)(bi * 0.3), pct));
+                bwSamples.save(new NsBwSample(iface.name(), bi, (long)(bi * 0.3), pct, cursor));
             }
             cursor = cursor.plus(30, ChronoUnit.MINUTES);
         }
@@ -236,17 +236,6 @@ public class NetScanService {
     @Transactional(readOnly = true)
     public List<NsInterface> getInterfaces() { return interfaces.findAll(); }
 
-    @Transactional(readOnly = true)
-    public List<NsBwSample> getBwHistory() {
-        return bwSamples.findBySampledAtAfterOrderBySampledAtAsc(
-            Instant.now().minus(24, ChronoUnit.HOURS));
-    }
-
-    @Transactional(readOnly = true)
-    public List<NsBwSample> getBwByInterface(String name) {
-        return bwSamples.findByInterfaceNameOrderBySampledAtDesc(name);
-    }
-
     @Transactional(readOnly = true)
     public Optional<NsBwSample> getLatestBwSample(String interfaceName) {
         return bwSamples.findLatestByInterfaceName(interfaceName);
@@ -258,7 +247,12 @@ public class NetScanService {
     public List<NsAuditEntry> getAuditLog() { return auditEntries.findByOrderByCreatedAtDesc(); }
 
     public void recordScan(String subnet, String actor) {
-        audit(actor, "SCAN", subnet, "Manual scan triggered.");
+        recordScan(subnet, actor, "Manual scan triggered.");
+    }
+
+    public void recordScan(String subnet, String actor, String outcome) {
+        String target = subnet.length() > 128 ? subnet.substring(0, 125) + "..." : subnet;
+        audit(actor, "SCAN", target, outcome);
     }
 
     // ── Health snapshot ───────────────────────────────────────────────────────
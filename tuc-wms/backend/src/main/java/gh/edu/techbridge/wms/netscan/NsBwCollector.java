@@ -0,0 +1,195 @@
+package gh.edu.techbridge.wms.netscan;
+
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects NsBwSample rows from the kernel's interface counters. Every bw-sample-ms the
+ * proc-net-dev-path file (/proc/net/dev format, so a fixture file can stand in) is read and,
+ * per interface, the rx/tx bytes moved since the previous read become one sample: bytesIn /
+ * bytesOut for the interval, and utilisation from the busier direction's rate against the
+ * NsInterface capacity. All samples of a tick go into ns_bw_samples in one JDBC batch and are
+ * then handed to NsBwRollups.
+ *
+ * Only devices that resolve to an NsInterface are sampled — through bw-devices, or by kernel
+ * name when that map is empty — since utilisation needs the interface's capacity and the
+ * dashboard lists NsInterfaces. Any other device is skipped with one warning naming it.
+ *
+ * Counters are unsigned. A counter lower than last time is taken as a 32-bit wrap only when
+ * the previous reading was in the top half of the 32-bit range and the new one fits in 32 bits
+ * (older kernels and some drivers); anything else is a reset (interface re-created, driver
+ * reloaded): that interface skips one interval and starts over from the new reading. A delta
+ * implying more than twice the rated capacity is treated as a reset too.
+ */
+@Component
+public class NsBwCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(NsBwCollector.class);
+
+    private static final String INSERT = "INSERT INTO ns_bw_samples "
+            + "(interface_name, bytes_in, bytes_out, utilisation_pct, sampled_at) VALUES (?,?,?,?,?)";
+    private static final long WRAP_32 = 1L << 32;
+    private static final long WRAP_32_FROM = 1L << 31;
+
+    /** Cumulative rx/tx byte counters of one device, as unsigned 64-bit values. */
+    record Counters(long rxBytes, long txBytes) { }
+
+    /** One interval of one interface, as stored. */
+    record Sample(String interfaceName, long bytesIn, long bytesOut, double utilisationPct, Instant sampledAt) { }
+
+    private final NetScanProperties props;
+    private final NsInterfaceRepository interfaces;
+    private final NsBwRollups rollups;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    // Guarded by `this`: the previous reading and when it was taken.
+    private Map<String, Counters> previous = Map.of();
+    private long previousNanos;
+    private boolean unreadable;
+    private final Set<String> unmapped = new HashSet<>();   // devices already warned about
+
+    public NsBwCollector(NetScanProperties props, NsInterfaceRepository interfaces, NsBwRollups rollups,
+                         JdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this.props = props;
+        this.interfaces = interfaces;
+        this.rollups = rollups;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @Scheduled(fixedRateString = "${tucwms.netscan.bw-sample-ms:30000}")
+    public synchronized void tick() {
+        if (!props.isBwCollectorEnabled()) return;
+        Map<String, Counters> current;
+        long now = System.nanoTime();
+        try {
+            current = readNetDev(Path.of(props.getProcNetDevPath()));
+        } catch (IOException e) {
+            if (!unreadable) log.warn("[NetScan] bandwidth counters unreadable at {}: {}", props.getProcNetDevPath(), e.toString());
+            unreadable = true;
+            previous = Map.of();
+            return;
+        }
+        unreadable = false;
+        List<Sample> samples = previous.isEmpty() ? List.of()
+                : samples(previous, current, (now - previousNanos) / 1e9, capacities(),
+                        Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        previous = current;
+        previousNanos = now;
+        if (samples.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>(samples.size());
+        for (Sample s : samples) {
+            rows.add(new Object[] {s.interfaceName(), s.bytesIn(), s.bytesOut(), s.utilisationPct(),
+                    Timestamp.from(s.sampledAt())});
+        }
+        try {
+            tx.executeWithoutResult(st -> jdbc.batchUpdate(INSERT, rows));
+        } catch (RuntimeException e) {
+            log.warn("[NetScan] bandwidth samples not stored: {}", e.toString());
+            return;
+        }
+        rollups.add(samples);
+    }
+
+    /**
+     * Samples for the devices that resolve to an NsInterface and appear in both readings, taken
+     * {@code seconds} apart. {@code capacityMbps} holds every NsInterface by name (null value =
+     * capacity unknown, utilisation 0).
+     */
+    List<Sample> samples(Map<String, Counters> before, Map<String, Counters> after, double seconds,
+                         Map<String, Integer> capacityMbps, Instant at) {
+        List<Sample> out = new ArrayList<>();
+        if (seconds <= 0) return out;
+        Map<String, String> mapped = props.getBwDevices();
+        for (Map.Entry<String, Counters> e : after.entrySet()) {
+            String device = e.getKey();
+            String name = mapped.isEmpty() ? device : mapped.get(device);
+            if (name == null || (mapped.isEmpty() && device.equals("lo"))) continue;
+            if (!capacityMbps.containsKey(name)) {
+                if (unmapped.add(device)) {
+                    log.warn("[NetScan] device {} has no NsInterface named '{}' and is not sampled; "
+                            + "map it under tucwms.netscan.bw-devices", device, name);
+                }
+                continue;
+            }
+            Counters prev = before.get(device);
+            if (prev == null) continue;
+            long rx = delta(prev.rxBytes(), e.getValue().rxBytes());
+            long tx = delta(prev.txBytes(), e.getValue().txBytes());
+            if (rx < 0 || tx < 0) continue;
+            Integer capacity = capacityMbps.get(name);
+            double pct = 0;
+            if (capacity != null && capacity > 0) {
+                double busiest = Math.max(rx, tx) * 8 / seconds;   // bit/s
+                pct = busiest / (capacity * 1_000_000.0) * 100;
+                if (pct > 200) continue;                        // a reset that looked like a wrap
+                pct = Math.min(100, Math.round(pct * 100) / 100.0);
+            }
+            out.add(new Sample(name, rx, tx, pct, at));
+        }
+        return out;
+    }
+
+    /**
+     * Bytes moved between two readings of a counter, or -1 if the counter was reset. A drop is a
+     * 32-bit wrap only from the top half of the range: a reset from a small reading would
+     * otherwise show up as a ~4 GiB spike.
+     */
+    static long delta(long before, long after) {
+        if (Long.compareUnsigned(after, before) >= 0) return after - before;
+        if (before >= WRAP_32_FROM && before < WRAP_32 && after >= 0 && after < WRAP_32) {
+            return after + WRAP_32 - before;
+        }
+        return -1;
+    }
+
+    private Map<String, Integer> capacities() {
+        Map<String, Integer> out = new HashMap<>();
+        interfaces.findAll().forEach(i -> out.put(i.getName(), i.getCapacityMbps()));
+        return out;
+    }
+
+    /**
+     * Device -> rx/tx byte counters from a /proc/net/dev style file: two header lines, then
+     * "name: rx-bytes rx-packets ... (8 receive fields) tx-bytes ..." per device.
+     */
+    static Map<String, Counters> readNetDev(Path file) throws IOException {
+        Map<String, Counters> out = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            int colon = line.indexOf(':');
+            if (colon < 0) continue;   // header
+            String name = line.substring(0, colon).trim();
+            String[] f = line.substring(colon + 1).trim().split("\\s+");
+            if (name.isEmpty() || f.length < 9) continue;
+            try {
+                out.put(name, new Counters(Long.parseUnsignedLong(f[0]), Long.parseUnsignedLong(f[8])));
+            } catch (NumberFormatException e) {
+                // malformed line: device skipped this read
+            }
+        }
+        return out;
+    }
+}
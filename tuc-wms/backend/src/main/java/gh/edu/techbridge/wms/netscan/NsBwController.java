@@ -1,9 +1,11 @@
 package gh.edu.techbridge.wms.netscan;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @RestController
@@ -11,21 +13,17 @@ import java.util.List;
 public class NsBwController {
 
     private final NetScanService svc;
+    private final NsBwRollups rollups;
 
-    public NsBwController(NetScanService svc) { this.svc = svc; }
+    public NsBwController(NetScanService svc, NsBwRollups rollups) {
+        this.svc = svc;
+        this.rollups = rollups;
+    }
 
     public record InterfaceStatus(Long id, String name, String description, String ip,
                                    int capacityMbps, double utilisationPct,
                                    long bytesIn, long bytesOut) {}
 
-    public record BwSampleDto(String interfaceName, long bytesIn, long bytesOut,
-                               double utilisationPct, Instant sampledAt) {
-        static BwSampleDto from(NsBwSample s) {
-            return new BwSampleDto(s.getInterfaceName(), s.getBytesIn(), s.getBytesOut(),
-                    s.getUtilisationPct(), s.getSampledAt());
-        }
-    }
-
     @GetMapping("/interfaces")
     public ResponseEntity<List<InterfaceStatus>> interfaces() {
         List<InterfaceStatus> result = svc.getInterfaces().stream().map(iface -> {
@@ -40,13 +38,31 @@ public class NsBwController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Bandwidth over [from, to] (default: the last 24 h), for one interface or all. The source
+     * tier (RAW, M1, M5, H1) is chosen so each interface gets at most a few hundred points.
+     */
     @GetMapping("/history")
-    public ResponseEntity<List<BwSampleDto>> history() {
-        return ResponseEntity.ok(svc.getBwHistory().stream().map(BwSampleDto::from).toList());
+    public ResponseEntity<List<NsBwRollups.Point>> history(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(name = "interface", required = false) String interfaceName) {
+        return window(from, to, interfaceName);
     }
 
+    /** One interface's bandwidth over [from, to] (default: the last 24 h), same tiering as /history. */
     @GetMapping("/interfaces/{name}/history")
-    public ResponseEntity<List<BwSampleDto>> interfaceHistory(@PathVariable String name) {
-        return ResponseEntity.ok(svc.getBwByInterface(name).stream().map(BwSampleDto::from).toList());
+    public ResponseEntity<List<NsBwRollups.Point>> interfaceHistory(
+            @PathVariable String name,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return window(from, to, name);
+    }
+
+    private ResponseEntity<List<NsBwRollups.Point>> window(Instant from, Instant to, String interfaceName) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(24, ChronoUnit.HOURS);
+        if (!start.isBefore(end)) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(rollups.history(start, end, interfaceName));
     }
 }
@@ -0,0 +1,79 @@
+package gh.edu.techbridge.wms.netscan;
+
+import jakarta.persistence.*;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Bandwidth of one interface over one time bucket of a rollup tier, kept up to date by
+ * NsBwRollups as samples arrive. Bytes are summed over the bucket's samples; the utilisation
+ * figures are min / mean / max / 95th percentile of the samples' utilisationPct.
+ */
+@Entity
+@Table(name = "ns_bw_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ns_bw_rollup", columnNames = {"tier", "interfaceName", "bucketStart"}),
+        indexes = @Index(name = "idx_ns_bw_rollup_time", columnList = "tier, bucketStart"))
+public class NsBwRollup {
+
+    public enum Tier {
+        M1(Duration.ofMinutes(1)), M5(Duration.ofMinutes(5)), H1(Duration.ofHours(1));
+
+        public final Duration step;
+
+        Tier(Duration step) { this.step = step; }
+
+        public Instant bucketOf(Instant t) {
+            long s = step.getSeconds();
+            return Instant.ofEpochSecond(Math.floorDiv(t.getEpochSecond(), s) * s);
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8, columnDefinition = "varchar(8)")
+    private Tier tier;
+
+    @Column(nullable = false, length = 64)
+    private String interfaceName;
+
+    @Column(nullable = false)
+    private Instant bucketStart;
+
+    @Column(nullable = false)
+    private int samples;
+
+    @Column(nullable = false)
+    private long bytesIn;
+
+    @Column(nullable = false)
+    private long bytesOut;
+
+    @Column(nullable = false)
+    private double minPct;
+
+    @Column(nullable = false)
+    private double avgPct;
+
+    @Column(nullable = false)
+    private double maxPct;
+
+    @Column(nullable = false)
+    private double p95Pct;
+
+    protected NsBwRollup() {}
+
+    public Long getId()              { return id; }
+    public Tier getTier()            { return tier; }
+    public String getInterfaceName() { return interfaceName; }
+    public Instant getBucketStart()  { return bucketStart; }
+    public int getSamples()          { return samples; }
+    public long getBytesIn()         { return bytesIn; }
+    public long getBytesOut()        { return bytesOut; }
+    public double getMinPct()        { return minPct; }
+    public double getAvgPct()        { return avgPct; }
+    public double getMaxPct()        { return maxPct; }
+    public double getP95Pct()        { return p95Pct; }
+}
@@ -0,0 +1,28 @@
+package gh.edu.techbridge.wms.netscan;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface NsBwRollupRepository extends JpaRepository<NsBwRollup, Long> {
+
+    List<NsBwRollup> findByTierAndBucketStartBetweenOrderByBucketStartAsc(
+            NsBwRollup.Tier tier, Instant from, Instant to);
+
+    List<NsBwRollup> findByTierAndInterfaceNameAndBucketStartBetweenOrderByBucketStartAsc(
+            NsBwRollup.Tier tier, String interfaceName, Instant from, Instant to);
+
+    /** Retention: the next chunk of expired row ids of one tier (idx_ns_bw_rollup_time). */
+    @Query("select r.id from NsBwRollup r where r.tier = :tier and r.bucketStart < :cutoff order by r.bucketStart")
+    List<Long> findIdsBefore(@Param("tier") NsBwRollup.Tier tier, @Param("cutoff") Instant cutoff, Pageable pageable);
+
+    /** Drop the buckets a rebuild from raw samples is about to recompute. */
+    @Modifying
+    @Query("delete from NsBwRollup r where r.bucketStart >= :from")
+    int deleteFrom(@Param("from") Instant from);
+}
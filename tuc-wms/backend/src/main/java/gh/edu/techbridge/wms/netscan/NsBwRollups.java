@@ -0,0 +1,322 @@
+package gh.edu.techbridge.wms.netscan;
+
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bandwidth rollups, retention and history reads. Every batch of samples from NsBwCollector
+ * is added to the open 1-minute, 5-minute and 1-hour buckets of its interfaces, held in
+ * memory (counts, byte sums, min/max/sum and a 0.5%-resolution utilisation histogram for the
+ * p95), and the touched buckets are written to ns_bw_rollups straight away — UPDATE for rows
+ * already written, one INSERT batch for new ones — so a query sees the current bucket too.
+ * A bucket leaves memory once its period is over and its final state is written; a bucket
+ * whose write failed stays dirty and is written again with the next batch. On the first batch after startup the
+ * buckets from the start of the current hour are rebuilt from the raw samples (all of them if
+ * there are no rollups yet), which restores the open buckets' histograms after a restart.
+ *
+ * Retention is per tier and pruned hourly in bounded chunks like automation history. History
+ * queries use raw samples when they fit in bw-history-max-points per interface, else the
+ * finest rollup tier that does and still covers the start of the range; ranges longer than
+ * that many hours merge adjacent hourly buckets (p95 then reported as the highest bucket p95).
+ */
+@Component
+public class NsBwRollups {
+
+    private static final Logger log = LoggerFactory.getLogger(NsBwRollups.class);
+
+    private static final String INSERT = "INSERT INTO ns_bw_rollups (tier, interface_name, bucket_start, samples, "
+            + "bytes_in, bytes_out, min_pct, avg_pct, max_pct, p95_pct) VALUES (?,?,?,?,?,?,?,?,?,?)";
+    private static final String UPDATE = "UPDATE ns_bw_rollups SET samples = ?, bytes_in = ?, bytes_out = ?, "
+            + "min_pct = ?, avg_pct = ?, max_pct = ?, p95_pct = ? WHERE tier = ? AND interface_name = ? AND bucket_start = ?";
+
+    private static final double BIN_PCT = 0.5;
+    private static final int BINS = 201;   // 0..100% plus an overflow bin
+
+    /**
+     * One history point: a raw sample (tier RAW) or a rollup bucket, where utilisationPct is
+     * the bucket mean and sampledAt the bucket start.
+     */
+    public record Point(String interfaceName, long bytesIn, long bytesOut, double utilisationPct, Instant sampledAt,
+                        String tier, int samples, double minPct, double maxPct, double p95Pct) {
+        static Point of(NsBwSample s) {
+            double pct = s.getUtilisationPct();
+            return new Point(s.getInterfaceName(), s.getBytesIn(), s.getBytesOut(), pct, s.getSampledAt(),
+                    "RAW", 1, pct, pct, pct);
+        }
+
+        static Point of(NsBwRollup r) {
+            return new Point(r.getInterfaceName(), r.getBytesIn(), r.getBytesOut(), r.getAvgPct(), r.getBucketStart(),
+                    r.getTier().name(), r.getSamples(), r.getMinPct(), r.getMaxPct(), r.getP95Pct());
+        }
+    }
+
+    private record Key(NsBwRollup.Tier tier, String interfaceName, Instant start) { }
+
+    private static final class Bucket {
+        final Key key;
+        final int[] histogram = new int[BINS];
+        int samples;
+        long bytesIn;
+        long bytesOut;
+        double sumPct;
+        double minPct = Double.MAX_VALUE;
+        double maxPct = -Double.MAX_VALUE;
+        boolean stored;   // a row exists: UPDATE, not INSERT
+        boolean dirty;    // changed since its last successful write
+
+        Bucket(Key key) { this.key = key; }
+
+        void add(NsBwCollector.Sample s) {
+            double pct = s.utilisationPct();
+            samples++;
+            bytesIn += s.bytesIn();
+            bytesOut += s.bytesOut();
+            sumPct += pct;
+            minPct = Math.min(minPct, pct);
+            maxPct = Math.max(maxPct, pct);
+            histogram[Math.max(0, Math.min(BINS - 1, (int) (pct / BIN_PCT)))]++;
+            dirty = true;
+        }
+
+        double avgPct() { return round(sumPct / samples); }
+
+        /** Upper edge of the bin holding the 95th percentile, within [min, max]. */
+        double p95Pct() {
+            long rank = (long) Math.ceil(0.95 * samples);
+            long seen = 0;
+            for (int i = 0; i < BINS; i++) {
+                seen += histogram[i];
+                if (seen >= rank) return round(Math.max(minPct, Math.min(maxPct, (i + 1) * BIN_PCT)));
+            }
+            return maxPct;
+        }
+
+        boolean closedAt(Instant t) { return !key.start().plus(key.tier().step).isAfter(t); }
+    }
+
+    private final NetScanProperties props;
+    private final NsBwSampleRepository samples;
+    private final NsBwRollupRepository rollups;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    // Guarded by `this`: open buckets, and the instant before which raw samples were replayed.
+    private final Map<Key, Bucket> open = new HashMap<>();
+    private Instant loadedBefore;
+
+    public NsBwRollups(NetScanProperties props, NsBwSampleRepository samples, NsBwRollupRepository rollups,
+                       JdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this.props = props;
+        this.samples = samples;
+        this.rollups = rollups;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /** Fold one collector tick's samples (already stored raw) into the rollups. */
+    synchronized void add(List<NsBwCollector.Sample> batch) {
+        if (batch.isEmpty()) return;
+        Instant at = batch.get(0).sampledAt();
+        if (!ensureLoaded(at)) return;   // retried next tick, from raw samples that include this one
+        for (NsBwCollector.Sample s : batch) {
+            if (!s.sampledAt().isBefore(loadedBefore)) accumulate(s);
+        }
+        try {
+            // this batch's buckets plus any left dirty by an earlier failed write
+            write(open.values().stream().filter(b -> b.dirty).toList(), null);
+        } catch (RuntimeException e) {
+            log.warn("[NetScan] bandwidth rollups not written, retrying next tick: {}", e.toString());
+        }
+        open.values().removeIf(b -> !b.dirty && b.closedAt(at));
+    }
+
+    /**
+     * First call after startup: rebuild the buckets from the start of the current hour (or,
+     * with no rollups at all, from the earliest raw sample) out of the raw samples before
+     * {@code before}. False if there is nothing to roll up yet or the rebuild failed.
+     */
+    private boolean ensureLoaded(Instant before) {
+        if (loadedBefore != null) return true;
+        try {
+            Instant from = rollups.count() == 0
+                    ? samples.findEarliestSampledAt().orElse(null)
+                    : Instant.now();
+            if (from == null) return false;
+            Instant start = NsBwRollup.Tier.H1.bucketOf(from);
+            List<NsBwSample> raw = samples.findBySampledAtGreaterThanEqualAndSampledAtBeforeOrderBySampledAtAsc(start, before);
+            for (NsBwSample s : raw) {
+                accumulate(new NsBwCollector.Sample(s.getInterfaceName(), s.getBytesIn(), s.getBytesOut(),
+                        s.getUtilisationPct(), s.getSampledAt()));
+            }
+            write(open.values(), () -> rollups.deleteFrom(start));
+            open.values().removeIf(b -> b.closedAt(before));
+            loadedBefore = before;
+            log.info("[NetScan] bandwidth rollups rebuilt from {} raw sample(s) since {}", raw.size(), start);
+            return true;
+        } catch (RuntimeException e) {
+            open.clear();
+            log.warn("[NetScan] bandwidth rollup rebuild failed: {}", e.toString());
+            return false;
+        }
+    }
+
+    private void accumulate(NsBwCollector.Sample s) {
+        for (NsBwRollup.Tier tier : NsBwRollup.Tier.values()) {
+            open.computeIfAbsent(new Key(tier, s.interfaceName(), tier.bucketOf(s.sampledAt())), Bucket::new).add(s);
+        }
+    }
+
+    /** Write the buckets in one transaction, after {@code first} if given; they are clean once it commits. */
+    private void write(Collection<Bucket> buckets, Runnable first) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Bucket> created = new ArrayList<>();
+        for (Bucket b : buckets) {
+            Key k = b.key;
+            Timestamp start = Timestamp.from(k.start());
+            if (b.stored) {
+                updates.add(new Object[] {b.samples, b.bytesIn, b.bytesOut, b.minPct, b.avgPct(), b.maxPct, b.p95Pct(),
+                        k.tier().name(), k.interfaceName(), start});
+            } else {
+                inserts.add(new Object[] {k.tier().name(), k.interfaceName(), start, b.samples, b.bytesIn, b.bytesOut,
+                        b.minPct, b.avgPct(), b.maxPct, b.p95Pct()});
+                created.add(b);
+            }
+        }
+        if (first == null && updates.isEmpty() && inserts.isEmpty()) return;
+        tx.executeWithoutResult(s -> {
+            if (first != null) first.run();
+            if (!updates.isEmpty()) jdbc.batchUpdate(UPDATE, updates);
+            if (!inserts.isEmpty()) jdbc.batchUpdate(INSERT, inserts);
+        });
+        created.forEach(b -> b.stored = true);
+        buckets.forEach(b -> b.dirty = false);
+    }
+
+    /**
+     * Bandwidth between {@code from} and {@code to} for one interface (or all, when null), at
+     * most bw-history-max-points points per interface.
+     */
+    public List<Point> history(Instant from, Instant to, String interfaceName) {
+        synchronized (this) {
+            ensureLoaded(Instant.now());
+        }
+        int maxPoints = Math.max(1, props.getBwHistoryMaxPoints());
+        Duration span = Duration.between(from, to);
+        Instant now = Instant.now();
+
+        Duration rawStep = Duration.ofMillis(Math.max(1, props.getBwSampleMs()));
+        if (span.dividedBy(rawStep) <= maxPoints
+                && !from.isBefore(now.minus(Duration.ofHours(props.getBwRawRetentionHours())))) {
+            List<NsBwSample> raw = interfaceName == null
+                    ? samples.findBySampledAtBetweenOrderBySampledAtAsc(from, to)
+                    : samples.findByInterfaceNameAndSampledAtBetweenOrderBySampledAtAsc(interfaceName, from, to);
+            return raw.stream().map(Point::of).toList();
+        }
+
+        NsBwRollup.Tier tier = NsBwRollup.Tier.H1;
+        for (NsBwRollup.Tier t : NsBwRollup.Tier.values()) {
+            if (span.dividedBy(t.step) <= maxPoints && !from.isBefore(now.minus(retention(t)))) {
+                tier = t;
+                break;
+            }
+        }
+        Instant fromBucket = tier.bucketOf(from);
+        List<NsBwRollup> rows = interfaceName == null
+                ? rollups.findByTierAndBucketStartBetweenOrderByBucketStartAsc(tier, fromBucket, to)
+                : rollups.findByTierAndInterfaceNameAndBucketStartBetweenOrderByBucketStartAsc(tier, interfaceName, fromBucket, to);
+        List<Point> points = rows.stream().map(Point::of).toList();
+        long perSlot = (span.dividedBy(tier.step) + maxPoints - 1) / maxPoints;
+        return perSlot > 1 ? merge(points, fromBucket, tier.step.multipliedBy(perSlot)) : points;
+    }
+
+    /** Merge consecutive buckets of each interface into slots of {@code slot} starting at {@code origin}. */
+    private static List<Point> merge(List<Point> points, Instant origin, Duration slot) {
+        record Slot(String interfaceName, Instant start) { }
+        Map<Slot, List<Point>> slots = new LinkedHashMap<>();
+        long slotSeconds = slot.getSeconds();
+        for (Point p : points) {
+            long n = Math.floorDiv(p.sampledAt().getEpochSecond() - origin.getEpochSecond(), slotSeconds);
+            slots.computeIfAbsent(new Slot(p.interfaceName(), origin.plusSeconds(n * slotSeconds)), k -> new ArrayList<>()).add(p);
+        }
+        List<Point> out = new ArrayList<>(slots.size());
+        slots.forEach((s, ps) -> {
+            int count = 0;
+            long in = 0, outBytes = 0;
+            double weighted = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE, p95 = 0;
+            for (Point p : ps) {
+                count += p.samples();
+                in += p.bytesIn();
+                outBytes += p.bytesOut();
+                weighted += p.utilisationPct() * p.samples();
+                min = Math.min(min, p.minPct());
+                max = Math.max(max, p.maxPct());
+                p95 = Math.max(p95, p.p95Pct());
+            }
+            out.add(new Point(s.interfaceName(), in, outBytes, round(weighted / Math.max(1, count)), s.start(),
+                    ps.get(0).tier(), count, min, max, p95));
+        });
+        return out;
+    }
+
+    /** Hourly retention for raw samples and each rollup tier. */
+    @Scheduled(cron = "${tucwms.netscan.bw-prune-cron:0 5 * * * *}")
+    public void prune() {
+        Instant now = Instant.now();
+        int chunk = Math.max(1, props.getBwPruneChunkSize());
+        PageRequest page = PageRequest.of(0, chunk);
+        Instant rawCutoff = now.minus(Duration.ofHours(props.getBwRawRetentionHours()));
+        long raw = pruneChunks(() -> samples.findIdsBefore(rawCutoff, page), samples::deleteAllByIdInBatch, chunk);
+        long rolled = 0;
+        for (NsBwRollup.Tier t : NsBwRollup.Tier.values()) {
+            Instant cutoff = now.minus(retention(t));
+            rolled += pruneChunks(() -> rollups.findIdsBefore(t, cutoff, page), rollups::deleteAllByIdInBatch, chunk);
+        }
+        if (raw + rolled > 0) {
+            log.info("[NetScan] bandwidth retention pruned {} raw sample(s) and {} rollup row(s)", raw, rolled);
+        }
+    }
+
+    private long pruneChunks(Supplier<List<Long>> nextIds, Consumer<List<Long>> delete, int chunk) {
+        long deleted = 0;
+        List<Long> ids;
+        while (!(ids = nextIds.get()).isEmpty()) {
+            List<Long> batch = ids;
+            tx.executeWithoutResult(s -> delete.accept(batch));
+            deleted += batch.size();
+            if (batch.size() < chunk) break;
+        }
+        return deleted;
+    }
+
+    private Duration retention(NsBwRollup.Tier tier) {
+        return switch (tier) {
+            case M1 -> Duration.ofHours(props.getBwMinuteRetentionHours());
+            case M5 -> Duration.ofDays(props.getBwFiveMinuteRetentionDays());
+            case H1 -> Duration.ofDays(props.getBwHourRetentionDays());
+        };
+    }
+
+    private static double round(double pct) {
+        return Math.round(pct * 100) / 100.0;
+    }
+}
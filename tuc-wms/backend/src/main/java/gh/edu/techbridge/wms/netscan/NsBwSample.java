@@ -4,13 +4,14 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 /**
- * A point-in-time bandwidth sample for a network interface.
- * Collected every ~30 seconds. Retention: keep last 24 hours in prod
- * (prune via scheduled task; not implemented in Phase 1).
+ * A point-in-time bandwidth sample for a network interface: bytes in/out since the previous
+ * sample and utilisation of the busier direction. Written by NsBwCollector every ~30 seconds
+ * and rolled up into NsBwRollup tiers; raw samples are kept bw-raw-retention-hours (24 h).
  */
 @Entity
 @Table(name = "ns_bw_samples", indexes = {
-        @Index(name = "idx_ns_bw_iface_time", columnList = "interfaceName, sampledAt")
+        @Index(name = "idx_ns_bw_iface_time", columnList = "interfaceName, sampledAt"),
+        @Index(name = "idx_ns_bw_time",       columnList = "sampledAt")
 })
 public class NsBwSample {
 
@@ -42,6 +43,12 @@ public class NsBwSample {
         this.utilisationPct = utilisationPct;
     }
 
+    /** Backdated sample, for seeding history. */
+    NsBwSample(String interfaceName, long bytesIn, long bytesOut, double utilisationPct, Instant sampledAt) {
+        this(interfaceName, bytesIn, bytesOut, utilisationPct);
+        this.sampledAt = sampledAt;
+    }
+
     public Long getId()              { return id; }
     public String getInterfaceName() { return interfaceName; }
     public long getBytesIn()         { return bytesIn; }
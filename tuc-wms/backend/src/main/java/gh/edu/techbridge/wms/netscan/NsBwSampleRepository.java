@@ -1,7 +1,9 @@
 package gh.edu.techbridge.wms.netscan;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
@@ -9,9 +11,18 @@ import java.util.Optional;
 
 public interface NsBwSampleRepository extends JpaRepository<NsBwSample, Long> {
 
-    List<NsBwSample> findByInterfaceNameOrderBySampledAtDesc(String interfaceName);
+    List<NsBwSample> findBySampledAtBetweenOrderBySampledAtAsc(Instant from, Instant to);
 
-    List<NsBwSample> findBySampledAtAfterOrderBySampledAtAsc(Instant since);
+    List<NsBwSample> findByInterfaceNameAndSampledAtBetweenOrderBySampledAtAsc(String interfaceName, Instant from, Instant to);
+
+    List<NsBwSample> findBySampledAtGreaterThanEqualAndSampledAtBeforeOrderBySampledAtAsc(Instant from, Instant before);
+
+    @Query("SELECT MIN(s.sampledAt) FROM NsBwSample s")
+    Optional<Instant> findEarliestSampledAt();
+
+    /** Retention: the next chunk of expired sample ids. */
+    @Query("SELECT s.id FROM NsBwSample s WHERE s.sampledAt < :cutoff ORDER BY s.sampledAt")
+    List<Long> findIdsBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
 
     @Query("SELECT s FROM NsBwSample s WHERE s.interfaceName = :name ORDER BY s.sampledAt DESC LIMIT 1")
     Optional<NsBwSample> findLatestByInterfaceName(String name);
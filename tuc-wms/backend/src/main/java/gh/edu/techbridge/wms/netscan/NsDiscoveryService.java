@@ -0,0 +1,234 @@
+package gh.edu.techbridge.wms.netscan;
+
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Runs subnet discovery sweeps (SubnetScanner) one at a time, on a virtual thread, and folds
+ * what they find into ns_devices keyed by MAC, upsert-batch-size devices per transaction:
+ * the chunk's known MACs are looked up in one query, known devices get their IP and lastSeen
+ * refreshed in one UPDATE batch (INACTIVE ones become ACTIVE again; BLOCKED and ROGUE keep
+ * their status) and unknown ones are inserted in one INSERT batch as ROGUE, not in the ADR,
+ * each with a ROGUE_DEVICE alert. After a sweep, ACTIVE devices whose IP lies in the swept
+ * ranges but that neither answered nor showed up in ARP are marked INACTIVE.
+ */
+@Service
+public class NsDiscoveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(NsDiscoveryService.class);
+
+    private static final String REFRESH = "UPDATE ns_devices SET ip = ?, last_seen = ?, "
+            + "status = CASE WHEN status = 'INACTIVE' THEN 'ACTIVE' ELSE status END WHERE mac = ?";
+    private static final String INSERT = "INSERT INTO ns_devices (mac, ip, status, in_adr, first_seen, last_seen) "
+            + "VALUES (?, ?, 'ROGUE', FALSE, ?, ?)";
+    private static final String DEACTIVATE = "UPDATE ns_devices SET status = 'INACTIVE' WHERE mac = ? AND status = 'ACTIVE'";
+
+    /** Outcome of the latest sweep; {@code status} is RUNNING, COMPLETED or FAILED. */
+    public record ScanReport(String ranges, String actor, String status, Instant startedAt, Instant finishedAt,
+                             long hostsProbed, int hostsUp, int devicesSeen, int newDevices,
+                             int markedInactive, int unresolved) {
+        static ScanReport running(String ranges, String actor) {
+            return new ScanReport(ranges, actor, "RUNNING", Instant.now(), null, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private final NetScanProperties props;
+    private final SubnetScanner scanner;
+    private final NetScanService svc;
+    private final NsAlertRepository alerts;
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate lookups;
+    private final TransactionTemplate tx;
+
+    private final Object lock = new Object();
+    private Thread worker;                   // guarded by lock; null when idle
+    private volatile ScanReport last;
+
+    public NsDiscoveryService(NetScanProperties props, SubnetScanner scanner, NetScanService svc,
+                              NsAlertRepository alerts, JdbcTemplate jdbc, PlatformTransactionManager txManager) {
+        this.props = props;
+        this.scanner = scanner;
+        this.svc = svc;
+        this.alerts = alerts;
+        this.jdbc = jdbc;
+        this.lookups = new NamedParameterJdbcTemplate(jdbc);
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * Parse a comma-separated list of CIDRs (blank = all configured scan ranges). Each must lie
+     * inside a configured range, and together they may not exceed max-hosts-per-scan.
+     *
+     * @throws IllegalArgumentException naming the offending range
+     */
+    List<SubnetScanner.Range> resolve(String subnets) {
+        List<SubnetScanner.Range> allowed = props.getScanRanges().stream().map(SubnetScanner.Range::parse).toList();
+        if (subnets == null || subnets.isBlank()) return check(allowed);
+        List<SubnetScanner.Range> out = new ArrayList<>();
+        for (String s : subnets.split(",")) {
+            if (s.isBlank()) continue;
+            SubnetScanner.Range r = SubnetScanner.Range.parse(s);
+            if (allowed.stream().noneMatch(a -> a.contains(r))) {
+                throw new IllegalArgumentException(r + " is outside the configured scan ranges");
+            }
+            out.add(r);
+        }
+        return check(out);
+    }
+
+    private List<SubnetScanner.Range> check(List<SubnetScanner.Range> ranges) {
+        if (ranges.isEmpty()) throw new IllegalArgumentException("No scan range given");
+        long hosts = ranges.stream().mapToLong(SubnetScanner.Range::hostCount).sum();
+        if (hosts > props.getMaxHostsPerScan()) {
+            throw new IllegalArgumentException(hosts + " addresses exceed the limit of " + props.getMaxHostsPerScan() + " per scan");
+        }
+        return ranges;
+    }
+
+    /** Start a sweep in the background; false if one is already running. */
+    boolean start(List<SubnetScanner.Range> ranges, String actor) {
+        synchronized (lock) {
+            if (worker != null) return false;
+            String label = ranges.stream().map(Object::toString).collect(Collectors.joining(","));
+            last = ScanReport.running(label, actor);
+            worker = Thread.ofVirtual().name("netscan-sweep").start(() -> run(ranges, label, actor));
+            return true;
+        }
+    }
+
+    public ScanReport lastReport() {
+        return last;
+    }
+
+    @Scheduled(cron = "${tucwms.netscan.scan-cron:-}")
+    public void scheduledSweep() {
+        try {
+            if (!start(resolve(null), "system")) log.info("[NetScan] scheduled sweep skipped: a sweep is still running");
+        } catch (IllegalArgumentException e) {
+            log.warn("[NetScan] scheduled sweep not started: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (lock) {
+            if (worker != null) worker.interrupt();
+        }
+    }
+
+    private void run(List<SubnetScanner.Range> ranges, String label, String actor) {
+        Instant started = last.startedAt();
+        try {
+            SubnetScanner.Sweep sweep = scanner.sweep(ranges);
+            int created = upsert(sweep.devices());
+            int inactive = deactivateMissing(ranges, sweep);
+            ScanReport r = new ScanReport(label, actor, "COMPLETED", started, Instant.now(), sweep.hostsProbed(),
+                    sweep.up().size(), sweep.devices().size(), created, inactive, sweep.unresolved());
+            last = r;
+            svc.recordScan(label, actor, "Sweep completed: %d of %d hosts up, %d devices, %d new, %d now inactive."
+                    .formatted(r.hostsUp(), r.hostsProbed(), r.devicesSeen(), r.newDevices(), r.markedInactive()));
+            log.info("[NetScan] sweep of {} done: {} of {} hosts up, {} devices ({} new, {} unresolved), {} now inactive",
+                    label, r.hostsUp(), r.hostsProbed(), r.devicesSeen(), r.newDevices(), r.unresolved(), r.markedInactive());
+        } catch (InterruptedException e) {
+            last = failed(label, actor, started);
+            log.info("[NetScan] sweep of {} interrupted", label);
+        } catch (RuntimeException e) {
+            last = failed(label, actor, started);
+            log.warn("[NetScan] sweep of {} failed: {}", label, e.toString());
+        } finally {
+            synchronized (lock) {
+                worker = null;
+            }
+        }
+    }
+
+    private static ScanReport failed(String label, String actor, Instant started) {
+        return new ScanReport(label, actor, "FAILED", started, Instant.now(), 0, 0, 0, 0, 0, 0);
+    }
+
+    /** Upsert the found devices in chunks; returns how many were new. */
+    private int upsert(List<SubnetScanner.Found> found) {
+        int chunk = Math.max(1, props.getUpsertBatchSize());
+        int created = 0;
+        for (int from = 0; from < found.size(); from += chunk) {
+            List<SubnetScanner.Found> part = found.subList(from, Math.min(found.size(), from + chunk));
+            Integer n = tx.execute(s -> upsertChunk(part));
+            created += n == null ? 0 : n;
+        }
+        return created;
+    }
+
+    private int upsertChunk(List<SubnetScanner.Found> part) {
+        Timestamp now = Timestamp.from(Instant.now());
+        Map<String, String> stored = new HashMap<>();   // upper-case MAC -> MAC as stored
+        lookups.query("SELECT mac FROM ns_devices WHERE mac IN (:macs)",
+                Map.of("macs", part.stream().map(SubnetScanner.Found::mac).toList()),
+                rs -> { stored.put(rs.getString(1).toUpperCase(Locale.ROOT), rs.getString(1)); });
+
+        List<Object[]> refresh = new ArrayList<>();
+        List<Object[]> insert = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        for (SubnetScanner.Found f : part) {
+            String mac = stored.get(f.mac());
+            if (mac != null) {
+                refresh.add(new Object[] {f.ip(), now, mac});
+            } else {
+                insert.add(new Object[] {f.mac(), f.ip(), now, now});
+                created.add(f.mac());
+            }
+        }
+        if (!refresh.isEmpty()) jdbc.batchUpdate(REFRESH, refresh);
+        if (created.isEmpty()) return 0;
+        jdbc.batchUpdate(INSERT, insert);
+
+        List<NsAlert> raised = new ArrayList<>();
+        lookups.query("SELECT id, mac, ip FROM ns_devices WHERE mac IN (:macs)", Map.of("macs", created),
+                rs -> {
+                    raised.add(new NsAlert("ROGUE_DEVICE", "CRITICAL", "Rogue Device Detected",
+                            "Unknown device %s appeared on %s — not in ADR.".formatted(rs.getString(2), rs.getString(3)),
+                            rs.getLong(1)));
+                });
+        alerts.saveAll(raised);
+        return created.size();
+    }
+
+    /** ACTIVE devices in the swept ranges that neither answered nor showed up in ARP become INACTIVE. */
+    private int deactivateMissing(List<SubnetScanner.Range> ranges, SubnetScanner.Sweep sweep) {
+        Set<String> seenMacs = new HashSet<>();
+        sweep.devices().forEach(f -> seenMacs.add(f.mac()));
+        List<Object[]> gone = new ArrayList<>();
+        jdbc.query("SELECT mac, ip FROM ns_devices WHERE status = 'ACTIVE'", rs -> {
+            String mac = rs.getString(1);
+            String ip = rs.getString(2);
+            if (ip != null && SubnetScanner.inRanges(ranges, ip) && !sweep.up().contains(ip)
+                    && !seenMacs.contains(mac.toUpperCase(Locale.ROOT))) {
+                gone.add(new Object[] {mac});
+            }
+        });
+        int chunk = Math.max(1, props.getUpsertBatchSize());
+        for (int from = 0; from < gone.size(); from += chunk) {
+            List<Object[]> part = gone.subList(from, Math.min(gone.size(), from + chunk));
+            tx.executeWithoutResult(s -> jdbc.batchUpdate(DEACTIVATE, part));
+        }
+        return gone.size();
+    }
+}
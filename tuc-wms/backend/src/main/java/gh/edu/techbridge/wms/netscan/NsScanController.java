@@ -6,19 +6,27 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
- * Scan trigger endpoint. Phase 1: records the intent in the audit log.
- * Real network scanning (nmap/SNMP integration) is a Phase 2 concern.
+ * Scan trigger endpoint. A trigger starts a discovery sweep (NsDiscoveryService) in the
+ * background and returns at once; the sweep's outcome is at GET /last and in the audit log.
+ * The subnet may be a comma-separated list of CIDRs inside the configured scan ranges;
+ * omitted = all configured ranges.
  */
 @RestController
 @RequestMapping("/api/v1/netscan/scan")
 public class NsScanController {
 
     private final NetScanService svc;
+    private final NsDiscoveryService discovery;
     private volatile Instant lastScan = Instant.EPOCH;
 
-    public NsScanController(NetScanService svc) { this.svc = svc; }
+    public NsScanController(NetScanService svc, NsDiscoveryService discovery) {
+        this.svc = svc;
+        this.discovery = discovery;
+    }
 
     public record ScanRequest(String subnet) {}
     public record ScanResult(String status, String subnet, int deviceCount, Instant triggeredAt) {}
@@ -37,15 +45,30 @@ public class NsScanController {
     }
 
     @PostMapping("/trigger")
-    public ResponseEntity<ScanResult> trigger(@RequestBody(required = false) ScanRequest req,
-                                               Authentication auth) {
+    public ResponseEntity<?> trigger(@RequestBody(required = false) ScanRequest req,
+                                     Authentication auth) {
         if (Instant.now().isBefore(lastScan.plusSeconds(60))) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
         }
+        List<SubnetScanner.Range> ranges;
+        try {
+            ranges = discovery.resolve(req != null ? req.subnet() : null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        }
+        if (!discovery.start(ranges, auth.getName())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         lastScan = Instant.now();
-        String subnet = (req != null && req.subnet() != null) ? req.subnet() : "192.168.1.0/24";
+        String subnet = ranges.stream().map(Object::toString).collect(Collectors.joining(","));
         svc.recordScan(subnet, auth.getName());
         int deviceCount = svc.getAllDevices().size();
         return ResponseEntity.ok(new ScanResult("STARTED", subnet, deviceCount, lastScan));
     }
+
+    @GetMapping("/last")
+    public ResponseEntity<NsDiscoveryService.ScanReport> last() {
+        NsDiscoveryService.ScanReport r = discovery.lastReport();
+        return r != null ? ResponseEntity.ok(r) : ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,294 @@
+package gh.edu.techbridge.wms.netscan;
+
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Sweeps IPv4 ranges for live hosts. Every host address gets its own virtual thread, so a
+ * sweep is bounded by the probe budget rather than by a thread pool: at most
+ * max-concurrent-hosts hosts are probed at once and every probe (ICMP echo or TCP connect)
+ * first takes a slot from one pacer shared by all sweeps, probes-per-second overall. A host's
+ * probes share host-timeout-ms, split evenly over the probes still to run, and stop at the
+ * first answer — a refused connection counts, it proves the host is there. ICMP goes through
+ * InetAddress.isReachable, a native call that pins a virtual thread's carrier, so pings run on
+ * a small platform pool of icmp-threads while the host's virtual thread waits. After the sweep
+ * the kernel ARP table (arp-path) supplies MAC addresses: hosts on a directly attached segment
+ * that answered ARP are found even when every probe was filtered, while hosts behind a router
+ * (no ARP entry) are only counted as unresolved since devices are keyed by MAC.
+ *
+ * Nothing here touches the database; NsDiscoveryService persists the result.
+ */
+@Component
+public class SubnetScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(SubnetScanner.class);
+
+    private static final Pattern MAC = Pattern.compile("[0-9A-Fa-f]{2}(:[0-9A-Fa-f]{2}){5}");
+    private static final int ATF_COM = 0x2;   // ARP entry complete
+
+    /** An IPv4 CIDR block, addresses held as unsigned 32-bit values. */
+    record Range(long network, int prefix) {
+
+        static Range parse(String cidr) {
+            String s = cidr.trim();
+            int slash = s.indexOf('/');
+            try {
+                int prefix = slash < 0 ? 32 : Integer.parseInt(s.substring(slash + 1));
+                long addr = toLong(slash < 0 ? s : s.substring(0, slash));
+                if (prefix < 0 || prefix > 32) throw new IllegalArgumentException("Bad prefix length: " + cidr);
+                return new Range(addr & mask(prefix), prefix);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not an IPv4 CIDR: " + cidr);
+            }
+        }
+
+        /** Host addresses, excluding network and broadcast below /31. */
+        long first() { return prefix >= 31 ? network : network + 1; }
+        long last() { return prefix >= 31 ? network + size() - 1 : network + size() - 2; }
+        long hostCount() { return last() - first() + 1; }
+
+        boolean contains(long addr) { return (addr & mask(prefix)) == network; }
+        boolean contains(Range other) { return other.prefix >= prefix && contains(other.network); }
+
+        private long size() { return 1L << (32 - prefix); }
+
+        private static long mask(int prefix) {
+            return prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+        }
+
+        @Override public String toString() { return toDotted(network) + "/" + prefix; }
+    }
+
+    /** A device seen by the sweep: it answered a probe ({@code responded}) and/or is in the ARP table. */
+    public record Found(String ip, String mac, boolean responded) { }
+
+    /**
+     * Result of one sweep. {@code up} holds every address that answered a probe, whether or
+     * not its MAC is known; {@code devices} only those with a MAC, one per MAC.
+     */
+    public record Sweep(long hostsProbed, Set<String> up, List<Found> devices, int unresolved) { }
+
+    private final NetScanProperties props;
+    private final AtomicLong nextProbe = new AtomicLong(System.nanoTime());
+
+    public SubnetScanner(NetScanProperties props) {
+        this.props = props;
+    }
+
+    /** Probe every host address in {@code ranges}, then resolve MACs from the ARP table. */
+    Sweep sweep(List<Range> ranges) throws InterruptedException {
+        Set<String> up = ConcurrentHashMap.newKeySet();
+        Semaphore slots = new Semaphore(Math.max(1, props.getMaxConcurrentHosts()));
+        long probed = 0;
+        AtomicInteger n = new AtomicInteger();
+        ExecutorService icmp = props.isIcmpProbe()
+                ? Executors.newFixedThreadPool(Math.max(1, props.getIcmpThreads()), r -> {
+                    Thread t = new Thread(r, "netscan-icmp-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                })
+                : null;
+        ExecutorService hosts = Executors.newVirtualThreadPerTaskExecutor();
+        try (hosts) {
+            for (Range r : ranges) {
+                for (long a = r.first(); a <= r.last(); a++) {
+                    slots.acquire();
+                    InetAddress addr = toInet(a);
+                    hosts.execute(() -> {
+                        try {
+                            if (probe(addr, icmp)) up.add(addr.getHostAddress());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                    probed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            hosts.shutdownNow();
+            throw e;
+        } finally {
+            if (icmp != null) icmp.shutdownNow();
+        }
+
+        Map<String, String> arp = Map.of();
+        try {
+            arp = readArp(Path.of(props.getArpPath()));
+        } catch (IOException e) {
+            log.warn("[NetScan] ARP table {} unreadable, no MACs for this sweep: {}", props.getArpPath(), e.toString());
+        }
+        Map<String, Found> byMac = new LinkedHashMap<>();
+        int unresolved = 0;
+        List<String> seen = new ArrayList<>(up);
+        arp.keySet().stream().filter(ip -> !up.contains(ip) && inRanges(ranges, ip)).forEach(seen::add);
+        seen.sort(Comparator.comparingLong(SubnetScanner::toLong));
+        for (String ip : seen) {
+            String mac = arp.get(ip);
+            if (mac == null) unresolved++;
+            else byMac.putIfAbsent(mac, new Found(ip, mac, up.contains(ip)));
+        }
+        return new Sweep(probed, Set.copyOf(up), List.copyOf(byMac.values()), unresolved);
+    }
+
+    /** ICMP first when enabled ({@code pinger} non-null), then the TCP ports, until one answers or the host budget is spent. */
+    private boolean probe(InetAddress addr, ExecutorService pinger) throws InterruptedException {
+        List<Integer> ports = props.getProbePorts();
+        boolean icmp = pinger != null;
+        int probes = ports.size() + (icmp ? 1 : 0);
+        long budget = TimeUnit.MILLISECONDS.toNanos(props.getHostTimeoutMs());
+        for (int i = 0; i < probes && budget > 0; i++) {
+            int timeoutMs = (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(budget / (probes - i)));
+            pace();
+            long started = System.nanoTime();
+            boolean answered = icmp && i == 0
+                    ? ping(pinger, addr, timeoutMs)
+                    : connect(addr, ports.get(icmp ? i - 1 : i), timeoutMs);
+            budget -= System.nanoTime() - started;
+            if (answered) return true;
+        }
+        return false;
+    }
+
+    /** Wait for this probe's slot in the global probes-per-second schedule. */
+    private void pace() throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, props.getProbesPerSecond());
+        long now = System.nanoTime();
+        long slot = nextProbe.accumulateAndGet(now, (prev, n) -> Math.max(prev, n) + interval) - interval;
+        if (slot > now) TimeUnit.NANOSECONDS.sleep(slot - now);
+    }
+
+    /**
+     * ICMP echo where the JVM may send it, otherwise a TCP echo-port connect (see isReachable),
+     * run on {@code pinger} so the blocking native call never pins this virtual thread's carrier.
+     * Time spent queued for a pinger counts against the timeout.
+     */
+    private static boolean ping(ExecutorService pinger, InetAddress addr, int timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Future<Boolean> echo;
+        try {
+            echo = pinger.submit(() -> {
+                int left = (int) TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                return left > 0 && addr.isReachable(left);
+            });
+        } catch (RejectedExecutionException e) {
+            return false;   // sweep is shutting down
+        }
+        try {
+            // a little slack past the deadline: isReachable enforces the timeout itself
+            return echo.get(timeoutMs + 100L, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            echo.cancel(true);
+            return false;
+        } catch (InterruptedException e) {
+            echo.cancel(true);
+            throw e;
+        }
+    }
+
+    private static boolean connect(InetAddress addr, int port, int timeoutMs) {
+        try (Socket s = new Socket()) {
+            s.connect(new InetSocketAddress(addr, port), timeoutMs);
+            return true;
+        } catch (ConnectException e) {
+            // A RST from a closed port still proves the host is up. The JDK raises ConnectException
+            // for ECONNREFUSED (and the kernel's own ETIMEDOUT, minutes away, well past our timeout);
+            // unreachable hosts and networks surface as NoRouteToHostException / SocketException
+            // and our timeout as SocketTimeoutException, all handled below.
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * IP -> MAC (upper case) for the complete entries of a /proc/net/arp style table:
+     * a header line, then "IP  HW-type  Flags  HW-address  Mask  Device" per entry.
+     */
+    static Map<String, String> readArp(Path file) throws IOException {
+        Map<String, String> out = new LinkedHashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line = in.readLine();   // header
+            while ((line = in.readLine()) != null) {
+                String[] f = line.trim().split("\\s+");
+                if (f.length < 4 || !MAC.matcher(f[3]).matches() || f[3].equals("00:00:00:00:00:00")) continue;
+                int flags;
+                try {
+                    flags = Integer.decode(f[2]);
+                    toLong(f[0]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if ((flags & ATF_COM) != 0) out.putIfAbsent(f[0], f[3].toUpperCase(Locale.ROOT));
+            }
+        }
+        return out;
+    }
+
+    static boolean inRanges(List<Range> ranges, String ip) {
+        long a;
+        try {
+            a = toLong(ip);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return ranges.stream().anyMatch(r -> r.contains(a));
+    }
+
+    static long toLong(String dotted) {
+        String[] p = dotted.split("\\.", -1);
+        if (p.length != 4) throw new NumberFormatException("Not an IPv4 address: " + dotted);
+        long v = 0;
+        for (String octet : p) {
+            int o = Integer.parseInt(octet);
+            if (o < 0 || o > 255 || octet.length() > 3) throw new NumberFormatException("Not an IPv4 address: " + dotted);
+            v = (v << 8) | o;
+        }
+        return v;
+    }
+
+    private static String toDotted(long a) {
+        return ((a >>> 24) & 0xFF) + "." + ((a >>> 16) & 0xFF) + "." + ((a >>> 8) & 0xFF) + "." + (a & 0xFF);
+    }
+
+    private static InetAddress toInet(long a) {
+        try {
+            return InetAddress.getByAddress(new byte[] {(byte) (a >>> 24), (byte) (a >>> 16), (byte) (a >>> 8), (byte) a});
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);   // cannot happen for a 4-byte address
+        }
+    }
+}
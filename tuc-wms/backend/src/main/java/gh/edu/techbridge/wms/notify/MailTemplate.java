@@ -0,0 +1,141 @@
+package gh.edu.techbridge.wms.notify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A mail template parsed ONCE into a segment list: static chunks (already escaped, never
+ * re-escaped) interleaved with named placeholders. Rendering only walks the list and escapes
+ * the placeholder values, appending into a per-thread reusable StringBuilder. Output stays a
+ * String end to end — the mail gateway takes the body as JSON text — so the only encode is
+ * the one the gateway client does when it writes the request.
+ *
+ * Syntax (Mustache subset):
+ *   {{name}}      value escaped with the template's default {@link Escaping}
+ *   {{{name}}}    value written raw (pre-rendered HTML fragments)
+ *   {{! note }}   comment — dropped at compile time, never sent
+ * Compile-time constants (e.g. the crest URL) are inlined into the static chunks.
+ * Thread-safe: a compiled template is immutable.
+ */
+public final class MailTemplate {
+
+    /** Per-template escaping rule for {{name}} placeholders. */
+    public enum Escaping {
+        /** HTML body/attribute context — escapes &amp; &lt; &gt; &quot; &#39;. */
+        HTML,
+        /** Plain text (subjects) — written verbatim. */
+        NONE
+    }
+
+    private sealed interface Segment permits Chunk, Slot { }
+    private record Chunk(String text) implements Segment { }
+    private record Slot(String name, Escaping escaping) implements Segment { }
+
+    // Retained buffers above this many chars are dropped after use so one huge render doesn't pin memory.
+    private static final int MAX_RETAINED = 128 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8 * 1024));
+
+    private final String name;
+    private final Segment[] segments;
+
+    private MailTemplate(String name, Segment[] segments) {
+        this.name = name;
+        this.segments = segments;
+    }
+
+    public static MailTemplate compile(String name, String source, Escaping escaping) {
+        return compile(name, source, escaping, Map.of());
+    }
+
+    /** Parse {@code source}; placeholders named in {@code constants} are inlined as static text. */
+    public static MailTemplate compile(String name, String source, Escaping escaping, Map<String, String> constants) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            int open = source.indexOf("{{", i);
+            if (open < 0) {
+                text.append(source, i, source.length());
+                break;
+            }
+            text.append(source, i, open);
+            boolean raw = source.startsWith("{{{", open);
+            String close = raw ? "}}}" : "}}";
+            int start = open + close.length();
+            int end = source.indexOf(close, start);
+            if (end < 0) throw new IllegalArgumentException(name + ": unclosed placeholder at offset " + open);
+            String tag = source.substring(start, end).trim();
+            i = end + close.length();
+
+            if (tag.startsWith("!")) continue;
+            if (tag.isEmpty()) throw new IllegalArgumentException(name + ": empty placeholder at offset " + open);
+            Escaping mode = raw ? Escaping.NONE : escaping;
+            if (constants.containsKey(tag)) {
+                text.append(escape(constants.get(tag), mode));
+                continue;
+            }
+            if (!text.isEmpty()) {
+                segments.add(new Chunk(text.toString()));
+                text.setLength(0);
+            }
+            segments.add(new Slot(tag, mode));
+        }
+        if (!text.isEmpty()) segments.add(new Chunk(text.toString()));
+        return new MailTemplate(name, segments.toArray(Segment[]::new));
+    }
+
+    public String name() { return name; }
+
+    /** Render with the given values; a missing or null value renders as empty. */
+    public String render(Map<String, ?> values) {
+        StringBuilder buf = BUFFER.get();
+        try {
+            for (Segment s : segments) {
+                switch (s) {
+                    case Chunk c -> buf.append(c.text());
+                    case Slot slot -> {
+                        Object v = values.get(slot.name());
+                        if (v != null) appendEscaped(buf, v.toString(), slot.escaping());
+                    }
+                }
+            }
+            return buf.toString();
+        } finally {
+            if (buf.capacity() > MAX_RETAINED) BUFFER.remove();
+            else buf.setLength(0);
+        }
+    }
+
+    /** Compile-time escaping of constants — same rules render applies to values. */
+    private static String escape(String s, Escaping mode) {
+        if (s == null) return "";
+        if (mode == Escaping.NONE) return s;
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        appendEscaped(sb, s, mode);
+        return sb.toString();
+    }
+
+    private static void appendEscaped(StringBuilder sb, String s, Escaping mode) {
+        if (mode == Escaping.NONE) {
+            sb.append(s);
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String entity = entity(c);
+            if (entity != null) sb.append(entity); else sb.append(c);
+        }
+    }
+
+    private static String entity(char c) {
+        return switch (c) {
+            case '&'  -> "&amp;";
+            case '<'  -> "&lt;";
+            case '>'  -> "&gt;";
+            case '"'  -> "&quot;";
+            case '\'' -> "&#39;";
+            default   -> null;
+        };
+    }
+}
@@ -4,11 +4,13 @@ import gh.edu.techbridge.wms.user.User;
 import gh.edu.techbridge.wms.user.UserRepository;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -22,10 +24,15 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationRepository repo;
+    private final NotificationService notifications;
+    private final NotificationStreamService stream;
     private final UserRepository users;
 
-    public NotificationController(NotificationRepository repo, UserRepository users) {
+    public NotificationController(NotificationRepository repo, NotificationService notifications,
+                                  NotificationStreamService stream, UserRepository users) {
         this.repo = repo;
+        this.notifications = notifications;
+        this.stream = stream;
         this.users = users;
     }
 
@@ -46,13 +53,24 @@ public class NotificationController {
                 ? repo.findByRecipientIdAndReadFlagFalseOrderByCreatedAtDesc(u.getId(), page)
                 : repo.findByRecipientIdOrderByCreatedAtDesc(u.getId(), page);
         long unreadCount = repo.countByRecipientIdAndReadFlagFalse(u.getId());
-        return Map.of("items", items.stream().map(this::dto).toList(), "unreadCount", unreadCount);
+        notifications.resyncUnread(u.getId(), unreadCount);   // opening the inbox corrects any drift
+        return Map.of("items", items.stream().map(NotificationService::dto).toList(), "unreadCount", unreadCount);
     }
 
-    /** Lightweight unread-count for the nav badge poll (FR-NOTIF-006). */
+    /** Unread-count for clients that still poll (FR-NOTIF-006) — served from the in-memory counter. */
     @GetMapping("/unread-count")
     public Map<String, Long> unreadCount(Authentication auth) {
-        return Map.of("count", repo.countByRecipientIdAndReadFlagFalse(me(auth).getId()));
+        return Map.of("count", notifications.unreadCount(me(auth).getId()));
+    }
+
+    /**
+     * Per-user SSE push of the unread count + new notifications (FR-NOTIF-006/007). Replaces
+     * the badge poll: the first event is the current count, then updates arrive as they happen.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication auth) {
+        Long uid = me(auth).getId();
+        return stream.subscribe(uid, notifications.unreadCount(uid));
     }
 
     /** Mark one of the caller's own notifications read (FR-NOTIF-003). */
@@ -60,31 +78,16 @@ public class NotificationController {
     @Transactional
     public ResponseEntity<?> markRead(@PathVariable Long id, Authentication auth) {
         Long uid = me(auth).getId();
-        return repo.findByIdAndRecipientId(id, uid).<ResponseEntity<?>>map(n -> {
-            n.setReadFlag(true);
-            repo.save(n);
-            return ResponseEntity.ok(Map.of("id", n.getId(), "read", true));
-        }).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Not found")));
+        return notifications.markRead(id, uid).<ResponseEntity<?>>map(n ->
+                ResponseEntity.ok(Map.of("id", n.getId(), "read", true))
+        ).orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Not found")));
     }
 
     /** Mark all of the caller's notifications read (FR-NOTIF-003). */
     @PutMapping("/read-all")
     @Transactional
     public Map<String, Object> markAllRead(Authentication auth) {
-        int updated = repo.markAllRead(me(auth).getId());
+        int updated = notifications.markAllRead(me(auth).getId());
         return Map.of("markedRead", updated);
     }
-
-    private Map<String, Object> dto(Notification n) {
-        var m = new java.util.HashMap<String, Object>();
-        m.put("id", n.getId());
-        m.put("type", n.getType());
-        m.put("title", n.getTitle());
-        m.put("body", n.getBody());
-        m.put("projectId", n.getProjectId());
-        m.put("taskId", n.getTaskId());
-        m.put("read", n.isReadFlag());
-        m.put("createdAt", n.getCreatedAt());
-        return m;
-    }
 }
@@ -0,0 +1,177 @@
+package gh.edu.techbridge.wms.notify;
+
+import gh.edu.techbridge.wms.common.AfterCommit;
+import gh.edu.techbridge.wms.config.NotifyProperties;
+import gh.edu.techbridge.wms.project.Project;
+import gh.edu.techbridge.wms.project.ProjectRepository;
+import gh.edu.techbridge.wms.task.Task;
+import gh.edu.techbridge.wms.task.TaskRepository;
+import gh.edu.techbridge.wms.user.User;
+import gh.edu.techbridge.wms.user.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces task-assignment notifications per recipient (FR-NOTIF). The first assignment
+ * for a user opens a window of {@code tucwms.notify.digest-window-seconds}; everything that
+ * lands in it is delivered together when it closes — a single event as the normal
+ * TASK_ASSIGNED notification + email, several as ONE digest notification + ONE email.
+ * Events are only queued once the assigning transaction commits, so a rolled-back bulk
+ * edit never notifies anyone. In-memory (single instance), like ProjectEventService.
+ *
+ * Also owns the daily due-soon / overdue digest: one indexed sweep over wms_tasks.dueDate,
+ * grouped by assignee in memory.
+ */
+@Service
+public class NotificationDigestService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    private final NotifyProperties props;
+    private final NotificationService notifications;
+    private final TaskMailService taskMail;
+    private final UserRepository users;
+    private final TaskRepository tasks;
+    private final ProjectRepository projects;
+
+    /** Open windows keyed by recipient user id. */
+    private final Map<Long, Window> pending = new ConcurrentHashMap<>();
+
+    private record Assignment(Task task, Project project, User actor) { }
+
+    private static final class Window {
+        final Instant openedAt = Instant.now();
+        final Map<Long, Assignment> byTask = new LinkedHashMap<>();   // same task twice in a window = once
+    }
+
+    public NotificationDigestService(NotifyProperties props, NotificationService notifications,
+                                     TaskMailService taskMail, UserRepository users,
+                                     TaskRepository tasks, ProjectRepository projects) {
+        this.props = props;
+        this.notifications = notifications;
+        this.taskMail = taskMail;
+        this.users = users;
+        this.tasks = tasks;
+        this.projects = projects;
+    }
+
+    /** Queue an assignment notification for {@code recipientId}; never notifies the actor. */
+    public void enqueueAssigned(Long recipientId, Task task, Project project, User actor) {
+        if (recipientId == null) return;
+        if (actor != null && recipientId.equals(actor.getId())) return;   // no self-notification
+        Assignment a = new Assignment(task, project, actor);
+        Runnable add = () -> pending.compute(recipientId, (k, w) -> {
+            Window win = w == null ? new Window() : w;
+            win.byTask.put(task.getId(), a);
+            return win;
+        });
+        AfterCommit.run(add);
+    }
+
+    /** Deliver every window older than the configured coalescing window. */
+    @Scheduled(fixedDelay = 5000)
+    public void flushExpired() {
+        flush(Instant.now().minusSeconds(props.getDigestWindowSeconds()));
+    }
+
+    /** Don't drop queued notifications on shutdown. */
+    @PreDestroy
+    public void flushAll() {
+        flush(Instant.MAX);
+    }
+
+    private void flush(Instant openedBefore) {
+        Map<Long, Window> ready = new HashMap<>();
+        for (Long recipientId : pending.keySet()) {
+            pending.computeIfPresent(recipientId, (k, w) -> {
+                if (w.openedAt.isAfter(openedBefore)) return w;
+                ready.put(k, w);
+                return null;
+            });
+        }
+        if (ready.isEmpty()) return;
+
+        // One batched lookup for every recipient in this tick (was one findById per assignee).
+        Map<Long, User> recipients = users.findAllById(ready.keySet()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        ready.forEach((recipientId, window) -> {
+            User recipient = recipients.get(recipientId);
+            if (recipient == null || !recipient.isActive()) return;
+            try {
+                deliver(recipient, new ArrayList<>(window.byTask.values()));
+            } catch (Exception e) {
+                log.warn("[notify] digest for user {} failed: {}", recipientId, e.toString());
+            }
+        });
+    }
+
+    private void deliver(User recipient, List<Assignment> batch) {
+        if (batch.size() == 1) {
+            Assignment a = batch.get(0);
+            notifications.notifyTaskAssigned(recipient, a.task(), a.project(), a.actor());
+            taskMail.notifyAssigned(recipient, a.task(), a.project(), a.actor());
+            return;
+        }
+        Set<String> actors = batch.stream()
+                .map(a -> a.actor() == null ? "A project owner" : a.actor().getFullName())
+                .collect(Collectors.toSet());
+        String actorName = actors.size() == 1 ? actors.iterator().next() : "Your teammates";
+        List<TaskMailService.DigestItem> items = batch.stream()
+                .map(a -> item(a.task(), a.project().getName()))
+                .toList();
+        notifications.notifyAssignedDigest(recipient, actorName, items);
+        taskMail.notifyAssignedDigest(recipient, actorName, items);
+    }
+
+    /**
+     * Daily due-soon / overdue digest. One range scan on idx_task_due joined to the assignee
+     * table returns every (task, assignee) pair in [today - lookback, today + dueSoonDays];
+     * tasks already in their project's final stage (done) or in archived projects are dropped.
+     */
+    @Scheduled(cron = "${tucwms.notify.due-digest-cron:0 0 7 * * *}")
+    public void sendDueDigest() {
+        LocalDate today = LocalDate.now();
+        List<TaskRepository.DueAssignment> rows = tasks.findDueAssignments(
+                today.minusDays(props.getOverdueLookbackDays()), today.plusDays(props.getDueSoonDays()));
+        if (rows.isEmpty()) return;
+
+        Map<Long, Project> projectById = projects.findByIdIn(
+                        rows.stream().map(TaskRepository.DueAssignment::getProjectId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Project::getId, Function.identity()));
+        Map<Long, List<TaskMailService.DigestItem>> byAssignee = new LinkedHashMap<>();
+        for (TaskRepository.DueAssignment r : rows) {
+            Project p = projectById.get(r.getProjectId());
+            if (p == null || p.isArchived()) continue;
+            List<String> stages = p.getStages();
+            if (!stages.isEmpty() && stages.get(stages.size() - 1).equals(r.getStatus())) continue;   // done
+            byAssignee.computeIfAbsent(r.getAssigneeId(), k -> new ArrayList<>())
+                    .add(new TaskMailService.DigestItem(p.getId(), p.getName(), r.getTaskId(), r.getTitle(),
+                            r.getDueDate(), r.getPriority()));
+        }
+
+        int sent = 0;
+        for (User recipient : users.findAllById(byAssignee.keySet())) {
+            if (!recipient.isActive()) continue;
+            List<TaskMailService.DigestItem> items = byAssignee.get(recipient.getId());
+            notifications.notifyDueDigest(recipient, items, today);
+            taskMail.notifyDueDigest(recipient, items, today);
+            sent++;
+        }
+        log.info("[notify] due digest: {} task assignment(s) scanned, {} recipient(s) notified", rows.size(), sent);
+    }
+
+    private static TaskMailService.DigestItem item(Task t, String projectName) {
+        return new TaskMailService.DigestItem(t.getProjectId(), projectName, t.getId(), t.getTitle(),
+                t.getDueDate(), t.getPriority());
+    }
+}
@@ -1,23 +1,101 @@
 package gh.edu.techbridge.wms.notify;
 
+import gh.edu.techbridge.wms.common.AfterCommit;
 import gh.edu.techbridge.wms.project.Project;
 import gh.edu.techbridge.wms.task.Task;
 import gh.edu.techbridge.wms.user.User;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * Creates persistent in-app notifications (FR-NOTIF) — the readable-later counterpart to the
  * assignment email. Called from the same task-event trigger as TaskMailService, so in-app and
  * email stay in lockstep. Strictly per-recipient; never notifies the actor of their own action.
+ * Every insert and read-state change goes through here so the {@link UnreadCounter} and the
+ * user's notification stream stay exact without re-counting.
  */
 @Service
 public class NotificationService {
 
+    private static final String INSERT = "INSERT INTO wms_notifications "
+            + "(recipient_id, type, title, body, project_id, task_id, read_flag, created_at) VALUES (?,?,?,?,?,?,?,?)";
+
     private final NotificationRepository repo;
+    private final UnreadCounter unread;
+    private final NotificationStreamService stream;
+    private final JdbcTemplate jdbc;
 
-    public NotificationService(NotificationRepository repo) {
+    public NotificationService(NotificationRepository repo, UnreadCounter unread, NotificationStreamService stream,
+                               JdbcTemplate jdbc) {
         this.repo = repo;
+        this.unread = unread;
+        this.stream = stream;
+        this.jdbc = jdbc;
+    }
+
+    /** Generic single-row insert for callers that build their own title/body (e.g. @mentions). */
+    @Transactional
+    public void notify(Long recipientId, String type, String title, String body, Long projectId, Long taskId) {
+        create(new Notification(recipientId, type, trim(title, 200), trim(body, 500), projectId, taskId));
+    }
+
+    /**
+     * The same notification for many recipients (e.g. every user @mentioned in one comment), as
+     * a single JDBC batch — Notification uses IDENTITY ids, so Hibernate would insert row by row.
+     */
+    @Transactional
+    public void notifyAll(Collection<Long> recipientIds, String type, String title, String body,
+                          Long projectId, Long taskId) {
+        if (recipientIds.isEmpty()) return;
+        List<Notification> rows = new ArrayList<>(recipientIds.size());
+        for (Long id : recipientIds) {
+            rows.add(new Notification(id, type, trim(title, 200), trim(body, 500), projectId, taskId));
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(con -> con.prepareStatement(INSERT, new String[] {"id"}), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Notification n = rows.get(i);
+                ps.setLong(1, n.getRecipientId());
+                ps.setString(2, n.getType());
+                ps.setString(3, n.getTitle());
+                ps.setString(4, n.getBody());
+                ps.setObject(5, n.getProjectId());
+                ps.setObject(6, n.getTaskId());
+                ps.setBoolean(7, false);
+                ps.setTimestamp(8, Timestamp.from(n.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() { return rows.size(); }
+        }, keys);
+        List<Map<String, Object>> ids = keys.getKeyList();
+        AfterCommit.run(() -> {
+            for (int i = 0; i < rows.size(); i++) {
+                Notification n = rows.get(i);
+                Long recipientId = n.getRecipientId();
+                unread.increment(recipientId, 1);
+                if (stream.isConnected(recipientId) && i < ids.size()) {
+                    Map<String, Object> m = dto(n);
+                    m.put("id", ((Number) ids.get(i).values().iterator().next()).longValue());
+                    stream.publishCreated(recipientId, m, unread.get(recipientId));
+                }
+            }
+        });
     }
 
     @Transactional
@@ -27,10 +105,103 @@ public class NotificationService {
         String who = actor == null ? "A project owner" : actor.getFullName();
         String title = "Assigned: " + task.getTitle();
         String body = who + " assigned you a task in " + project.getName() + ".";
-        repo.save(new Notification(recipient.getId(), "TASK_ASSIGNED", trim(title, 200), trim(body, 500),
+        create(new Notification(recipient.getId(), "TASK_ASSIGNED", trim(title, 200), trim(body, 500),
                 project.getId(), task.getId()));
     }
 
+    /** One in-app row for a coalesced batch of assignments (NotificationDigestService). */
+    @Transactional
+    public void notifyAssignedDigest(User recipient, String actorName, List<TaskMailService.DigestItem> items) {
+        if (recipient == null || !recipient.isActive() || items.isEmpty()) return;
+        Long projectId = singleProject(items);
+        String where = projectId != null ? items.get(0).projectName() : distinctProjects(items) + " projects";
+        String who = actorName == null ? "A project owner" : actorName;
+        create(new Notification(recipient.getId(), TaskMailKind.ASSIGNED_DIGEST.notificationType(),
+                trim("Assigned: " + items.size() + " tasks", 200),
+                trim(who + " assigned you " + items.size() + " tasks in " + where + ".", 500),
+                projectId, null));
+    }
+
+    /** Daily due-soon / overdue summary row for one assignee. */
+    @Transactional
+    public void notifyDueDigest(User recipient, List<TaskMailService.DigestItem> items, LocalDate today) {
+        if (recipient == null || !recipient.isActive() || items.isEmpty()) return;
+        long overdue = items.stream().filter(i -> i.dueDate().isBefore(today)).count();
+        create(new Notification(recipient.getId(), TaskMailKind.DUE_DIGEST.notificationType(),
+                trim(items.size() + " tasks need attention", 200),
+                trim((items.size() - overdue) + " due soon, " + overdue + " overdue.", 500),
+                singleProject(items), items.size() == 1 ? items.get(0).taskId() : null));
+    }
+
+    /** Mark one of the user's own notifications read; empty if it isn't theirs. */
+    @Transactional
+    public Optional<Notification> markRead(Long id, Long recipientId) {
+        return repo.findByIdAndRecipientId(id, recipientId).map(n -> {
+            if (!n.isReadFlag()) {
+                n.setReadFlag(true);
+                repo.save(n);
+                AfterCommit.run(() -> {
+                    unread.decrement(recipientId);
+                    stream.publishUnread(recipientId, unread.get(recipientId));
+                });
+            }
+            return n;
+        });
+    }
+
+    @Transactional
+    public int markAllRead(Long recipientId) {
+        int updated = repo.markAllRead(recipientId);
+        AfterCommit.run(() -> {
+            unread.set(recipientId, 0);
+            stream.publishUnread(recipientId, 0);
+        });
+        return updated;
+    }
+
+    /** Served from the incremental counter — no COUNT query after the first read. */
+    public long unreadCount(Long recipientId) {
+        return unread.get(recipientId);
+    }
+
+    /** Re-sync the counter from a COUNT the caller already ran (the inbox list does one anyway). */
+    void resyncUnread(Long recipientId, long count) {
+        unread.set(recipientId, count);
+    }
+
+    /** The single insert path: the counter and the user's open streams update only once the row commits. */
+    private void create(Notification n) {
+        Notification saved = repo.save(n);
+        Long recipientId = saved.getRecipientId();
+        AfterCommit.run(() -> {
+            unread.increment(recipientId, 1);
+            if (stream.isConnected(recipientId)) {
+                stream.publishCreated(recipientId, dto(saved), unread.get(recipientId));
+            }
+        });
+    }
+
+    static Map<String, Object> dto(Notification n) {
+        var m = new HashMap<String, Object>();
+        m.put("id", n.getId());
+        m.put("type", n.getType());
+        m.put("title", n.getTitle());
+        m.put("body", n.getBody());
+        m.put("projectId", n.getProjectId());
+        m.put("taskId", n.getTaskId());
+        m.put("read", n.isReadFlag());
+        m.put("createdAt", n.getCreatedAt());
+        return m;
+    }
+
+    private static Long singleProject(List<TaskMailService.DigestItem> items) {
+        return distinctProjects(items) == 1 ? items.get(0).projectId() : null;
+    }
+
+    private static long distinctProjects(List<TaskMailService.DigestItem> items) {
+        return items.stream().map(TaskMailService.DigestItem::projectId).distinct().count();
+    }
+
     private static String trim(String s, int max) {
         if (s == null) return null;
         return s.length() <= max ? s : s.substring(0, max - 1) + "…";
@@ -0,0 +1,63 @@
+package gh.edu.techbridge.wms.notify;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Per-user notification push over Server-Sent Events (FR-NOTIF-006/007) — replaces the nav
+ * badge's unread-count poll. Each open tab holds one emitter; on connect it receives the
+ * current "unread" count, then a "notification" event for every new row plus an "unread"
+ * event whenever the count changes. Same in-memory fan-out model as ProjectEventService.
+ */
+@Service
+public class NotificationStreamService {
+
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribe(Long userId, long unreadCount) {
+        // 0L timeout = no server-side timeout; the proxy/client manage lifecycle.
+        SseEmitter emitter = new SseEmitter(0L);
+        List<SseEmitter> list = subscribers.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        emitter.onCompletion(() -> list.remove(emitter));
+        emitter.onTimeout(() -> { list.remove(emitter); emitter.complete(); });
+        emitter.onError(e -> list.remove(emitter));
+        try {
+            emitter.send(SseEmitter.event().name("unread").data(Map.of("count", unreadCount)));
+        } catch (IOException ignored) { }
+        return emitter;
+    }
+
+    /** True if the user has at least one open tab — lets callers skip building payloads. */
+    boolean isConnected(Long userId) {
+        List<SseEmitter> list = subscribers.get(userId);
+        return list != null && !list.isEmpty();
+    }
+
+    void publishCreated(Long userId, Map<String, Object> notification, long unreadCount) {
+        send(userId, "notification", notification);
+        publishUnread(userId, unreadCount);
+    }
+
+    void publishUnread(Long userId, long unreadCount) {
+        send(userId, "unread", Map.of("count", unreadCount));
+    }
+
+    private void send(Long userId, String event, Object payload) {
+        List<SseEmitter> list = subscribers.get(userId);
+        if (list == null) return;
+        for (SseEmitter emitter : list) {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(payload));
+            } catch (Exception e) {
+                list.remove(emitter);   // drop broken connections
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package gh.edu.techbridge.wms.notify;
+
+/**
+ * The task-notification email types. Each kind supplies only its subject line and intro
+ * sentence; the surrounding TUC chrome is the shared mail/task-notification.html layout.
+ * Both templates are compiled once at class init. Vocabulary: actor, project, task,
+ * oldStatus, newStatus, due, excerpt; digests add count, dueSoon, overdue.
+ */
+public enum TaskMailKind {
+
+    ASSIGNED("TASK_ASSIGNED",
+            "You've been assigned: {{task}}",
+            "{{actor}} assigned you a task in <strong>{{project}}</strong>."),
+
+    MENTIONED("TASK_MENTIONED",
+            "{{actor}} mentioned you on: {{task}}",
+            "{{actor}} mentioned you in a comment in <strong>{{project}}</strong>:"
+                    + "<br><span style=\"display:block;margin-top:10px;padding-left:12px;border-left:3px solid #f5a800;color:#444;\">{{excerpt}}</span>"),
+
+    DUE_SOON("TASK_DUE_SOON",
+            "Due {{due}}: {{task}}",
+            "A task assigned to you in <strong>{{project}}</strong> is due soon."),
+
+    STATUS_CHANGED("TASK_STATUS_CHANGED",
+            "{{task}} moved to {{newStatus}}",
+            "{{actor}} moved a task in <strong>{{project}}</strong> from "
+                    + "<strong>{{oldStatus}}</strong> to <strong>{{newStatus}}</strong>."),
+
+    /** Coalesced assignments (NotificationDigestService window) — one email instead of N. */
+    ASSIGNED_DIGEST("TASK_ASSIGNED_DIGEST",
+            "You've been assigned {{count}} tasks",
+            "{{actor}} assigned you <strong>{{count}}</strong> tasks in <strong>{{project}}</strong>."),
+
+    /** Daily due-soon / overdue summary for one assignee. */
+    DUE_DIGEST("TASK_DUE_DIGEST",
+            "{{count}} of your tasks need attention",
+            "You have <strong>{{dueSoon}}</strong> task(s) due soon and <strong>{{overdue}}</strong> overdue.");
+
+    /** Matching in-app Notification.type — keeps email and inbox in lockstep. */
+    private final String notificationType;
+    private final MailTemplate subject;
+    private final MailTemplate intro;
+
+    TaskMailKind(String notificationType, String subject, String intro) {
+        this.notificationType = notificationType;
+        this.subject = MailTemplate.compile(name() + ".subject", subject, MailTemplate.Escaping.NONE);
+        this.intro = MailTemplate.compile(name() + ".intro", intro, MailTemplate.Escaping.HTML);
+    }
+
+    public String notificationType() { return notificationType; }
+    MailTemplate subject() { return subject; }
+    MailTemplate intro() { return intro; }
+}
@@ -3,17 +3,27 @@ package gh.edu.techbridge.wms.notify;
 import gh.edu.techbridge.wms.config.AuthProperties;
 import gh.edu.techbridge.wms.project.Project;
 import gh.edu.techbridge.wms.task.Task;
+import gh.edu.techbridge.wms.task.TaskPriority;
 import gh.edu.techbridge.wms.user.User;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.Year;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Builds and sends the rich "you've been assigned a task" email (FR-NOTIF / FR-TASK-005),
- * styled to match the institutional TUC email standard (rotating campus-video header frame +
- * maroon #6b0020 / gold #f5a800 overlay + TUC crest, table-based for email-client safety).
+ * Builds and sends the rich task-notification emails (FR-NOTIF / FR-TASK-005) — assigned,
+ * mentioned, due soon, status changed — styled to match the institutional TUC email standard
+ * (rotating campus-video header frame + maroon #6b0020 / gold #f5a800 overlay + TUC crest,
+ * table-based for email-client safety). The layout is a precompiled {@link MailTemplate};
+ * each {@link TaskMailKind} contributes only its subject and intro line.
  * Sent async via the hosted gateway so task assignment never waits on email I/O.
  */
 @Service
@@ -27,12 +37,34 @@ public class TaskMailService {
     private static final int CAMPUS_FRAME_COUNT = 12;
     private static final AtomicInteger frameCounter = new AtomicInteger(0);
 
+    private static final int EXCERPT_MAX = 280;
+    // Digest emails list at most this many rows, then "…and N more".
+    private static final int DIGEST_ROWS = 25;
+
     private final MailGatewayClient gateway;
     private final String frontendBase;
+    private final MailTemplate layout;
+    private final MailTemplate card;
+    private final MailTemplate list;
+    private final MailTemplate listRow;
+    private final MailTemplate listMore;
 
-    public TaskMailService(MailGatewayClient gateway, AuthProperties authProps) {
+    public TaskMailService(MailGatewayClient gateway, AuthProperties authProps) throws IOException {
         this.gateway = gateway;
         this.frontendBase = authProps.getFrontendBase();
+        // Parsed once: static chrome is pre-escaped, only per-email values are escaped at send time.
+        this.layout = MailTemplate.compile("task-notification", resource("task-notification"),
+                MailTemplate.Escaping.HTML, Map.of("logo", LOGO));
+        this.card = MailTemplate.compile("task-card", resource("task-card"), MailTemplate.Escaping.HTML);
+        this.list = MailTemplate.compile("task-list", resource("task-list"), MailTemplate.Escaping.HTML);
+        this.listRow = MailTemplate.compile("task-list-row", resource("task-list-row"), MailTemplate.Escaping.HTML);
+        this.listMore = MailTemplate.compile("task-list-more",
+                "<p style=\"margin:-16px 0 28px;font-size:12px;color:#888;\">…and {{count}} more.</p>",
+                MailTemplate.Escaping.HTML);
+    }
+
+    private static String resource(String name) throws IOException {
+        return new ClassPathResource("mail/" + name + ".html").getContentAsString(StandardCharsets.UTF_8);
     }
 
     private static String nextCampusFrame() {
@@ -42,66 +74,114 @@ public class TaskMailService {
 
     @Async
     public void notifyAssigned(User recipient, Task task, Project project, User assigner) {
-        if (recipient == null || !recipient.isActive()) return;
-        String subject = "You've been assigned: " + task.getTitle();
+        send(TaskMailKind.ASSIGNED, recipient, task, project, vars(assigner));
+    }
+
+    /** @mention in a task comment; {@code excerpt} is the comment text (trimmed for the card). */
+    @Async
+    public void notifyMentioned(User recipient, Task task, Project project, User author, String excerpt) {
+        Map<String, Object> v = vars(author);
+        v.put("excerpt", excerpt == null ? "" : trim(excerpt.strip(), EXCERPT_MAX));
+        send(TaskMailKind.MENTIONED, recipient, task, project, v);
+    }
+
+    @Async
+    public void notifyDueSoon(User recipient, Task task, Project project) {
+        send(TaskMailKind.DUE_SOON, recipient, task, project, vars(null));
+    }
+
+    @Async
+    public void notifyStatusChanged(User recipient, Task task, Project project, User actor, String oldStatus) {
+        Map<String, Object> v = vars(actor);
+        v.put("oldStatus", oldStatus);
+        v.put("newStatus", task.getStatus());
+        send(TaskMailKind.STATUS_CHANGED, recipient, task, project, v);
+    }
+
+    private static Map<String, Object> vars(User actor) {
+        Map<String, Object> v = new HashMap<>();
+        v.put("actor", actor == null ? "A project owner" : actor.getFullName());
+        return v;
+    }
+
+    /** One row of a digest email — a detached snapshot, so digests never touch lazy entities. */
+    public record DigestItem(Long projectId, String projectName, Long taskId, String title,
+                             LocalDate dueDate, TaskPriority priority) { }
+
+    /** Coalesced "you've been assigned N tasks" email (NotificationDigestService). */
+    @Async
+    public void notifyAssignedDigest(User recipient, String actorName, List<DigestItem> items) {
+        Map<String, Object> v = new HashMap<>();
+        v.put("actor", actorName == null ? "A project owner" : actorName);
+        sendDigest(TaskMailKind.ASSIGNED_DIGEST, recipient, v, items, null);
+    }
+
+    /** Daily due-soon / overdue summary; items are sorted by due date, overdue first. */
+    @Async
+    public void notifyDueDigest(User recipient, List<DigestItem> items, LocalDate today) {
+        long overdue = items.stream().filter(i -> i.dueDate().isBefore(today)).count();
+        Map<String, Object> v = new HashMap<>();
+        v.put("overdue", overdue);
+        v.put("dueSoon", items.size() - overdue);
+        sendDigest(TaskMailKind.DUE_DIGEST, recipient, v, items, today);
+    }
+
+    private void send(TaskMailKind kind, User to, Task task, Project project, Map<String, Object> v) {
+        if (to == null || !to.isActive()) return;
+        v.put("project", project.getName());
+        v.put("task", task.getTitle());
+        v.put("due", task.getDueDate() == null ? "No due date" : task.getDueDate().toString());
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("taskTitle", task.getTitle());
+        fields.put("priority", priority(task.getPriority()));
+        fields.put("due", v.get("due"));
         // Deep-link to the task on its project board (CallbackPage/ProjectDetail opens ?task=).
         String link = frontendBase + "/projects/" + project.getId() + "?task=" + task.getId();
-        gateway.send(recipient.getEmail(), recipient.getFullName(), subject,
-                html(recipient, task, project, assigner, link));
+        deliver(kind, to, v, card.render(fields), link);
     }
 
-    private String html(User to, Task task, Project project, User assigner, String link) {
-        String campusImg = nextCampusFrame();
-        String priority = task.getPriority() == null ? "—" : cap(task.getPriority().name());
-        String due = task.getDueDate() == null ? "No due date" : task.getDueDate().toString();
-        String assignerName = assigner == null ? "A project owner" : esc(assigner.getFullName());
-        String firstName = to.getFullName() == null ? "there" : esc(to.getFullName().split(" ")[0]);
-
-        return "<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"UTF-8\">"
-            + "<meta name=\"viewport\" content=\"width=device-width,initial-scale=1\"></head>"
-            + "<body style=\"margin:0;padding:0;background:#f4f4f4;font-family:Arial,sans-serif;\">"
-            + "<table width=\"100%\" cellpadding=\"0\" cellspacing=\"0\" style=\"background:#f4f4f4;padding:32px 0;\"><tr><td align=\"center\">"
-            + "<table width=\"560\" cellpadding=\"0\" cellspacing=\"0\" style=\"background:#ffffff;border-radius:8px;overflow:hidden;box-shadow:0 2px 8px rgba(0,0,0,0.08);\">"
-            // Header — rotating campus-video frame behind a maroon overlay (institutional TUC look)
-            + "<tr><td style=\"padding:0;background:#3d0010;background-image:url('" + campusImg + "');background-size:cover;background-position:center;text-align:center;height:200px;\" background=\"" + campusImg + "\">"
-            + "<!--[if gte mso 9]><v:rect xmlns:v=\"urn:schemas-microsoft-com:vml\" fill=\"true\" stroke=\"false\" style=\"width:560px;height:200px;\"><v:fill type=\"frame\" src=\"" + campusImg + "\" color=\"#3d0010\"/><v:textbox inset=\"0,0,0,0\"><![endif]-->"
-            + "<table width=\"100%\" cellpadding=\"0\" cellspacing=\"0\" style=\"background:rgba(63,0,16,0.68);\"><tr><td style=\"padding:28px 32px;text-align:center;height:200px;vertical-align:middle;\">"
-            + "<img src=\"" + LOGO + "\" alt=\"Techbridge University College\" width=\"60\" height=\"60\" style=\"display:block;margin:0 auto 10px;border-radius:50%;background:#fff;padding:4px;\" />"
-            + "<div style=\"color:#f5a800;font-size:10px;font-weight:700;letter-spacing:3px;text-transform:uppercase;margin-bottom:5px;\">Techbridge University College</div>"
-            + "<div style=\"color:#ffffff;font-size:18px;font-weight:700;letter-spacing:1px;\">Work Management System</div>"
-            + "</td></tr></table>"
-            + "<!--[if gte mso 9]></v:textbox></v:rect><![endif]-->"
-            + "</td></tr>"
-            // Body
-            + "<tr><td style=\"padding:40px 32px;\">"
-            + "<p style=\"margin:0 0 8px;font-size:15px;color:#444;\">Hi <strong>" + firstName + "</strong>,</p>"
-            + "<p style=\"margin:0 0 24px;font-size:14px;color:#666;line-height:1.6;\">"
-            + assignerName + " assigned you a task in <strong>" + esc(project.getName()) + "</strong>.</p>"
-            // Task card
-            + "<table width=\"100%\" cellpadding=\"0\" cellspacing=\"0\" style=\"background:#f9f9f9;border:1px solid #eee;border-radius:8px;margin-bottom:28px;\">"
-            + "<tr><td style=\"padding:18px 20px;\">"
-            + "<div style=\"font-size:16px;font-weight:700;color:#1c1612;margin-bottom:10px;\">" + esc(task.getTitle()) + "</div>"
-            + "<div style=\"font-size:13px;color:#666;line-height:1.8;\">"
-            + "<span style=\"display:inline-block;background:#6b0020;color:#fff;border-radius:999px;padding:2px 10px;font-size:11px;font-weight:700;margin-right:8px;\">" + priority + " priority</span>"
-            + "Due: <strong>" + esc(due) + "</strong></div>"
-            + "</td></tr></table>"
-            // CTA
-            + "<table width=\"100%\" cellpadding=\"0\" cellspacing=\"0\"><tr><td align=\"center\" style=\"padding:0 0 28px;\">"
-            + "<a href=\"" + link + "\" style=\"display:inline-block;background:#6b0020;color:#ffffff;font-size:15px;font-weight:700;text-decoration:none;padding:15px 38px;border-radius:8px;letter-spacing:0.5px;\">View in WMS &rarr;</a>"
-            + "</td></tr></table>"
-            + "<p style=\"margin:0;font-size:11px;color:#aaa;word-break:break-all;line-height:1.6;\">Or open: <a href=\"" + link + "\" style=\"color:#6b0020;\">" + link + "</a></p>"
-            + "</td></tr>"
-            // Footer
-            + "<tr><td style=\"background:#f9f9f9;border-top:1px solid #eee;padding:16px 32px;text-align:center;\">"
-            + "<p style=\"margin:0;font-size:11px;color:#bbb;\">&copy; " + Year.now() + " Techbridge University College &middot; Oyibi, Greater Accra, Ghana</p>"
-            + "</td></tr>"
-            + "</table></td></tr></table></body></html>";
+    private void sendDigest(TaskMailKind kind, User to, Map<String, Object> v, List<DigestItem> items, LocalDate today) {
+        if (to == null || !to.isActive() || items.isEmpty()) return;
+        long projectCount = items.stream().map(DigestItem::projectId).distinct().count();
+        v.put("count", items.size());
+        v.put("project", projectCount == 1 ? items.get(0).projectName() : projectCount + " projects");
+
+        StringBuilder rows = new StringBuilder();
+        Map<String, Object> row = new HashMap<>();
+        for (DigestItem item : items.subList(0, Math.min(items.size(), DIGEST_ROWS))) {
+            boolean overdue = today != null && item.dueDate() != null && item.dueDate().isBefore(today);
+            row.put("taskTitle", item.title());
+            row.put("project", item.projectName());
+            row.put("priority", priority(item.priority()));
+            row.put("due", item.dueDate() == null ? "No due date" : item.dueDate() + (overdue ? " (overdue)" : ""));
+            row.put("dueColor", overdue ? "#b00020" : "#444");
+            rows.append(listRow.render(row));
+        }
+        int hidden = items.size() - DIGEST_ROWS;
+        String cards = list.render(Map.of("rows", rows,
+                "more", hidden > 0 ? listMore.render(Map.of("count", hidden)) : ""));
+        String link = projectCount == 1 ? frontendBase + "/projects/" + items.get(0).projectId() : frontendBase + "/";
+        deliver(kind, to, v, cards, link);
     }
 
+    private void deliver(TaskMailKind kind, User to, Map<String, Object> v, String cards, String link) {
+        String subject = kind.subject().render(v);
+        Map<String, Object> page = new HashMap<>();
+        page.put("intro", kind.intro().render(v));
+        page.put("cards", cards);
+        page.put("campusImg", nextCampusFrame());
+        page.put("firstName", to.getFullName() == null ? "there" : to.getFullName().split(" ")[0]);
+        page.put("link", link);
+        page.put("year", Year.now());
+        gateway.send(to.getEmail(), to.getFullName(), subject, layout.render(page));
+    }
+
+    private static String priority(TaskPriority p) { return p == null ? "—" : cap(p.name()); }
+
     private static String cap(String s) { return s.isEmpty() ? s : s.charAt(0) + s.substring(1).toLowerCase(); }
 
-    private static String esc(String s) {
-        if (s == null) return "";
-        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    private static String trim(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max - 1) + "…";
     }
 }
@@ -0,0 +1,66 @@
+package gh.edu.techbridge.wms.notify;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user unread notification count, maintained incrementally so the nav badge never runs a
+ * COUNT query (FR-NOTIF-006). A user's entry is seeded from the database on first read and
+ * then adjusted by NotificationService after each commit: +1 on insert, -1 on mark-read,
+ * 0 on read-all. In-memory (single instance), like ProjectEventService.
+ *
+ * Seeding first installs a pending entry, then runs the COUNT, then swaps in the result under
+ * {@code compute} only if no adjustment reached the pending entry meanwhile. An adjustment
+ * that lands while the COUNT runs may or may not be in its result, so the seed is recounted
+ * rather than guessed; adjustments before the pending entry exists are already committed and
+ * therefore counted.
+ */
+@Component
+public class UnreadCounter {
+
+    private static final int SEED_ATTEMPTS = 3;
+
+    /** Seeded count, or a pending seed with the number of adjustments it has missed. */
+    private record Entry(long value, boolean seeded, int changes) { }
+
+    private final NotificationRepository repo;
+    private final Map<Long, Entry> counts = new ConcurrentHashMap<>();
+
+    public UnreadCounter(NotificationRepository repo) {
+        this.repo = repo;
+    }
+
+    public long get(Long userId) {
+        long counted = 0;
+        for (int attempt = 0; attempt < SEED_ATTEMPTS; attempt++) {
+            Entry e = counts.computeIfAbsent(userId, k -> new Entry(0, false, 0));
+            if (e.seeded()) return e.value();
+            int seen = e.changes();
+            long c = repo.countByRecipientIdAndReadFlagFalse(userId);
+            Entry now = counts.compute(userId, (k, cur) ->
+                    cur != null && !cur.seeded() && cur.changes() == seen ? new Entry(c, true, 0) : cur);
+            counted = c;
+            if (now != null && now.seeded()) return now.value();
+        }
+        return counted;   // still contended: answer uncached, the next read seeds again
+    }
+
+    void increment(Long userId, int by) {
+        counts.computeIfPresent(userId, (k, e) -> e.seeded()
+                ? new Entry(e.value() + by, true, 0)
+                : new Entry(0, false, e.changes() + 1));
+    }
+
+    void decrement(Long userId) {
+        counts.computeIfPresent(userId, (k, e) -> e.seeded()
+                ? new Entry(Math.max(0, e.value() - 1), true, 0)
+                : new Entry(0, false, e.changes() + 1));
+    }
+
+    /** Overwrite with an authoritative value (read-all, or a fresh COUNT from the inbox list). */
+    void set(Long userId, long value) {
+        counts.put(userId, new Entry(value, true, 0));
+    }
+}
@@ -1,6 +1,7 @@
 package gh.edu.techbridge.wms.project;
 
 import gh.edu.techbridge.wms.user.User;
+import gh.edu.techbridge.wms.user.UserDirectory;
 import gh.edu.techbridge.wms.user.UserRepository;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.HttpStatus;
@@ -24,13 +25,15 @@ public class ProjectController {
     private final ProjectMemberRepository members;
     private final ProjectPermissionService perms;
     private final UserRepository users;
+    private final UserDirectory directory;
 
     public ProjectController(ProjectRepository projects, ProjectMemberRepository members,
-                             ProjectPermissionService perms, UserRepository users) {
+                             ProjectPermissionService perms, UserRepository users, UserDirectory directory) {
         this.projects = projects;
         this.members = members;
         this.perms = perms;
         this.users = users;
+        this.directory = directory;
     }
 
     public record CreateProjectRequest(@NotBlank String name, String description, String department,
@@ -113,12 +116,14 @@ public class ProjectController {
         User user = perms.currentUser(auth);
         Project p = load(id);
         perms.requireView(user, p);
-        return members.findByProjectId(id).stream().map(m -> {
-            User u = users.findById(m.getUserId()).orElse(null);
+        List<ProjectMember> list = members.findByProjectId(id);
+        Map<Long, UserDirectory.Entry> people = directory.resolveAll(list.stream().map(ProjectMember::getUserId).toList());
+        return list.stream().map(m -> {
+            UserDirectory.Entry u = people.get(m.getUserId());
             Map<String, Object> map = new HashMap<>();
             map.put("userId", m.getUserId());
-            map.put("email", u == null ? null : u.getEmail());
-            map.put("name", u == null ? null : u.getFullName());
+            map.put("email", u == null ? null : u.email());
+            map.put("name", u == null ? null : u.name());
             map.put("projectRole", m.getProjectRole().name());
             return map;
         }).toList();
@@ -1,8 +1,15 @@
 package gh.edu.techbridge.wms.project;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
     List<Project> findByArchivedFalse();
+
+    /** Batch load with workflow stages fetched in the same query (no per-project lazy load). */
+    @EntityGraph(attributePaths = "stages")
+    List<Project> findByIdIn(Collection<Long> ids);
 }
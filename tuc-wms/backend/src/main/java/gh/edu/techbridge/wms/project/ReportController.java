@@ -3,7 +3,7 @@ package gh.edu.techbridge.wms.project;
 import gh.edu.techbridge.wms.task.Task;
 import gh.edu.techbridge.wms.task.TaskRepository;
 import gh.edu.techbridge.wms.user.User;
-import gh.edu.techbridge.wms.user.UserRepository;
+import gh.edu.techbridge.wms.user.UserDirectory;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,11 +24,11 @@ public class ReportController {
     private final ProjectRepository projects;
     private final ProjectMemberRepository members;
     private final TaskRepository tasks;
-    private final UserRepository users;
+    private final UserDirectory users;
     private final ProjectPermissionService perms;
 
     public ReportController(ProjectRepository projects, ProjectMemberRepository members,
-                            TaskRepository tasks, UserRepository users, ProjectPermissionService perms) {
+                            TaskRepository tasks, UserDirectory users, ProjectPermissionService perms) {
         this.projects = projects;
         this.members = members;
         this.tasks = tasks;
@@ -103,14 +103,12 @@ public class ReportController {
         fetchIds.addAll(assigneeIds);
         fetchIds.addAll(memberIds);
 
-        List<User> projectUsers = users.findAllById(fetchIds);
-        Map<Long, User> userMap = projectUsers.stream()
-                .collect(Collectors.toMap(User::getId, u -> u));
+        Map<Long, UserDirectory.Entry> userMap = users.resolveAll(fetchIds);
 
         // Workload Summary
         List<Map<String, Object>> workloadSummary = new ArrayList<>();
-        for (User u : projectUsers) {
-            Long uid = u.getId();
+        for (UserDirectory.Entry u : userMap.values()) {
+            Long uid = u.id();
             List<Task> userTasks = allTasks.stream()
                     .filter(t -> t.getAssigneeIds().contains(uid))
                     .toList();
@@ -126,8 +124,8 @@ public class ReportController {
 
             Map<String, Object> w = new LinkedHashMap<>();
             w.put("userId", uid);
-            w.put("userName", u.getFullName());
-            w.put("userEmail", u.getEmail());
+            w.put("userName", u.name());
+            w.put("userEmail", u.email());
             w.put("totalTasks", total);
             w.put("completedTasks", completed);
             w.put("uncompletedTasks", uncompleted);
@@ -147,7 +145,7 @@ public class ReportController {
                 ot.put("priority", t.getPriority().name());
 
                 List<String> assignees = t.getAssigneeIds().stream()
-                        .map(uid -> userMap.containsKey(uid) ? userMap.get(uid).getFullName() : "Unknown User")
+                        .map(uid -> userMap.containsKey(uid) ? userMap.get(uid).name() : "Unknown User")
                         .toList();
                 ot.put("assignees", assignees);
                 overdueTasksList.add(ot);
@@ -0,0 +1,50 @@
+package gh.edu.techbridge.wms.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * One-off background job that fills {@code projectId} on activity rows written before the
+ * column existed, so they show up in the project feed. Ids are paged by keyset and each page
+ * is one short UPDATE ... (SELECT projectId FROM Task) transaction. Idempotent: once every row
+ * has a project the startup check is a single empty index probe.
+ */
+@Component
+public class ActivityProjectBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityProjectBackfill.class);
+    private static final int BATCH = 500;
+
+    private final TaskActivityRepository activities;
+    private final TransactionTemplate tx;
+
+    public ActivityProjectBackfill(TaskActivityRepository activities, PlatformTransactionManager txManager) {
+        this.activities = activities;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long afterId = 0, filled = 0;
+        List<Long> ids;
+        while (!(ids = activities.findIdsMissingProject(afterId, PageRequest.of(0, BATCH))).isEmpty()) {
+            List<Long> page = ids;
+            Integer n = tx.execute(s -> activities.fillProjectIds(page));
+            filled += n == null ? 0 : n;
+            afterId = ids.get(ids.size() - 1);   // orphaned rows stay null; the keyset moves past them
+        }
+        if (filled > 0) {
+            log.info("[activity] backfilled projectId on {} activity row(s)", filled);
+        }
+    }
+}
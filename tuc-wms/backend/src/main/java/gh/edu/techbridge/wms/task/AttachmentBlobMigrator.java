@@ -0,0 +1,81 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.config.AttachmentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * One-off background job that moves legacy MEDIUMBLOB attachment content into the
+ * {@link AttachmentStore}. Ids are paged by keyset ({@code migrationBatchSize} per query)
+ * and each row moves in its own short transaction, so at most one BLOB is on the heap and
+ * a bad row is logged and skipped rather than retried forever. Idempotent: a restart
+ * simply resumes with whatever rows still have no storage key.
+ */
+@Component
+public class AttachmentBlobMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentBlobMigrator.class);
+
+    private final AttachmentProperties props;
+    private final AttachmentStore store;
+    private final TaskAttachmentRepository attachments;
+    private final TransactionTemplate tx;
+
+    public AttachmentBlobMigrator(AttachmentProperties props, AttachmentStore store,
+                                  TaskAttachmentRepository attachments, PlatformTransactionManager txManager) {
+        this.props = props;
+        this.store = store;
+        this.attachments = attachments;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!props.isMigrateBlobs()) return;
+        int batchSize = Math.max(1, props.getMigrationBatchSize());
+        long afterId = 0, moved = 0, failed = 0;
+        List<Long> ids;
+        while (!(ids = attachments.findLegacyBlobIds(afterId, PageRequest.of(0, batchSize))).isEmpty()) {
+            for (Long id : ids) {
+                try {
+                    tx.executeWithoutResult(s -> moveOne(id));
+                    moved++;
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("[attachments] migrating attachment {} failed: {}", id, e.toString());
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        if (moved + failed > 0) {
+            log.info("[attachments] BLOB migration done — {} moved to the store, {} failed", moved, failed);
+        }
+    }
+
+    private void moveOne(Long id) {
+        attachments.findById(id).ifPresent(att -> {
+            if (att.getStorageKey() != null) return;   // raced with another instance
+            byte[] data = att.getFileData() == null ? new byte[0] : att.getFileData();
+            try {
+                AttachmentStore.StoredContent stored = store.put(new ByteArrayInputStream(data));
+                att.movedToStore(stored.key());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            attachments.save(att);
+        });
+    }
+}
@@ -0,0 +1,135 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.config.AttachmentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Attachment lifecycle on top of the {@link AttachmentStore} (FR-TASK-007): creates rows for
+ * streamed uploads, opens content for download (stored or legacy BLOB), and garbage-collects
+ * store objects. Deleting a row never deletes content inline — an upload of the same bytes may
+ * be about to reference it, and a rolled-back upload leaves an object no row points at. Instead
+ * a periodic sweep removes objects that no row references and that have not been stored or
+ * adopted for {@code orphanGraceMinutes}, far longer than any upload transaction.
+ */
+@Service
+public class AttachmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentService.class);
+    private static final int SWEEP_BATCH = 500;
+
+    private final AttachmentProperties props;
+    private final AttachmentStore store;
+    private final TaskAttachmentRepository attachments;
+
+    public AttachmentService(AttachmentProperties props, AttachmentStore store, TaskAttachmentRepository attachments) {
+        this.props = props;
+        this.store = store;
+        this.attachments = attachments;
+    }
+
+    /** Stream {@code content} into the store and record the attachment row. */
+    public TaskAttachment create(Long taskId, String fileName, String contentType, InputStream content,
+                                 Long uploadedById) throws IOException {
+        AttachmentStore.StoredContent stored = store.put(content);
+        return attachments.save(new TaskAttachment(taskId, fileName, contentType, stored.size(),
+                stored.key(), uploadedById));
+    }
+
+    /** Record an attachment whose content was assembled and hashed by the caller (resumable uploads). */
+    public TaskAttachment createFromStaged(Long taskId, String fileName, String contentType, Path staged,
+                                           String key, long size, Long uploadedById) throws IOException {
+        AttachmentStore.StoredContent stored = store.adopt(staged, key, size);
+        return attachments.save(new TaskAttachment(taskId, fileName, contentType, stored.size(),
+                stored.key(), uploadedById));
+    }
+
+    /** Readable content: the stored object, or the in-row bytes of a not-yet-migrated legacy row. */
+    public SeekableByteChannel open(TaskAttachment att) throws IOException {
+        if (att.getStorageKey() != null) return store.open(att.getStorageKey());
+        byte[] legacy = att.getFileData() == null ? new byte[0] : att.getFileData();
+        return new ByteArraySeekableChannel(legacy);
+    }
+
+    /** Content stays in the store until {@link #sweepUnreferenced()} finds it unreferenced. */
+    public void delete(TaskAttachment att) {
+        attachments.delete(att);
+    }
+
+    public void deleteAllForTask(Long taskId) {
+        attachments.findByTaskIdOrderByUploadedAtDesc(taskId).forEach(this::delete);
+    }
+
+    /** Remove store objects past the grace period that no attachment row references. */
+    @Scheduled(cron = "${tucwms.attachments.sweep-cron:0 20 4 * * *}")
+    public void sweepUnreferenced() {
+        Instant cutoff = Instant.now().minusSeconds(props.getOrphanGraceMinutes() * 60L);
+        int removed = 0;
+        try (Stream<String> keys = store.keysOlderThan(cutoff)) {
+            List<String> batch = new ArrayList<>(SWEEP_BATCH);
+            for (Iterator<String> it = keys.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == SWEEP_BATCH || !it.hasNext()) {
+                    removed += removeUnreferenced(batch, cutoff);
+                    batch.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("[attachments] content sweep stopped: {}", e.toString());
+        }
+        if (removed > 0) log.info("[attachments] removed {} unreferenced content objects", removed);
+    }
+
+    private int removeUnreferenced(List<String> keys, Instant cutoff) throws IOException {
+        Set<String> referenced = new HashSet<>(attachments.findReferencedStorageKeys(keys));
+        int removed = 0;
+        for (String key : keys) {
+            // An upload that adopted this content after the query refreshed its timestamp, so
+            // the age check under the store's lock keeps it.
+            if (!referenced.contains(key) && store.deleteIfOlderThan(key, cutoff)) removed++;
+        }
+        return removed;
+    }
+
+    /** Read-only channel over a legacy in-row BLOB, so downloads have one code path. */
+    private static final class ByteArraySeekableChannel implements SeekableByteChannel {
+        private final byte[] data;
+        private long position;
+        private boolean open = true;
+
+        ByteArraySeekableChannel(byte[] data) { this.data = data; }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position >= data.length) return -1;
+            int n = (int) Math.min(dst.remaining(), data.length - position);
+            dst.put(data, (int) position, n);
+            position += n;
+            return n;
+        }
+
+        @Override public int write(ByteBuffer src) { throw new NonWritableChannelException(); }
+        @Override public long position() { return position; }
+        @Override public SeekableByteChannel position(long p) { this.position = p; return this; }
+        @Override public long size() { return data.length; }
+        @Override public SeekableByteChannel truncate(long size) { throw new NonWritableChannelException(); }
+        @Override public boolean isOpen() { return open; }
+        @Override public void close() { open = false; }
+    }
+}
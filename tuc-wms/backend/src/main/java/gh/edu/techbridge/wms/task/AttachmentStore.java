@@ -0,0 +1,56 @@
+package gh.edu.techbridge.wms.task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Storage SPI for task attachment content (FR-TASK-007). Content is addressed by the
+ * lowercase hex SHA-256 of its bytes, so identical uploads are stored once and the key
+ * doubles as a strong ETag. Metadata (name, type, uploader) stays in wms_task_attachments;
+ * a row points at its content through {@link TaskAttachment#getStorageKey()}.
+ *
+ * Content is never deleted when a row goes away: a concurrent upload of the same bytes may be
+ * about to reference it. AttachmentService instead sweeps objects that no row references and
+ * that nobody has stored or adopted within a grace period; {@link #put} and {@link #adopt}
+ * refresh an object's timestamp even when the content already existed.
+ */
+public interface AttachmentStore {
+
+    /** Content key + byte length of a stored object. */
+    record StoredContent(String key, long size) { }
+
+    /** Stream {@code in} into the store, hashing as it goes; never buffers the whole object. */
+    StoredContent put(InputStream in) throws IOException;
+
+    /** A fresh, empty staging file inside the store's volume, for callers that assemble content themselves. */
+    Path newStagingFile() throws IOException;
+
+    /**
+     * Move a fully written staging file into the store under {@code key}, which the caller has
+     * already computed. Dedup-aware: if the content exists the staging file is just deleted
+     * and the existing object's timestamp refreshed.
+     */
+    StoredContent adopt(Path staged, String key, long size) throws IOException;
+
+    /**
+     * Open stored content for reading. Local implementations return a
+     * {@link java.nio.channels.FileChannel} so callers can use {@code transferTo}.
+     */
+    SeekableByteChannel open(String key) throws IOException;
+
+    boolean exists(String key);
+
+    /** Keys of objects last stored or adopted before {@code cutoff}. The stream must be closed. */
+    Stream<String> keysOlderThan(Instant cutoff) throws IOException;
+
+    /**
+     * Remove content, unless it was stored or adopted at or after {@code cutoff} — atomically
+     * with respect to {@link #adopt}, so content re-adopted after the caller checked its
+     * references survives. Callers must first make sure no attachment row references the key.
+     */
+    boolean deleteIfOlderThan(String key, Instant cutoff) throws IOException;
+}
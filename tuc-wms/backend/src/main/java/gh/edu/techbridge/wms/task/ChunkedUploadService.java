@@ -0,0 +1,234 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.config.AttachmentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable attachment uploads (FR-TASK-007): initiate → PUT chunks at byte offsets →
+ * complete with the client's SHA-256. Each chunk is appended straight to a staging file in
+ * the store's volume and fed to a running digest, so neither a chunk nor the file is ever
+ * held on the heap and completion needs no second read. A client whose connection drops asks
+ * for {@link #status} and resumes from {@code received}; bytes already persisted are skipped
+ * if it re-sends them. Sessions live in memory (single instance, like ProjectEventService):
+ * a restart drops them and the client starts over.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private final AttachmentProperties props;
+    private final AttachmentStore store;
+    private final AttachmentService attachments;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public record UploadStatus(String uploadId, String fileName, long size, long received, int chunkSize) { }
+
+    private static final class Session {
+        final String id = UUID.randomUUID().toString();
+        final Long taskId;
+        final Long userId;
+        final String fileName;
+        final String contentType;
+        final long size;
+        final Path staging;
+        final MessageDigest sha = FileSystemAttachmentStore.sha256();
+        long received;
+        boolean closed;
+        volatile Instant touchedAt = Instant.now();
+
+        Session(Long taskId, Long userId, String fileName, String contentType, long size, Path staging) {
+            this.taskId = taskId;
+            this.userId = userId;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.size = size;
+            this.staging = staging;
+        }
+    }
+
+    public ChunkedUploadService(AttachmentProperties props, AttachmentStore store, AttachmentService attachments) {
+        this.props = props;
+        this.store = store;
+        this.attachments = attachments;
+    }
+
+    public UploadStatus initiate(Long taskId, Long userId, String fileName, String contentType, long size) throws IOException {
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot upload empty file");
+        }
+        if (size > props.getMaxUploadSize()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File exceeds the " + props.getMaxUploadSize() / (1024 * 1024) + "MB size limit");
+        }
+        long open = sessions.values().stream().filter(s -> s.userId.equals(userId)).count();
+        if (open >= props.getMaxOpenUploadsPerUser()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many uploads in progress — finish or cancel one first");
+        }
+        Session s = new Session(taskId, userId, fileName, contentType, size, store.newStagingFile());
+        sessions.put(s.id, s);
+        return status(s);
+    }
+
+    public UploadStatus status(String uploadId, Long taskId, Long userId) {
+        return status(session(uploadId, taskId, userId));
+    }
+
+    /**
+     * Write one chunk that starts at {@code offset}. {@code offset} may be at or before the
+     * bytes already received (a retry after a lost response); it may not leave a gap. At most
+     * {@code chunkSize} bytes are taken per request. If the body is cut off mid-way, whatever
+     * arrived is kept and reflected in the next {@link #status}.
+     */
+    public UploadStatus writeChunk(String uploadId, Long taskId, Long userId, long offset, long contentLength,
+                                   InputStream body) throws IOException {
+        Session s = session(uploadId, taskId, userId);
+        int chunkSize = props.getChunkSize();
+        synchronized (s) {
+            if (s.closed) throw notFound();
+            if (offset < 0 || offset > s.received) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Expected a chunk at offset " + s.received + ", got " + offset);
+            }
+            if (contentLength > chunkSize) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Chunks may be at most " + chunkSize + " bytes");
+            }
+            if (contentLength >= 0 && offset + contentLength > s.size) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk runs past the declared file size");
+            }
+            if (!skip(body, s.received - offset)) {
+                s.touchedAt = Instant.now();
+                return status(s);                  // nothing new in this retry
+            }
+
+            byte[] buf = new byte[64 * 1024];
+            ByteBuffer bb = ByteBuffer.wrap(buf);
+            long budget = Math.min(chunkSize, s.size - s.received);
+            try (FileChannel ch = FileChannel.open(s.staging, StandardOpenOption.WRITE)) {
+                ch.truncate(s.received);           // drop any tail a failed write left behind
+                ch.position(s.received);
+                int n;
+                while (budget > 0 && (n = body.read(buf, 0, (int) Math.min(buf.length, budget))) > 0) {
+                    bb.clear().limit(n);
+                    while (bb.hasRemaining()) ch.write(bb);
+                    s.sha.update(buf, 0, n);       // digest and file advance together
+                    s.received += n;
+                    budget -= n;
+                }
+            } finally {
+                s.touchedAt = Instant.now();
+            }
+            if (budget == 0 && body.read() >= 0) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Chunk too large — " + s.received + " bytes accepted so far");
+            }
+            return status(s);
+        }
+    }
+
+    /**
+     * Verify the whole upload against the client's SHA-256 and turn it into an attachment.
+     * A mismatch discards the session (the bytes on disk are not what the client sent).
+     */
+    public TaskAttachment complete(String uploadId, Long taskId, Long userId, String sha256) throws IOException {
+        Session s = session(uploadId, taskId, userId);
+        synchronized (s) {
+            if (s.closed) throw notFound();
+            if (s.received != s.size) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Upload incomplete: " + s.received + " of " + s.size + " bytes received");
+            }
+            s.closed = true;
+            sessions.remove(s.id);
+            try {
+                String key = HexFormat.of().formatHex(s.sha.digest());
+                if (sha256 == null || !key.equalsIgnoreCase(sha256.trim())) {
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                            "Checksum mismatch — the upload was discarded, please try again");
+                }
+                return attachments.createFromStaged(s.taskId, s.fileName, s.contentType, s.staging, key, s.size,
+                        s.userId);
+            } finally {
+                Files.deleteIfExists(s.staging);   // no-op once adopted by the store
+            }
+        }
+    }
+
+    public void abort(String uploadId, Long taskId, Long userId) throws IOException {
+        discard(session(uploadId, taskId, userId));
+    }
+
+    /** Drop sessions nobody has touched within the TTL, with their staging files. */
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void expireIdle() {
+        Instant cutoff = Instant.now().minusSeconds(props.getUploadTtlMinutes() * 60L);
+        for (Session s : sessions.values()) {
+            if (s.touchedAt.isAfter(cutoff)) continue;
+            try {
+                discard(s);
+                log.info("[attachments] expired idle upload {} ({} of {} bytes)", s.id, s.received, s.size);
+            } catch (IOException e) {
+                log.warn("[attachments] could not remove staging file {}: {}", s.staging, e.toString());
+            }
+        }
+    }
+
+    private void discard(Session s) throws IOException {
+        synchronized (s) {
+            if (s.closed) return;
+            s.closed = true;
+            sessions.remove(s.id);
+            Files.deleteIfExists(s.staging);
+        }
+    }
+
+    /** Sessions are only visible to the user that opened them, on the task they were opened for. */
+    private Session session(String uploadId, Long taskId, Long userId) {
+        Session s = uploadId == null ? null : sessions.get(uploadId);
+        if (s == null || !s.taskId.equals(taskId) || !s.userId.equals(userId)) throw notFound();
+        return s;
+    }
+
+    private UploadStatus status(Session s) {
+        return new UploadStatus(s.id, s.fileName, s.size, s.received, props.getChunkSize());
+    }
+
+    private static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found or expired");
+    }
+
+    /** Discard {@code n} bytes of {@code in}; false if the stream ended first. */
+    private static boolean skip(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long k = in.skip(n);
+            if (k <= 0) {
+                if (in.read() < 0) return false;
+                k = 1;
+            }
+            n -= k;
+        }
+        return true;
+    }
+}
@@ -3,13 +3,13 @@ package gh.edu.techbridge.wms.task;
 import gh.edu.techbridge.wms.project.Project;
 import gh.edu.techbridge.wms.project.ProjectPermissionService;
 import gh.edu.techbridge.wms.project.ProjectRepository;
-import gh.edu.techbridge.wms.notify.Notification;
-import gh.edu.techbridge.wms.notify.NotificationRepository;
 import gh.edu.techbridge.wms.user.User;
-import gh.edu.techbridge.wms.user.UserRepository;
+import gh.edu.techbridge.wms.user.UserDirectory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,10 +18,15 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Controller handling task comments, activity logs, and attachments (FR-TASK-005, -006, -007).
@@ -32,17 +37,20 @@ public class CollaborationController {
 
     private final ProjectRepository projects;
     private final TaskRepository tasks;
-    private final UserRepository users;
+    private final UserDirectory users;
     private final ProjectPermissionService perms;
     private final TaskCommentRepository comments;
     private final TaskActivityRepository activities;
     private final TaskAttachmentRepository attachments;
-    private final NotificationRepository notifications;
+    private final MentionProcessor mentions;
+    private final AttachmentService attachmentService;
+    private final ChunkedUploadService uploads;
 
-    public CollaborationController(ProjectRepository projects, TaskRepository tasks, UserRepository users,
+    public CollaborationController(ProjectRepository projects, TaskRepository tasks, UserDirectory users,
                                    ProjectPermissionService perms, TaskCommentRepository comments,
                                    TaskActivityRepository activities, TaskAttachmentRepository attachments,
-                                   NotificationRepository notifications) {
+                                   MentionProcessor mentions, AttachmentService attachmentService,
+                                   ChunkedUploadService uploads) {
         this.projects = projects;
         this.tasks = tasks;
         this.users = users;
@@ -50,7 +58,9 @@ public class CollaborationController {
         this.comments = comments;
         this.activities = activities;
         this.attachments = attachments;
-        this.notifications = notifications;
+        this.mentions = mentions;
+        this.attachmentService = attachmentService;
+        this.uploads = uploads;
     }
 
     private Task loadTask(Long projectId, Long taskId) {
@@ -81,9 +91,8 @@ public class CollaborationController {
         // Load authors map
         Set<Long> authorIds = new HashSet<>();
         commentList.forEach(c -> authorIds.add(c.getAuthorId()));
-        List<User> authors = users.findAllById(authorIds);
         Map<Long, String> authorNames = new HashMap<>();
-        authors.forEach(u -> authorNames.put(u.getId(), u.getFullName()));
+        users.resolveAll(authorIds).forEach((id, u) -> authorNames.put(id, u.name()));
 
         return commentList.stream()
                 .map(c -> new CommentResponse(
@@ -116,42 +125,11 @@ public class CollaborationController {
         TaskComment c = comments.save(new TaskComment(taskId, user.getId(), req.content().trim()));
 
         // Log task activity
-        activities.save(new TaskActivity(taskId, user.getId(), "COMMENT_ADDED", "Added a comment."));
-
-        // Scan for @mentions in comment content
-        // Mentions look like @username or @username@domain.com
-        Set<User> mentionedUsers = scanMentions(req.content());
-        for (User recipient : mentionedUsers) {
-            if (recipient.getId().equals(user.getId())) continue; // Skip self-mention
-            notifications.save(new Notification(
-                    recipient.getId(),
-                    "TASK_MENTIONED",
-                    "Mentioned in: " + task.getTitle(),
-                    user.getFullName() + " mentioned you in a comment on task \"" + task.getTitle() + "\".",
-                    projectId,
-                    taskId
-            ));
-        }
+        activities.save(new TaskActivity(projectId, taskId, user.getId(), "COMMENT_ADDED", "Added a comment."));
 
-        return new CommentResponse(c.getId(), c.getTaskId(), c.getAuthorId(), user.getFullName(), c.getContent(), c.getCreatedAt());
-    }
+        mentions.process(task, project, user, c.getContent());   // @email, @local-part or @name handles
 
-    private Set<User> scanMentions(String text) {
-        Set<User> found = new HashSet<>();
-        if (text == null) return found;
-
-        // Matches @ followed by username characters
-        Pattern pattern = Pattern.compile("@([a-zA-Z0-9._-]+(?:@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,4})?)");
-        Matcher matcher = pattern.matcher(text);
-        while (matcher.find()) {
-            String mention = matcher.group(1).trim().toLowerCase();
-            Optional<User> mentionedUserOpt = users.findByEmail(mention);
-            if (!mentionedUserOpt.isPresent() && !mention.contains("@")) {
-                mentionedUserOpt = users.findByEmail(mention + "@techbridge.edu.gh");
-            }
-            mentionedUserOpt.ifPresent(found::add);
-        }
-        return found;
+        return new CommentResponse(c.getId(), c.getTaskId(), c.getAuthorId(), user.getFullName(), c.getContent(), c.getCreatedAt());
     }
 
     // --- Activities (FR-TASK-006) ---
@@ -171,9 +149,8 @@ public class CollaborationController {
         // Load actors map
         Set<Long> actorIds = new HashSet<>();
         activityList.forEach(a -> actorIds.add(a.getActorId()));
-        List<User> actors = users.findAllById(actorIds);
         Map<Long, String> actorNames = new HashMap<>();
-        actors.forEach(u -> actorNames.put(u.getId(), u.getFullName()));
+        users.resolveAll(actorIds).forEach((id, u) -> actorNames.put(id, u.name()));
 
         return activityList.stream()
                 .map(a -> new ActivityResponse(
@@ -205,9 +182,8 @@ public class CollaborationController {
         // Load uploaders map
         Set<Long> uploaderIds = new HashSet<>();
         attList.forEach(a -> uploaderIds.add(a.getUploadedById()));
-        List<User> uploaders = users.findAllById(uploaderIds);
         Map<Long, String> uploaderNames = new HashMap<>();
-        uploaders.forEach(u -> uploaderNames.put(u.getId(), u.getFullName()));
+        users.resolveAll(uploaderIds).forEach((id, u) -> uploaderNames.put(id, u.name()));
 
         return attList.stream()
                 .map(a -> new AttachmentResponse(
@@ -242,22 +218,15 @@ public class CollaborationController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File exceeds the 10MB size limit");
         }
 
-        try {
-            byte[] fileData = file.getBytes();
-            String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unnamed-file";
-            String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
-
-            TaskAttachment attachment = attachments.save(new TaskAttachment(
-                    taskId,
-                    fileName,
-                    contentType,
-                    file.getSize(),
-                    fileData,
-                    user.getId()
-            ));
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "unnamed-file";
+        String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+
+        // Streamed from the multipart temp file into the content-addressed store — never a byte[].
+        try (InputStream in = file.getInputStream()) {
+            TaskAttachment attachment = attachmentService.create(taskId, fileName, contentType, in, user.getId());
 
             // Log activity
-            activities.save(new TaskActivity(taskId, user.getId(), "ATTACHMENT_ADDED", "Uploaded file: " + fileName));
+            activities.save(new TaskActivity(projectId, taskId, user.getId(), "ATTACHMENT_ADDED", "Uploaded file: " + fileName));
 
             return new AttachmentResponse(
                     attachment.getId(),
@@ -275,10 +244,16 @@ public class CollaborationController {
         }
     }
 
+    /**
+     * Stream an attachment (FR-TASK-007) straight from the store with {@code FileChannel.transferTo}.
+     * The SHA-256 content key is a strong ETag (If-None-Match → 304), and a single
+     * {@code Range: bytes=} request is honoured (206 / 416) so large files can resume.
+     * No transaction is held open while bytes are written.
+     */
     @GetMapping("/attachments/{attachmentId}")
-    @Transactional(readOnly = true)
-    public ResponseEntity<byte[]> downloadAttachment(@PathVariable Long projectId, @PathVariable Long taskId,
-                                                     @PathVariable Long attachmentId, Authentication auth) {
+    public void downloadAttachment(@PathVariable Long projectId, @PathVariable Long taskId,
+                                   @PathVariable Long attachmentId, Authentication auth,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException {
         User user = perms.currentUser(auth);
         Project project = projects.findById(projectId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
         perms.requireView(user, project);
@@ -291,10 +266,175 @@ public class CollaborationController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Attachment is not linked to this task");
         }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(att.getContentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + att.getFileName() + "\"")
-                .body(att.getFileData());
+        long size = att.getFileSize();
+        String etag = att.getStorageKey() == null ? null : "\"" + att.getStorageKey() + "\"";
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Revalidate every time: access is per-user, but an unchanged file costs only a 304.
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+        }
+
+        long start = 0, length = size;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] r = parseRange(range, size);
+            if (r == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (r.length == 2) {
+                start = r[0];
+                length = r[1] - r[0] + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + r[0] + "-" + r[1] + "/" + size);
+            }
+        }
+
+        response.setContentType(att.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(att.getFileName(), StandardCharsets.UTF_8).build().toString());
+        response.setContentLengthLong(length);
+
+        try (SeekableByteChannel in = attachmentService.open(att)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            if (in instanceof FileChannel fc) {
+                long pos = start, remaining = length;
+                while (remaining > 0) {
+                    long n = fc.transferTo(pos, remaining, out);
+                    if (n <= 0) break;   // file shorter than recorded (truncated on disk)
+                    pos += n;
+                    remaining -= n;
+                }
+            } else {
+                in.position(start);
+                ByteBuffer buf = ByteBuffer.allocate(8192);
+                long remaining = length;
+                while (remaining > 0) {
+                    buf.clear().limit((int) Math.min(buf.capacity(), remaining));
+                    int n = in.read(buf);
+                    if (n < 0) break;
+                    buf.flip();
+                    while (buf.hasRemaining()) out.write(buf);
+                    remaining -= n;
+                }
+            }
+        }
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parse a single {@code bytes=} range against {@code size}. Returns {start, end} (inclusive),
+     * an empty array to serve the whole file (multi-range / non-byte units are ignored, as
+     * RFC 9110 allows), or null when the range is unsatisfiable.
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return new long[0];
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return new long[0];
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            long start, end;
+            if (from.isEmpty()) {                       // bytes=-N : last N bytes
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) return null;
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(from);
+                end = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+            }
+            if (start >= size || start > end) return null;
+            return new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    // --- Resumable uploads (FR-TASK-007): initiate → PUT chunks → complete with SHA-256 ---
+
+    public record InitiateUploadRequest(String fileName, String contentType, Long size) { }
+    public record CompleteUploadRequest(String sha256) { }
+
+    @PostMapping("/attachments/uploads")
+    public ChunkedUploadService.UploadStatus initiateUpload(@PathVariable Long projectId, @PathVariable Long taskId,
+                                                            @RequestBody InitiateUploadRequest req,
+                                                            Authentication auth) throws IOException {
+        User user = requireAttachmentWriter(projectId, taskId, auth);
+        if (req.size() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File size is required");
+        }
+        String fileName = req.fileName() != null && !req.fileName().isBlank() ? req.fileName() : "unnamed-file";
+        String contentType = req.contentType() != null && !req.contentType().isBlank()
+                ? req.contentType() : "application/octet-stream";
+        return uploads.initiate(taskId, user.getId(), fileName, contentType, req.size());
+    }
+
+    @GetMapping("/attachments/uploads/{uploadId}")
+    public ChunkedUploadService.UploadStatus uploadStatus(@PathVariable Long projectId, @PathVariable Long taskId,
+                                                          @PathVariable String uploadId, Authentication auth) {
+        User user = requireAttachmentWriter(projectId, taskId, auth);
+        return uploads.status(uploadId, taskId, user.getId());
+    }
+
+    /** Raw request body = the chunk bytes, starting at {@code offset} in the file. */
+    @PutMapping("/attachments/uploads/{uploadId}")
+    public ChunkedUploadService.UploadStatus uploadChunk(@PathVariable Long projectId, @PathVariable Long taskId,
+                                                         @PathVariable String uploadId, @RequestParam long offset,
+                                                         Authentication auth, HttpServletRequest request) throws IOException {
+        User user = requireAttachmentWriter(projectId, taskId, auth);
+        try (InputStream in = request.getInputStream()) {
+            return uploads.writeChunk(uploadId, taskId, user.getId(), offset, request.getContentLengthLong(), in);
+        }
+    }
+
+    @PostMapping("/attachments/uploads/{uploadId}/complete")
+    @Transactional
+    public AttachmentResponse completeUpload(@PathVariable Long projectId, @PathVariable Long taskId,
+                                             @PathVariable String uploadId, @RequestBody CompleteUploadRequest req,
+                                             Authentication auth) throws IOException {
+        User user = requireAttachmentWriter(projectId, taskId, auth);
+        TaskAttachment attachment = uploads.complete(uploadId, taskId, user.getId(), req.sha256());
+
+        activities.save(new TaskActivity(projectId, taskId, user.getId(), "ATTACHMENT_ADDED", "Uploaded file: " + attachment.getFileName()));
+
+        return new AttachmentResponse(attachment.getId(), attachment.getTaskId(), attachment.getFileName(),
+                attachment.getContentType(), attachment.getFileSize(), attachment.getUploadedById(),
+                user.getFullName(), attachment.getUploadedAt());
+    }
+
+    @DeleteMapping("/attachments/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable Long projectId, @PathVariable Long taskId,
+                                         @PathVariable String uploadId, Authentication auth) throws IOException {
+        User user = requireAttachmentWriter(projectId, taskId, auth);
+        uploads.abort(uploadId, taskId, user.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    private User requireAttachmentWriter(Long projectId, Long taskId, Authentication auth) {
+        User user = perms.currentUser(auth);
+        Project project = projects.findById(projectId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
+        perms.requireView(user, project);
+        perms.requireWritable(project);
+        loadTask(projectId, taskId);
+        return user;
     }
 
     @DeleteMapping("/attachments/{attachmentId}")
@@ -314,10 +454,10 @@ public class CollaborationController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Attachment is not linked to this task");
         }
 
-        attachments.delete(att);
+        attachmentService.delete(att);   // content swept later once no row references it
 
         // Log activity
-        activities.save(new TaskActivity(taskId, user.getId(), "ATTACHMENT_REMOVED", "Deleted file: " + att.getFileName()));
+        activities.save(new TaskActivity(projectId, taskId, user.getId(), "ATTACHMENT_REMOVED", "Deleted file: " + att.getFileName()));
 
         return ResponseEntity.noContent().build();
     }
@@ -0,0 +1,105 @@
+package gh.edu.techbridge.wms.task;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only RFC 4180 record reader: quoted fields may hold commas, doubled quotes and line
+ * breaks; CRLF, LF and CR all end a record. One record is in memory at a time, and a field
+ * longer than {@code maxField} characters fails the read rather than growing without bound.
+ * A leading UTF-8 BOM (as written by TaskExportService) is skipped.
+ */
+final class CsvReader {
+
+    /** Malformed input; {@code line} is the 1-based physical line where it was noticed. */
+    static final class CsvException extends IOException {
+        final long line;
+
+        CsvException(long line, String message) {
+            super("Line " + line + ": " + message);
+            this.line = line;
+        }
+    }
+
+    private final Reader in;
+    private final int maxField;
+    private long line = 1;
+    private int peeked = -2;
+    private boolean started;
+
+    CsvReader(Reader in, int maxField) {
+        this.in = in;
+        this.maxField = maxField;
+    }
+
+    /** Physical line the next record starts on. */
+    long line() {
+        return line;
+    }
+
+    /** The next record, or null at end of input. Blank lines are returned as a single empty field. */
+    List<String> next() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == '\uFEFF') read();
+        }
+        if (peek() == -1) return null;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) throw new CsvException(line, "unterminated quoted field");
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    append(field, (char) c);
+                }
+                continue;
+            }
+            if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') read();
+                if (c != -1) line++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (wasQuoted) {
+                throw new CsvException(line, "unexpected character after closing quote");
+            } else {
+                append(field, (char) c);
+            }
+        }
+    }
+
+    private void append(StringBuilder field, char c) throws CsvException {
+        if (field.length() >= maxField) throw new CsvException(line, "field longer than " + maxField + " characters");
+        field.append(c);
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) peeked = in.read();
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+}
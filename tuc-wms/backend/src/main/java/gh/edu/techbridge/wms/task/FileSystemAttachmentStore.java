@@ -0,0 +1,152 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.config.AttachmentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local-filesystem {@link AttachmentStore}. Layout: {@code {storageDir}/ab/cd/abcd…} (two-level
+ * fan-out on the SHA-256 key). Uploads stream into {@code {storageDir}/tmp} while being hashed,
+ * then are atomically renamed into place — or discarded if that content already exists. An
+ * object's mtime is when it was last stored or adopted; adopt and the age-checked delete hold
+ * the same per-key lock stripe, so a sweep cannot remove content an upload has just claimed.
+ */
+@Component
+public class FileSystemAttachmentStore implements AttachmentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemAttachmentStore.class);
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Path tmp;
+    private final Object[] stripes = new Object[64];
+
+    public FileSystemAttachmentStore(AttachmentProperties props) {
+        this.root = Path.of(props.getStorageDir()).toAbsolutePath().normalize();
+        this.tmp = root.resolve("tmp");
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Object();
+        try {
+            Files.createDirectories(tmp);
+            // Single instance: nothing can be mid-upload yet, so leftovers are from a crash/restart.
+            try (var stale = Files.list(tmp)) {
+                stale.forEach(f -> f.toFile().delete());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create attachment store at " + root, e);
+        }
+        log.info("[attachments] filesystem store at {}", root);
+    }
+
+    @Override
+    public StoredContent put(InputStream in) throws IOException {
+        Path staged = newStagingFile();
+        try {
+            MessageDigest sha = sha256();
+            long size;
+            try (InputStream din = new DigestInputStream(in, sha);
+                 OutputStream out = Files.newOutputStream(staged, StandardOpenOption.TRUNCATE_EXISTING)) {
+                size = din.transferTo(out);
+            }
+            return adopt(staged, HexFormat.of().formatHex(sha.digest()), size);
+        } finally {
+            Files.deleteIfExists(staged);   // no-op once adopt() has moved it
+        }
+    }
+
+    @Override
+    public Path newStagingFile() throws IOException {
+        return Files.createTempFile(tmp, "up-", ".part");
+    }
+
+    @Override
+    public StoredContent adopt(Path staged, String key, long size) throws IOException {
+        if (!staged.toAbsolutePath().normalize().startsWith(tmp)) {
+            throw new IllegalArgumentException("Staging file is outside the store");
+        }
+        Path target = path(key);
+        synchronized (stripe(key)) {
+            if (Files.exists(target)) {
+                Files.deleteIfExists(staged);   // identical content already stored
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException raced) {
+                    Files.deleteIfExists(staged);
+                }
+            }
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+        }
+        return new StoredContent(key, size);
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return FileChannel.open(path(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(path(key));
+    }
+
+    @Override
+    public Stream<String> keysOlderThan(Instant cutoff) throws IOException {
+        // Objects sit exactly three levels down; tmp/ files never match the key pattern.
+        return Files.find(root, 3, (p, attrs) -> attrs.isRegularFile()
+                        && KEY.matcher(p.getFileName().toString()).matches()
+                        && attrs.lastModifiedTime().toInstant().isBefore(cutoff))
+                .map(p -> p.getFileName().toString());
+    }
+
+    @Override
+    public boolean deleteIfOlderThan(String key, Instant cutoff) throws IOException {
+        Path target = path(key);
+        synchronized (stripe(key)) {
+            if (!Files.exists(target) || !Files.getLastModifiedTime(target).toInstant().isBefore(cutoff)) {
+                return false;
+            }
+            return Files.deleteIfExists(target);
+        }
+    }
+
+    private Object stripe(String key) {
+        return stripes[Integer.parseInt(key.substring(0, 2), 16) % stripes.length];
+    }
+
+    private Path path(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid attachment key");
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);   // mandated by every JRE
+        }
+    }
+}
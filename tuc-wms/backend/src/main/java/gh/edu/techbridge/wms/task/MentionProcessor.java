@@ -0,0 +1,152 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.common.AfterCommit;
+import gh.edu.techbridge.wms.config.AuthProperties;
+import gh.edu.techbridge.wms.notify.NotificationService;
+import gh.edu.techbridge.wms.notify.TaskMailService;
+import gh.edu.techbridge.wms.project.Project;
+import gh.edu.techbridge.wms.user.User;
+import gh.edu.techbridge.wms.user.UserDirectory;
+import gh.edu.techbridge.wms.user.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves @mentions in a task comment and fans out the notifications (FR-TASK-005). A mention
+ * is {@code @someone@domain} (full email), {@code @someone} (email local part on the allowed
+ * domain) or {@code @name} — a name handle such as {@code @kwame.asante}, or any unambiguous
+ * prefix of one ({@code @kwame}, at least {@value #MIN_PREFIX} characters). Handles resolve
+ * in memory against a {@link HandleDirectory} of active users, derived from {@link UserDirectory}
+ * and rebuilt whenever that changes; the users themselves are then
+ * loaded with one IN query (which also picks up any full email the directory has not seen
+ * yet), notified with one batch insert, and emailed asynchronously after commit.
+ */
+@Component
+public class MentionProcessor {
+
+    // Not preceded by a word char, '.' or '@', so the domain of a plain email in the text is not a mention.
+    private static final Pattern MENTION =
+            Pattern.compile("(?<![\\w.@])@([a-zA-Z0-9._-]+(?:@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,})?)");
+    private static final int MAX_MENTIONS = 50;
+    private static final int MIN_PREFIX = 3;
+    private static final long AMBIGUOUS = -1L;
+
+    private final UserRepository users;
+    private final UserDirectory userDirectory;
+    private final NotificationService notifications;
+    private final TaskMailService taskMail;
+    private final String domain;
+    private volatile HandleDirectory directory = HandleDirectory.EMPTY;
+
+    public MentionProcessor(UserRepository users, UserDirectory userDirectory, NotificationService notifications,
+                            TaskMailService taskMail, AuthProperties authProps) {
+        this.users = users;
+        this.userDirectory = userDirectory;
+        this.notifications = notifications;
+        this.taskMail = taskMail;
+        String d = authProps.getAllowedDomain().toLowerCase(Locale.ROOT);
+        this.domain = d.startsWith("@") ? d : "@" + d;
+    }
+
+    /**
+     * Immutable snapshot: full email → id, plus handle → id for email local parts and name
+     * handles, sorted so a prefix is a subMap range. A handle shared by two users maps to
+     * {@link #AMBIGUOUS} and never resolves.
+     */
+    private record HandleDirectory(long version, Map<String, Long> byEmail, NavigableMap<String, Long> byHandle) {
+        static final HandleDirectory EMPTY = new HandleDirectory(-1, Map.of(), new TreeMap<>());
+
+        Long resolve(String token) {
+            Long id = byHandle.get(token);
+            if (id != null) return id == AMBIGUOUS ? null : id;
+            if (token.length() < MIN_PREFIX) return null;
+            Long only = null;
+            for (Long candidate : byHandle.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                if (candidate == AMBIGUOUS || (only != null && !only.equals(candidate))) return null;
+                only = candidate;
+            }
+            return only;
+        }
+    }
+
+    /** The handle directory for the current UserDirectory version; rebuilt (no DB access) when that moved on. */
+    private HandleDirectory directory() {
+        HandleDirectory dir = directory;
+        long v = userDirectory.version();
+        if (dir.version() == v) return dir;
+        Map<String, Long> byEmail = new HashMap<>();
+        NavigableMap<String, Long> byHandle = new TreeMap<>();
+        for (UserDirectory.Entry u : userDirectory.all()) {
+            if (!u.active() || u.email() == null) continue;
+            String email = u.email().toLowerCase(Locale.ROOT);
+            byEmail.put(email, u.id());
+            int at = email.indexOf('@');
+            if (at > 0) addHandle(byHandle, email.substring(0, at), u.id());
+            if (u.name() != null) {
+                String[] parts = u.name().toLowerCase(Locale.ROOT).trim().split("[^\\p{L}\\p{N}]+");
+                String joined = String.join(".", parts);
+                if (!joined.isEmpty()) {
+                    addHandle(byHandle, joined, u.id());
+                    addHandle(byHandle, String.join("", parts), u.id());
+                }
+            }
+        }
+        dir = new HandleDirectory(v, byEmail, byHandle);
+        directory = dir;
+        return dir;
+    }
+
+    private static void addHandle(Map<String, Long> byHandle, String handle, Long id) {
+        byHandle.merge(handle, id, (a, b) -> a.equals(b) ? a : AMBIGUOUS);
+    }
+
+    /** Notify everyone mentioned in {@code content} (except the author). Call inside the comment's transaction. */
+    public void process(Task task, Project project, User author, String content) {
+        Set<String> tokens = extract(content);
+        if (tokens.isEmpty()) return;
+
+        HandleDirectory dir = directory();
+        Set<Long> ids = new HashSet<>();
+        Set<String> unknownEmails = new HashSet<>();
+        for (String token : tokens) {
+            String email = token.indexOf('@') >= 0 ? token : token + domain;
+            Long id = dir.byEmail().get(email);
+            if (id == null && token.indexOf('@') < 0) id = dir.resolve(token);
+            if (id != null) ids.add(id);
+            else if (token.indexOf('@') >= 0) unknownEmails.add(email);   // may be newer than the snapshot
+        }
+        if (ids.isEmpty() && unknownEmails.isEmpty()) return;
+
+        // Never pass an empty IN list: not every database accepts "IN ()".
+        List<User> recipients = users.findByIdInOrEmailIn(
+                ids.isEmpty() ? List.of(-1L) : ids,
+                unknownEmails.isEmpty() ? List.of("") : unknownEmails).stream()
+                .filter(User::isActive)
+                .filter(u -> !u.getId().equals(author.getId()))   // no self-mention
+                .toList();
+        if (recipients.isEmpty()) return;
+
+        notifications.notifyAll(recipients.stream().map(User::getId).toList(), "TASK_MENTIONED",
+                "Mentioned in: " + task.getTitle(),
+                author.getFullName() + " mentioned you in a comment on task \"" + task.getTitle() + "\".",
+                project.getId(), task.getId());
+        AfterCommit.run(() -> recipients.forEach(r -> taskMail.notifyMentioned(r, task, project, author, content)));
+    }
+
+    /** Distinct mention tokens, lower-cased, without trailing punctuation; at most MAX_MENTIONS. */
+    static Set<String> extract(String text) {
+        if (text == null || text.indexOf('@') < 0) return Set.of();
+        Set<String> tokens = new LinkedHashSet<>();
+        Matcher m = MENTION.matcher(text);
+        while (m.find() && tokens.size() < MAX_MENTIONS) {
+            String token = m.group(1).toLowerCase(Locale.ROOT);
+            int end = token.length();
+            while (end > 0 && (token.charAt(end - 1) == '.' || token.charAt(end - 1) == '-')) end--;
+            if (end > 0) tokens.add(token.substring(0, end));
+        }
+        return tokens;
+    }
+}
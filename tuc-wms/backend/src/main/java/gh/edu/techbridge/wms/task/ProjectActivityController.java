@@ -0,0 +1,186 @@
+package gh.edu.techbridge.wms.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gh.edu.techbridge.wms.project.Project;
+import gh.edu.techbridge.wms.project.ProjectPermissionService;
+import gh.edu.techbridge.wms.project.ProjectRepository;
+import gh.edu.techbridge.wms.project.ProjectRole;
+import gh.edu.techbridge.wms.user.User;
+import gh.edu.techbridge.wms.user.UserDirectory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Project-wide activity feed (FR-TASK-006): what changed across every task of a project,
+ * newest first. Pages use a keyset cursor over (occurredAt, id) on the denormalised
+ * projectId, so each page is one range scan on idx_activity_project_time no matter how far
+ * back the reader scrolls, and it stays stable while new entries arrive. Actor and action-type
+ * filters are optional. {@code /export} streams the same rows oldest-first as NDJSON for
+ * audits, a page at a time, so a year of history never sits on the heap.
+ */
+@RestController
+@RequestMapping("/api/projects/{projectId}/activity")
+public class ProjectActivityController {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 200;
+    private static final int EXPORT_PAGE = 1000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ProjectRepository projects;
+    private final ProjectPermissionService perms;
+    private final TaskActivityRepository activities;
+    private final TaskRepository tasks;
+    private final UserDirectory users;
+    private final ObjectMapper mapper;
+
+    public ProjectActivityController(ProjectRepository projects, ProjectPermissionService perms,
+                                     TaskActivityRepository activities, TaskRepository tasks,
+                                     UserDirectory users, ObjectMapper mapper) {
+        this.projects = projects;
+        this.perms = perms;
+        this.activities = activities;
+        this.tasks = tasks;
+        this.users = users;
+        this.mapper = mapper;
+    }
+
+    public record FeedEntry(Long id, Long taskId, String taskTitle, Long actorId, String actorName,
+                            String actionType, String detail, Instant occurredAt) { }
+
+    /** {@code nextCursor} is null on the last page. */
+    public record FeedPage(List<FeedEntry> items, String nextCursor) { }
+
+    @GetMapping
+    public FeedPage feed(@PathVariable Long projectId,
+                         @RequestParam(required = false) String cursor,
+                         @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+                         @RequestParam(required = false) Long actorId,
+                         @RequestParam(required = false) String type,
+                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+                         Authentication auth) {
+        User user = perms.currentUser(auth);
+        perms.requireView(user, project(projectId));
+
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        Instant beforeAt = Instant.now().plus(Duration.ofDays(1));   // first page: everything up to now
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor c = Cursor.decode(cursor);
+            beforeAt = c.at();
+            beforeId = c.id();
+        }
+        List<TaskActivity> rows = activities.findFeedPage(projectId, since == null ? Instant.EPOCH : since,
+                beforeAt, beforeId, actorId, blankToNull(type), PageRequest.of(0, size + 1));
+        boolean more = rows.size() > size;
+        if (more) rows = rows.subList(0, size);
+        String next = more ? new Cursor(rows.get(size - 1).getOccurredAt(), rows.get(size - 1).getId()).encode() : null;
+        return new FeedPage(entries(rows), next);
+    }
+
+    /** NDJSON, one FeedEntry per line, oldest first within [from, to). Project owners only. */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable Long projectId,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                        @RequestParam(required = false) Long actorId,
+                                                        @RequestParam(required = false) String type,
+                                                        Authentication auth) {
+        User user = perms.currentUser(auth);
+        perms.require(user, project(projectId), ProjectRole.OWNER);
+
+        Instant until = to == null ? Instant.now() : to;
+        Instant start = from == null ? Instant.EPOCH : from;
+        String actionType = blankToNull(type);
+        StreamingResponseBody body = out -> {
+            Instant afterAt = start.minusNanos(1);
+            long afterId = Long.MAX_VALUE;
+            List<TaskActivity> page;
+            do {
+                page = activities.findExportPage(projectId, until, afterAt, afterId, actorId, actionType,
+                        PageRequest.of(0, EXPORT_PAGE));
+                writeLines(out, entries(page));
+                if (!page.isEmpty()) {
+                    TaskActivity last = page.get(page.size() - 1);
+                    afterAt = last.getOccurredAt();
+                    afterId = last.getId();
+                }
+            } while (page.size() == EXPORT_PAGE);
+        };
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("project-" + projectId + "-activity.ndjson").build().toString())
+                .body(body);
+    }
+
+    private void writeLines(OutputStream out, List<FeedEntry> entries) throws java.io.IOException {
+        for (FeedEntry e : entries) {
+            out.write(mapper.writeValueAsBytes(e));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /** Labels a page: actor names from the UserDirectory, task titles in one IN query. */
+    private List<FeedEntry> entries(List<TaskActivity> rows) {
+        if (rows.isEmpty()) return List.of();
+        Set<Long> actorIds = new HashSet<>();
+        Set<Long> taskIds = new HashSet<>();
+        for (TaskActivity a : rows) {
+            actorIds.add(a.getActorId());
+            taskIds.add(a.getTaskId());
+        }
+        Map<Long, UserDirectory.Entry> actors = users.resolveAll(actorIds);
+        Map<Long, String> titles = new HashMap<>();
+        tasks.findTitles(taskIds).forEach(t -> titles.put(t.getId(), t.getTitle()));
+        return rows.stream().map(a -> {
+            UserDirectory.Entry actor = actors.get(a.getActorId());
+            return new FeedEntry(a.getId(), a.getTaskId(), titles.get(a.getTaskId()), a.getActorId(),
+                    actor == null ? "Unknown User" : actor.name(), a.getActionType(), a.getDetail(), a.getOccurredAt());
+        }).toList();
+    }
+
+    /** Opaque page cursor: base64url("occurredAt|id"). */
+    private record Cursor(Instant at, long id) {
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((at + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String s) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(s), StandardCharsets.UTF_8);
+                int bar = raw.indexOf('|');
+                return new Cursor(Instant.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+
+    private Project project(Long id) {
+        return projects.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+}
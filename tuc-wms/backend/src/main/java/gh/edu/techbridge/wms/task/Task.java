@@ -1,6 +1,7 @@
 package gh.edu.techbridge.wms.task;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -16,7 +17,9 @@ import java.util.Set;
 @Entity
 @Table(name = "wms_tasks", indexes = {
         @Index(name = "idx_task_project", columnList = "projectId"),
-        @Index(name = "idx_task_parent", columnList = "parentTaskId")
+        @Index(name = "idx_task_parent", columnList = "parentTaskId"),
+        @Index(name = "idx_task_due", columnList = "dueDate"),   // daily due-soon/overdue digest sweep
+        @Index(name = "idx_task_project_updated", columnList = "projectId, updatedAt")   // inactivity timers
 })
 public class Task {
 
@@ -36,6 +39,7 @@ public class Task {
 
     /** Assignee user ids (FR-AUTH users). */
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "wms_task_assignees", joinColumns = @JoinColumn(name = "task_id"))
     @Column(name = "user_id")
     private Set<Long> assigneeIds = new HashSet<>();
@@ -57,6 +61,7 @@ public class Task {
     private String status;
 
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "wms_task_tags", joinColumns = @JoinColumn(name = "task_id"))
     @Column(name = "tag")
     private Set<String> tags = new HashSet<>();
@@ -66,6 +71,7 @@ public class Task {
 
     /** Task ids this task is blocked by (FR-TASK-004). */
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "wms_task_blocked_by", joinColumns = @JoinColumn(name = "task_id"))
     @Column(name = "blocking_task_id")
     private Set<Long> blockedByTaskIds = new HashSet<>();
@@ -77,6 +83,11 @@ public class Task {
     private Instant createdAt = Instant.now();
     private Instant updatedAt = Instant.now();
 
+    /** Optimistic lock: an automation run that raced a user edit retries rather than overwriting it. */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     protected Task() { }
 
     public Task(Long projectId, String title, Long createdByUserId) {
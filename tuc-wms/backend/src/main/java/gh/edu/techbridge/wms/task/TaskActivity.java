@@ -3,9 +3,14 @@ package gh.edu.techbridge.wms.task;
 import jakarta.persistence.*;
 import java.time.Instant;
 
+/**
+ * One entry in a task's activity log (FR-TASK-006). {@code projectId} is denormalised from the
+ * task so the project-wide feed is a single range scan on idx_activity_project_time.
+ */
 @Entity
 @Table(name = "wms_task_activities", indexes = {
-        @Index(name = "idx_activity_task", columnList = "taskId")
+        @Index(name = "idx_activity_task", columnList = "taskId"),
+        @Index(name = "idx_activity_project_time", columnList = "projectId, occurredAt, id")
 })
 public class TaskActivity {
 
@@ -13,6 +18,9 @@ public class TaskActivity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /** Null only on rows written before the column existed, until ActivityProjectBackfill fills them. */
+    private Long projectId;
+
     @Column(nullable = false)
     private Long taskId;
 
@@ -31,7 +39,8 @@ public class TaskActivity {
 
     protected TaskActivity() { }
 
-    public TaskActivity(Long taskId, Long actorId, String actionType, String detail) {
+    public TaskActivity(Long projectId, Long taskId, Long actorId, String actionType, String detail) {
+        this.projectId = projectId;
         this.taskId = taskId;
         this.actorId = actorId;
         this.actionType = actionType;
@@ -39,6 +48,7 @@ public class TaskActivity {
     }
 
     public Long getId() { return id; }
+    public Long getProjectId() { return projectId; }
     public Long getTaskId() { return taskId; }
     public Long getActorId() { return actorId; }
     public String getActionType() { return actionType; }
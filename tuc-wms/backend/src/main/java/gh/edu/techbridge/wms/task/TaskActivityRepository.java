@@ -1,8 +1,45 @@
 package gh.edu.techbridge.wms.task;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface TaskActivityRepository extends JpaRepository<TaskActivity, Long> {
     List<TaskActivity> findByTaskIdOrderByOccurredAtDesc(Long taskId);
+
+    /**
+     * Project feed page, newest first, strictly after the keyset cursor (occurredAt, id) —
+     * a range scan on idx_activity_project_time however deep the page. Null filters match all.
+     */
+    @Query("SELECT a FROM TaskActivity a WHERE a.projectId = :projectId AND a.occurredAt >= :since "
+            + "AND (a.occurredAt < :beforeAt OR (a.occurredAt = :beforeAt AND a.id < :beforeId)) "
+            + "AND (:actorId IS NULL OR a.actorId = :actorId) AND (:type IS NULL OR a.actionType = :type) "
+            + "ORDER BY a.occurredAt DESC, a.id DESC")
+    List<TaskActivity> findFeedPage(@Param("projectId") Long projectId, @Param("since") Instant since,
+                                    @Param("beforeAt") Instant beforeAt, @Param("beforeId") Long beforeId,
+                                    @Param("actorId") Long actorId, @Param("type") String type, Pageable page);
+
+    /** Export page, oldest first, after the keyset cursor (occurredAt, id), up to {@code until}. */
+    @Query("SELECT a FROM TaskActivity a WHERE a.projectId = :projectId AND a.occurredAt < :until "
+            + "AND (a.occurredAt > :afterAt OR (a.occurredAt = :afterAt AND a.id > :afterId)) "
+            + "AND (:actorId IS NULL OR a.actorId = :actorId) AND (:type IS NULL OR a.actionType = :type) "
+            + "ORDER BY a.occurredAt ASC, a.id ASC")
+    List<TaskActivity> findExportPage(@Param("projectId") Long projectId, @Param("until") Instant until,
+                                      @Param("afterAt") Instant afterAt, @Param("afterId") Long afterId,
+                                      @Param("actorId") Long actorId, @Param("type") String type, Pageable page);
+
+    /** Keyset page of rows written before projectId was denormalised (ActivityProjectBackfill). */
+    @Query("SELECT a.id FROM TaskActivity a WHERE a.projectId IS NULL AND a.id > :afterId ORDER BY a.id")
+    List<Long> findIdsMissingProject(@Param("afterId") Long afterId, Pageable page);
+
+    @Modifying
+    @Query("UPDATE TaskActivity a SET a.projectId = (SELECT t.projectId FROM Task t WHERE t.id = a.taskId) "
+            + "WHERE a.id IN :ids")
+    int fillProjectIds(@Param("ids") Collection<Long> ids);
 }
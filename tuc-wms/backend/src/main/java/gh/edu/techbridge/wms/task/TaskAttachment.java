@@ -3,9 +3,18 @@ package gh.edu.techbridge.wms.task;
 import jakarta.persistence.*;
 import java.time.Instant;
 
+/**
+ * Task attachment metadata (FR-TASK-007). Content lives in the {@link AttachmentStore} under
+ * {@code storageKey} (SHA-256). Legacy rows uploaded before the store existed keep their bytes
+ * in {@code fileData} until AttachmentBlobMigrator moves them out.
+ *
+ * Existing MariaDB schemas need the BLOB column relaxed once (ddl-auto=update never alters it):
+ *   ALTER TABLE wms_task_attachments MODIFY file_data MEDIUMBLOB NULL;
+ */
 @Entity
 @Table(name = "wms_task_attachments", indexes = {
-        @Index(name = "idx_attachment_task", columnList = "taskId")
+        @Index(name = "idx_attachment_task", columnList = "taskId"),
+        @Index(name = "idx_attachment_storage_key", columnList = "storageKey")
 })
 public class TaskAttachment {
 
@@ -25,10 +34,15 @@ public class TaskAttachment {
     @Column(nullable = false)
     private Long fileSize;
 
+    /** Legacy in-row content; null for everything stored via {@link AttachmentStore}. */
     @Lob
-    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    @Column(columnDefinition = "MEDIUMBLOB")
     private byte[] fileData;
 
+    /** Lowercase hex SHA-256 of the content — the AttachmentStore key and the download ETag. */
+    @Column(length = 64)
+    private String storageKey;
+
     @Column(nullable = false)
     private Long uploadedById;
 
@@ -37,12 +51,12 @@ public class TaskAttachment {
 
     protected TaskAttachment() { }
 
-    public TaskAttachment(Long taskId, String fileName, String contentType, Long fileSize, byte[] fileData, Long uploadedById) {
+    public TaskAttachment(Long taskId, String fileName, String contentType, Long fileSize, String storageKey, Long uploadedById) {
         this.taskId = taskId;
         this.fileName = fileName;
         this.contentType = contentType;
         this.fileSize = fileSize;
-        this.fileData = fileData;
+        this.storageKey = storageKey;
         this.uploadedById = uploadedById;
     }
 
@@ -52,6 +66,13 @@ public class TaskAttachment {
     public String getContentType() { return contentType; }
     public Long getFileSize() { return fileSize; }
     public byte[] getFileData() { return fileData; }
+    public String getStorageKey() { return storageKey; }
+
+    /** Point a legacy row at its stored copy and drop the in-row bytes. */
+    public void movedToStore(String storageKey) {
+        this.storageKey = storageKey;
+        this.fileData = null;
+    }
     public Long getUploadedById() { return uploadedById; }
     public Instant getUploadedAt() { return uploadedAt; }
 }
@@ -1,8 +1,21 @@
 package gh.edu.techbridge.wms.task;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface TaskAttachmentRepository extends JpaRepository<TaskAttachment, Long> {
     List<TaskAttachment> findByTaskIdOrderByUploadedAtDesc(Long taskId);
+
+    /** Which of {@code keys} some row still references — the content sweep keeps those. */
+    @Query("SELECT DISTINCT a.storageKey FROM TaskAttachment a WHERE a.storageKey IN :keys")
+    List<String> findReferencedStorageKeys(@Param("keys") Collection<String> keys);
+
+    /** Keyset page of legacy BLOB rows (ids only, so the batch query never loads content). */
+    @Query("SELECT a.id FROM TaskAttachment a WHERE a.storageKey IS NULL AND a.id > :afterId ORDER BY a.id")
+    List<Long> findLegacyBlobIds(@Param("afterId") Long afterId, Pageable page);
 }
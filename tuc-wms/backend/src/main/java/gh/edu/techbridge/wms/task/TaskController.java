@@ -4,19 +4,26 @@ import gh.edu.techbridge.wms.project.Project;
 import gh.edu.techbridge.wms.project.ProjectRepository;
 import gh.edu.techbridge.wms.project.ProjectPermissionService;
 import gh.edu.techbridge.wms.project.ProjectRole;
-import gh.edu.techbridge.wms.notify.NotificationService;
-import gh.edu.techbridge.wms.notify.TaskMailService;
+import gh.edu.techbridge.wms.notify.NotificationDigestService;
 import gh.edu.techbridge.wms.user.User;
-import gh.edu.techbridge.wms.user.UserRepository;
+import gh.edu.techbridge.wms.user.UserDirectory;
 import gh.edu.techbridge.wms.automation.AutomationService;
+import gh.edu.techbridge.wms.automation.TimeTriggerScheduler;
+import gh.edu.techbridge.wms.automation.TriggerType;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -29,40 +36,47 @@ public class TaskController {
     private final ProjectRepository projects;
     private final ProjectPermissionService perms;
     private final ProjectEventService events;
-    private final UserRepository users;
-    private final TaskMailService taskMail;
-    private final NotificationService notifications;
+    private final UserDirectory users;
+    private final NotificationDigestService digests;
     private final AutomationService automation;
+    private final TimeTriggerScheduler timers;
     private final TaskActivityRepository activities;
     private final TaskCommentRepository comments;
-    private final TaskAttachmentRepository attachments;
+    private final AttachmentService attachments;
+    private final TaskListStreamer listStreamer;
+    private final TaskExportService exporter;
+    private final TaskImportService importer;
 
     public TaskController(TaskRepository tasks, ProjectRepository projects, ProjectPermissionService perms,
-                          ProjectEventService events, UserRepository users, TaskMailService taskMail,
-                          NotificationService notifications, AutomationService automation,
+                          ProjectEventService events, UserDirectory users,
+                          NotificationDigestService digests, AutomationService automation,
+                          TimeTriggerScheduler timers,
                           TaskActivityRepository activities, TaskCommentRepository comments,
-                          TaskAttachmentRepository attachments) {
+                          AttachmentService attachments, TaskListStreamer listStreamer,
+                          TaskExportService exporter, TaskImportService importer) {
         this.tasks = tasks;
         this.projects = projects;
         this.perms = perms;
         this.events = events;
         this.users = users;
-        this.taskMail = taskMail;
-        this.notifications = notifications;
+        this.digests = digests;
         this.automation = automation;
+        this.timers = timers;
         this.activities = activities;
         this.comments = comments;
         this.attachments = attachments;
+        this.listStreamer = listStreamer;
+        this.exporter = exporter;
+        this.importer = importer;
     }
 
-    /** Notify each given assignee (except the actor): in-app notification + email. */
+    /**
+     * Notify each given assignee (except the actor): in-app notification + email (FR-NOTIF-004).
+     * Queued through the digest window, so a bulk assign reaches each person as one message.
+     */
     private void notifyAssignees(java.util.Collection<Long> assigneeIds, Task t, Project p, User actor) {
         for (Long uid : assigneeIds) {
-            if (uid == null || uid.equals(actor.getId())) continue;   // no self-notification
-            users.findById(uid).ifPresent(recipient -> {
-                notifications.notifyTaskAssigned(recipient, t, p, actor);   // FR-NOTIF in-app
-                taskMail.notifyAssigned(recipient, t, p, actor);            // FR-NOTIF-004 email
-            });
+            digests.enqueueAssigned(uid, t, p, actor);
         }
     }
 
@@ -91,33 +105,74 @@ public class TaskController {
             t.setParentTaskId(parent.getId());
         }
         Task saved = tasks.save(t);
-        activities.save(new TaskActivity(saved.getId(), user.getId(), "CREATED", "Task created by " + user.getFullName()));
-        Map<String, Object> body = dto(saved);
+        activities.save(new TaskActivity(projectId, saved.getId(), user.getId(), "CREATED", "Task created by " + user.getFullName()));
+        TaskDto body = TaskDto.of(saved);
         events.publish(projectId, "task.created", body);   // FR-KB real-time
         notifyAssignees(saved.getAssigneeIds(), saved, p, user);   // FR-NOTIF: email new assignees
-        automation.trigger(projectId, "TASK_CREATED", saved, user, null, saved.getStatus());
+        automation.trigger(projectId, TriggerType.TASK_CREATED, saved, user, null, saved.getStatus());
+        timers.taskChanged(saved);
         return ResponseEntity.status(HttpStatus.CREATED).body(body);
     }
 
+    /**
+     * Streamed: a large board is written page by page instead of built as one list. Each page is
+     * read in its own transaction, so the list is not a point-in-time snapshot (TaskListStreamer).
+     */
     @GetMapping
-    @Transactional(readOnly = true)   // dto() reads lazy task collections (assignees/tags/blockedBy)
-    public List<Map<String, Object>> list(@PathVariable Long projectId, Authentication auth) {
+    public ResponseEntity<StreamingResponseBody> list(@PathVariable Long projectId, Authentication auth) {
         User user = perms.currentUser(auth);
         perms.requireView(user, project(projectId));
-        return tasks.findByProjectId(projectId).stream().map(this::dto).toList();
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(listStreamer.projectTasks(projectId));
+    }
+
+    /** CSV or XLSX download of every task, streamed from a JDBC cursor (TaskExportService). */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable Long projectId,
+                                                        @RequestParam(defaultValue = "csv") String format,
+                                                        Authentication auth) {
+        User user = perms.currentUser(auth);
+        Project p = project(projectId);
+        perms.requireView(user, p);
+        TaskExportService.Format f = TaskExportService.Format.parse(format);
+        if (f == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or xlsx");
+        String file = "project-" + projectId + "-tasks-" + LocalDate.now() + "." + f.extension;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file).build().toString())
+                .body(exporter.export(projectId, p.getName(), f));
+    }
+
+    /**
+     * Bulk CSV import (same columns as the export). Responds 422 with the row error report and
+     * imports nothing if any row is invalid, unless skipInvalid; dryRun only validates.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<TaskImportService.ImportReport> importCsv(@PathVariable Long projectId,
+                                                                   @RequestParam("file") MultipartFile file,
+                                                                   @RequestParam(defaultValue = "false") boolean skipInvalid,
+                                                                   @RequestParam(defaultValue = "false") boolean dryRun,
+                                                                   Authentication auth) throws IOException {
+        User user = perms.currentUser(auth);
+        Project p = project(projectId);
+        perms.require(user, p, ProjectRole.EDITOR);
+        perms.requireWritable(p);
+        if (file.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot import an empty file");
+        TaskImportService.ImportReport report = importer.importCsv(p, user, file, skipInvalid, dryRun);
+        boolean rejected = report.errorCount() > 0 && !skipInvalid && !dryRun;
+        return ResponseEntity.status(rejected ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.OK).body(report);
     }
 
     @GetMapping("/{taskId}")
     @Transactional(readOnly = true)
-    public Map<String, Object> get(@PathVariable Long projectId, @PathVariable Long taskId, Authentication auth) {
+    public TaskDto get(@PathVariable Long projectId, @PathVariable Long taskId, Authentication auth) {
         User user = perms.currentUser(auth);
         perms.requireView(user, project(projectId));
-        return dto(task(projectId, taskId));
+        return TaskDto.of(task(projectId, taskId));
     }
 
     @PutMapping("/{taskId}")
     @Transactional
-    public Map<String, Object> update(@PathVariable Long projectId, @PathVariable Long taskId,
+    public TaskDto update(@PathVariable Long projectId, @PathVariable Long taskId,
                                       @RequestBody TaskRequest req, Authentication auth) {
         User user = perms.currentUser(auth);
         Project p = project(projectId);
@@ -139,22 +194,22 @@ public class TaskController {
         // Compare changes and log activity
         List<TaskActivity> logs = new ArrayList<>();
         if (!Objects.equals(oldTitle, saved.getTitle())) {
-            logs.add(new TaskActivity(taskId, user.getId(), "UPDATED", "Renamed task to \"" + saved.getTitle() + "\""));
+            logs.add(new TaskActivity(projectId, taskId, user.getId(), "UPDATED", "Renamed task to \"" + saved.getTitle() + "\""));
         }
         if (!Objects.equals(oldStatus, saved.getStatus())) {
-            logs.add(new TaskActivity(taskId, user.getId(), "STATUS_CHANGED", "Moved status from \"" + oldStatus + "\" to \"" + saved.getStatus() + "\""));
+            logs.add(new TaskActivity(projectId, taskId, user.getId(), "STATUS_CHANGED", "Moved status from \"" + oldStatus + "\" to \"" + saved.getStatus() + "\""));
         }
         if (!Objects.equals(oldPriority, saved.getPriority())) {
-            logs.add(new TaskActivity(taskId, user.getId(), "PRIORITY_CHANGED", "Changed priority from " + oldPriority + " to " + saved.getPriority()));
+            logs.add(new TaskActivity(projectId, taskId, user.getId(), "PRIORITY_CHANGED", "Changed priority from " + oldPriority + " to " + saved.getPriority()));
         }
         if (!Objects.equals(oldStart, saved.getStartDate())) {
-            logs.add(new TaskActivity(taskId, user.getId(), "DUE_DATE_CHANGED", "Changed start date to " + saved.getStartDate()));
+            logs.add(new TaskActivity(projectId, taskId, user.getId(), "DUE_DATE_CHANGED", "Changed start date to " + saved.getStartDate()));
         }
         if (!Objects.equals(oldDue, saved.getDueDate())) {
-            logs.add(new TaskActivity(taskId, user.getId(), "DUE_DATE_CHANGED", "Changed due date to " + saved.getDueDate()));
+            logs.add(new TaskActivity(projectId, taskId, user.getId(), "DUE_DATE_CHANGED", "Changed due date to " + saved.getDueDate()));
         }
         if (oldMilestone != saved.isMilestone()) {
-            logs.add(new TaskActivity(taskId, user.getId(), "UPDATED", saved.isMilestone() ? "Marked as milestone" : "Removed milestone marker"));
+            logs.add(new TaskActivity(projectId, taskId, user.getId(), "UPDATED", saved.isMilestone() ? "Marked as milestone" : "Removed milestone marker"));
         }
 
         Set<Long> after = saved.getAssigneeIds();
@@ -163,18 +218,21 @@ public class TaskController {
             added.removeAll(before);
             Set<Long> removed = new HashSet<>(before);
             removed.removeAll(after);
+            Map<Long, UserDirectory.Entry> names = users.resolveAll(union(added, removed));
             for (Long uid : added) {
-                users.findById(uid).ifPresent(u -> logs.add(new TaskActivity(taskId, user.getId(), "ASSIGNEE_CHANGED", "Assigned task to " + u.getFullName())));
+                UserDirectory.Entry u = names.get(uid);
+                if (u != null) logs.add(new TaskActivity(projectId, taskId, user.getId(), "ASSIGNEE_CHANGED", "Assigned task to " + u.name()));
             }
             for (Long uid : removed) {
-                users.findById(uid).ifPresent(u -> logs.add(new TaskActivity(taskId, user.getId(), "ASSIGNEE_CHANGED", "Removed assignee " + u.getFullName())));
+                UserDirectory.Entry u = names.get(uid);
+                if (u != null) logs.add(new TaskActivity(projectId, taskId, user.getId(), "ASSIGNEE_CHANGED", "Removed assignee " + u.name()));
             }
         }
         if (!logs.isEmpty()) {
             activities.saveAll(logs);
         }
 
-        Map<String, Object> body = dto(saved);
+        TaskDto body = TaskDto.of(saved);
         events.publish(projectId, "task.updated", body);   // incl. status change (drag-drop) — FR-KB
         // FR-NOTIF: email only assignees newly added by this update (no spam on unrelated edits).
         Set<Long> added = new HashSet<>(saved.getAssigneeIds());
@@ -182,8 +240,9 @@ public class TaskController {
         notifyAssignees(added, saved, p, user);
         
         if (oldStatus != null && !oldStatus.equals(saved.getStatus())) {
-            automation.trigger(projectId, "STATUS_CHANGED", saved, user, oldStatus, saved.getStatus());
+            automation.trigger(projectId, TriggerType.STATUS_CHANGED, saved, user, oldStatus, saved.getStatus());
         }
+        timers.taskChanged(saved);
         
         return body;
     }
@@ -207,10 +266,11 @@ public class TaskController {
         copy.setParentTaskId(src.getParentTaskId());
         Task saved = tasks.save(copy);
         
-        activities.save(new TaskActivity(saved.getId(), user.getId(), "DUPLICATED", "Task duplicated from \"" + src.getTitle() + "\" by " + user.getFullName()));
+        activities.save(new TaskActivity(projectId, saved.getId(), user.getId(), "DUPLICATED", "Task duplicated from \"" + src.getTitle() + "\" by " + user.getFullName()));
         
-        Map<String, Object> body = dto(saved);
+        TaskDto body = TaskDto.of(saved);
         events.publish(projectId, "task.created", body);
+        timers.taskChanged(saved);
         return ResponseEntity.status(HttpStatus.CREATED).body(body);
     }
 
@@ -281,19 +341,19 @@ public class TaskController {
                 }
                 t.setStatus(req.status());
                 if (!req.status().equals(oldStatus)) {
-                    logs.add(new TaskActivity(t.getId(), user.getId(), "STATUS_CHANGED", "Moved status from \"" + oldStatus + "\" to \"" + req.status() + "\""));
+                    logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "STATUS_CHANGED", "Moved status from \"" + oldStatus + "\" to \"" + req.status() + "\""));
                 }
             }
             if (req.priority() != null) {
                 t.setPriority(req.priority());
                 if (!req.priority().equals(oldPriority)) {
-                    logs.add(new TaskActivity(t.getId(), user.getId(), "PRIORITY_CHANGED", "Changed priority from " + oldPriority + " to " + req.priority()));
+                    logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "PRIORITY_CHANGED", "Changed priority from " + oldPriority + " to " + req.priority()));
                 }
             }
             if (req.milestone() != null) {
                 t.setMilestone(req.milestone());
                 if (req.milestone() != oldMilestone) {
-                    logs.add(new TaskActivity(t.getId(), user.getId(), "UPDATED", req.milestone() ? "Marked as milestone" : "Removed milestone marker"));
+                    logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "UPDATED", req.milestone() ? "Marked as milestone" : "Removed milestone marker"));
                 }
             }
             if (req.assigneeIds() != null) {
@@ -303,22 +363,25 @@ public class TaskController {
                     added.removeAll(beforeAssignees);
                     Set<Long> removed = new HashSet<>(beforeAssignees);
                     removed.removeAll(req.assigneeIds());
+                    Map<Long, UserDirectory.Entry> names = users.resolveAll(union(added, removed));
                     for (Long uid : added) {
-                        users.findById(uid).ifPresent(u -> logs.add(new TaskActivity(t.getId(), user.getId(), "ASSIGNEE_CHANGED", "Assigned task to " + u.getFullName())));
+                        UserDirectory.Entry u = names.get(uid);
+                        if (u != null) logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "ASSIGNEE_CHANGED", "Assigned task to " + u.name()));
                     }
                     for (Long uid : removed) {
-                        users.findById(uid).ifPresent(u -> logs.add(new TaskActivity(t.getId(), user.getId(), "ASSIGNEE_CHANGED", "Removed assignee " + u.getFullName())));
+                        UserDirectory.Entry u = names.get(uid);
+                        if (u != null) logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "ASSIGNEE_CHANGED", "Removed assignee " + u.name()));
                     }
                     notifyAssignees(added, t, p, user);
                 }
             }
             if (req.tagsToAdd() != null && !req.tagsToAdd().isEmpty()) {
                 t.getTags().addAll(req.tagsToAdd());
-                logs.add(new TaskActivity(t.getId(), user.getId(), "UPDATED", "Added tags: " + String.join(", ", req.tagsToAdd())));
+                logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "UPDATED", "Added tags: " + String.join(", ", req.tagsToAdd())));
             }
             if (req.tagsToRemove() != null && !req.tagsToRemove().isEmpty()) {
                 t.getTags().removeAll(req.tagsToRemove());
-                logs.add(new TaskActivity(t.getId(), user.getId(), "UPDATED", "Removed tags: " + String.join(", ", req.tagsToRemove())));
+                logs.add(new TaskActivity(projectId, t.getId(), user.getId(), "UPDATED", "Removed tags: " + String.join(", ", req.tagsToRemove())));
             }
 
             Task saved = tasks.save(t);
@@ -326,12 +389,13 @@ public class TaskController {
                 activities.saveAll(logs);
             }
 
-            Map<String, Object> body = dto(saved);
+            TaskDto body = TaskDto.of(saved);
             events.publish(projectId, "task.updated", body);
 
             if (oldStatus != null && !oldStatus.equals(saved.getStatus())) {
-                automation.trigger(projectId, "STATUS_CHANGED", saved, user, oldStatus, saved.getStatus());
+                automation.trigger(projectId, TriggerType.STATUS_CHANGED, saved, user, oldStatus, saved.getStatus());
             }
+            timers.taskChanged(saved);
         }
 
         return ResponseEntity.ok(Map.of("count", targetTasks.size()));
@@ -372,10 +436,17 @@ public class TaskController {
     private void cleanupCollaborationData(Long taskId) {
         comments.findByTaskIdOrderByCreatedAtAsc(taskId).forEach(comments::delete);
         activities.findByTaskIdOrderByOccurredAtDesc(taskId).forEach(activities::delete);
-        attachments.findByTaskIdOrderByUploadedAtDesc(taskId).forEach(attachments::delete);
+        attachments.deleteAllForTask(taskId);
+        timers.taskRemoved(taskId);
     }
 
     // --- helpers ---
+
+    private static Set<Long> union(Set<Long> a, Set<Long> b) {
+        Set<Long> all = new HashSet<>(a);
+        all.addAll(b);
+        return all;
+    }
     private void apply(Task t, TaskRequest req, Project project) {
         if (req.description() != null) t.setDescription(req.description());
         if (req.assigneeIds() != null) t.setAssigneeIds(new HashSet<>(req.assigneeIds()));
@@ -408,25 +479,4 @@ public class TaskController {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Task not in this project");
         return t;
     }
-
-    private Map<String, Object> dto(Task t) {
-        Map<String, Object> m = new HashMap<>();
-        m.put("id", t.getId());
-        m.put("projectId", t.getProjectId());
-        m.put("title", t.getTitle());
-        m.put("description", t.getDescription());
-        m.put("assigneeIds", new ArrayList<>(t.getAssigneeIds()));   // materialise lazy collections
-        m.put("startDate", t.getStartDate());
-        m.put("dueDate", t.getDueDate());
-        m.put("milestone", t.isMilestone());
-        m.put("priority", t.getPriority() == null ? null : t.getPriority().name());
-        m.put("status", t.getStatus());
-        m.put("tags", new ArrayList<>(t.getTags()));
-        m.put("parentTaskId", t.getParentTaskId());
-        m.put("blockedByTaskIds", new ArrayList<>(t.getBlockedByTaskIds()));
-        m.put("createdByUserId", t.getCreatedByUserId());
-        m.put("createdAt", t.getCreatedAt());
-        m.put("updatedAt", t.getUpdatedAt());
-        return m;
-    }
 }
@@ -0,0 +1,26 @@
+package gh.edu.techbridge.wms.task;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The task payload shared by the REST API and the SSE board events (FR-KB). Field names and
+ * types are the JSON contract the board relies on. {@link #of} is the one mapping from the
+ * entity, used by TaskController and AutomationService alike; lazy collections are copied
+ * into immutable lists, so a DTO is safe to hand to another thread once built.
+ */
+public record TaskDto(Long id, Long projectId, String title, String description, List<Long> assigneeIds,
+                      LocalDate startDate, LocalDate dueDate, boolean milestone, String priority, String status,
+                      List<String> tags, Long parentTaskId, List<Long> blockedByTaskIds, Long createdByUserId,
+                      Instant createdAt, Instant updatedAt) {
+
+    public static TaskDto of(Task t) {
+        return new TaskDto(t.getId(), t.getProjectId(), t.getTitle(), t.getDescription(),
+                List.copyOf(t.getAssigneeIds()),   // materialise lazy collections
+                t.getStartDate(), t.getDueDate(), t.isMilestone(),
+                t.getPriority() == null ? null : t.getPriority().name(), t.getStatus(),
+                List.copyOf(t.getTags()), t.getParentTaskId(), List.copyOf(t.getBlockedByTaskIds()),
+                t.getCreatedByUserId(), t.getCreatedAt(), t.getUpdatedAt());
+    }
+}
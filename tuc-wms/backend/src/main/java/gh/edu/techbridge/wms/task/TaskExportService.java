@@ -0,0 +1,185 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.config.TaskTransferProperties;
+import gh.edu.techbridge.wms.user.UserDirectory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Project task export as CSV or XLSX. The task rows come from one forward-only JDBC cursor
+ * (fetch size {@code tucwms.task-transfer.export-fetch-size}, so the driver streams instead
+ * of materialising the result) and are written out {@code export-chunk-size} at a time: each
+ * chunk's assignees and tags are looked up with one IN query apiece on a second pooled
+ * connection, names resolved through {@link UserDirectory}, and the rows flushed to the client.
+ * Nothing is held beyond the current chunk, so a project of any size exports in the same
+ * memory. No surrounding transaction: the cursor must keep its connection to itself.
+ */
+@Component
+public class TaskExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /** Null for anything other than csv / xlsx (case-insensitive). */
+        public static Format parse(String s) {
+            if (s == null) return null;
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(s.trim())) return f;
+            }
+            return null;
+        }
+    }
+
+    private static final String[] HEADER = {"ID", "Title", "Status", "Priority", "Assignees", "Tags",
+            "Start date", "Due date", "Milestone", "Parent task ID", "Created", "Updated"};
+
+    private static final String SELECT = """
+            SELECT id, title, status, priority, start_date, due_date, milestone, parent_task_id, created_at, updated_at
+            FROM wms_tasks WHERE project_id = ? ORDER BY id""";
+
+    private record Row(long id, String title, String status, String priority, LocalDate startDate, LocalDate dueDate,
+                       boolean milestone, Long parentTaskId, Instant createdAt, Instant updatedAt) { }
+
+    /** Where formatted rows go; CSV and XLSX differ only here. */
+    private interface Sink extends Closeable {
+        void row(Object[] cells) throws IOException;
+        void flush() throws IOException;
+    }
+
+    private final JdbcTemplate cursor;
+    private final NamedParameterJdbcTemplate lookups;
+    private final UserDirectory users;
+    private final int chunkSize;
+
+    public TaskExportService(DataSource dataSource, UserDirectory users, TaskTransferProperties props) {
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(Math.max(1, props.getExportFetchSize()));
+        this.lookups = new NamedParameterJdbcTemplate(dataSource);
+        this.users = users;
+        this.chunkSize = Math.max(1, props.getExportChunkSize());
+    }
+
+    /** The export body; the caller has already checked view access. */
+    public StreamingResponseBody export(Long projectId, String sheetName, Format format) {
+        return out -> {
+            try (Sink sink = format == Format.XLSX ? xlsx(out, sheetName) : csv(out)) {
+                List<Row> chunk = new ArrayList<>(chunkSize);
+                try {
+                    cursor.query(SELECT, rs -> {
+                        chunk.add(row(rs));
+                        if (chunk.size() == chunkSize) {
+                            writeChunk(chunk, sink);
+                            chunk.clear();
+                        }
+                    }, projectId);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();   // client went away mid-export
+                }
+                writeChunk(chunk, sink);
+            }
+        };
+    }
+
+    private void writeChunk(List<Row> chunk, Sink sink) {
+        if (chunk.isEmpty()) return;
+        List<Long> ids = chunk.stream().map(Row::id).toList();
+        Map<Long, List<Long>> assignees = new HashMap<>();
+        Map<Long, List<String>> tags = new HashMap<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        lookups.query("SELECT task_id, user_id FROM wms_task_assignees WHERE task_id IN (:ids)", params,
+                rs -> { assignees.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getLong(2)); });
+        lookups.query("SELECT task_id, tag FROM wms_task_tags WHERE task_id IN (:ids)", params,
+                rs -> { tags.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2)); });
+        Map<Long, UserDirectory.Entry> names = users.resolveAll(
+                assignees.values().stream().flatMap(List::stream).toList());
+        try {
+            for (Row r : chunk) {
+                String who = assignees.getOrDefault(r.id(), List.of()).stream()
+                        .map(uid -> name(names.get(uid), uid))
+                        .sorted().reduce((a, b) -> a + ", " + b).orElse("");
+                String tagList = String.join(", ", new TreeSet<>(tags.getOrDefault(r.id(), List.of())));
+                sink.row(new Object[]{r.id(), r.title(), r.status(), r.priority(), who, tagList,
+                        r.startDate(), r.dueDate(), r.milestone() ? "Yes" : "No", r.parentTaskId(),
+                        r.createdAt(), r.updatedAt()});
+            }
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String name(UserDirectory.Entry u, Long id) {
+        return u != null && u.name() != null ? u.name() : "#" + id;
+    }
+
+    private static Row row(ResultSet rs) throws SQLException {
+        return new Row(rs.getLong("id"), rs.getString("title"), rs.getString("status"), rs.getString("priority"),
+                rs.getObject("start_date", LocalDate.class), rs.getObject("due_date", LocalDate.class),
+                rs.getBoolean("milestone"), rs.getObject("parent_task_id", Long.class),
+                instant(rs.getTimestamp("created_at")), instant(rs.getTimestamp("updated_at")));
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+
+    private static Sink xlsx(OutputStream out, String sheetName) throws IOException {
+        XlsxStreamWriter w = new XlsxStreamWriter(out, sheetName);
+        w.header(HEADER);
+        return new Sink() {
+            public void row(Object[] cells) throws IOException { w.row(cells); }
+            public void flush() throws IOException { w.flush(); }
+            public void close() throws IOException { w.close(); }
+        };
+    }
+
+    /** RFC 4180, UTF-8 with a BOM so Excel detects the encoding. */
+    private static Sink csv(OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        w.write('\uFEFF');
+        Sink sink = new Sink() {
+            public void row(Object[] cells) throws IOException {
+                for (int i = 0; i < cells.length; i++) {
+                    if (i > 0) w.write(',');
+                    if (cells[i] != null) w.write(csvCell(cells[i]));
+                }
+                w.write("\r\n");
+            }
+            public void flush() throws IOException { w.flush(); }
+            public void close() throws IOException { w.flush(); }
+        };
+        sink.row(HEADER);
+        return sink;
+    }
+
+    private static String csvCell(Object v) {
+        if (v instanceof Number) return v.toString();
+        String s = v.toString();
+        // A leading = + - @ would be evaluated as a formula when the file is opened in a spreadsheet.
+        if (!s.isEmpty() && "=+-@".indexOf(s.charAt(0)) >= 0) s = "'" + s;
+        boolean quote = s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0;
+        return quote ? '"' + s.replace("\"", "\"\"") + '"' : s;
+    }
+}
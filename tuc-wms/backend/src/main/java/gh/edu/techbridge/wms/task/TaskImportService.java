@@ -0,0 +1,379 @@
+package gh.edu.techbridge.wms.task;
+
+import gh.edu.techbridge.wms.common.AfterCommit;
+import gh.edu.techbridge.wms.automation.TimeTriggerScheduler;
+import gh.edu.techbridge.wms.config.TaskTransferProperties;
+import gh.edu.techbridge.wms.notify.NotificationService;
+import gh.edu.techbridge.wms.project.Project;
+import gh.edu.techbridge.wms.user.User;
+import gh.edu.techbridge.wms.user.UserDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Bulk task import from CSV — the columns TaskExportService writes (Title required; Status,
+ * Priority, Assignees, Tags, Start date, Due date, Milestone and Description optional; ID,
+ * Created, Updated and unknown columns ignored), so an export round-trips. Two streaming passes
+ * over the upload: the first validates every row and collects a per-row error report; the
+ * second, in one transaction, re-validates and inserts tasks, assignees, tags and a CREATED
+ * activity per task with JDBC batches of {@code import-batch-size}. Nothing is inserted when
+ * any row is invalid unless {@code skipInvalid} is set. An import is one change as far as the
+ * rest of the app is concerned: one {@code tasks.imported} project event, one notification to
+ * the importer, one reschedule of the project's time triggers — no per-task automation,
+ * assignment mail or SSE.
+ */
+@Component
+public class TaskImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskImportService.class);
+
+    private static final int MAX_FIELD = 100_000;
+    private static final int MAX_TITLE = 500;
+    private static final int MAX_TAG = 255;
+    private static final DateTimeFormatter DAY_FIRST = DateTimeFormatter.ofPattern("d/M/uuuu");
+
+    private static final String INSERT_TASK = "INSERT INTO wms_tasks (project_id, title, description, start_date, "
+            + "due_date, milestone, priority, status, created_by_user_id, created_at, updated_at, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_ASSIGNEE = "INSERT INTO wms_task_assignees (task_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_TAG = "INSERT INTO wms_task_tags (task_id, tag) VALUES (?, ?)";
+    private static final String INSERT_ACTIVITY = "INSERT INTO wms_task_activities "
+            + "(project_id, task_id, actor_id, action_type, detail, occurred_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    public record RowError(long row, String column, String message) { }
+
+    /** {@code rows} counts data rows read; {@code errorCount} may exceed {@code errors.size()} (capped list). */
+    public record ImportReport(int rows, int imported, int errorCount, boolean dryRun, List<RowError> errors) { }
+
+    /** A validated row, ready to insert. */
+    private record Parsed(String title, String description, String status, TaskPriority priority,
+                          Set<Long> assigneeIds, Set<String> tags, LocalDate startDate, LocalDate dueDate,
+                          boolean milestone) { }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final UserDirectory users;
+    private final NotificationService notifications;
+    private final ProjectEventService events;
+    private final TimeTriggerScheduler timers;
+    private final TaskTransferProperties props;
+
+    public TaskImportService(JdbcTemplate jdbc, PlatformTransactionManager txManager, UserDirectory users,
+                             NotificationService notifications, ProjectEventService events,
+                             TimeTriggerScheduler timers, TaskTransferProperties props) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.users = users;
+        this.notifications = notifications;
+        this.events = events;
+        this.timers = timers;
+        this.props = props;
+    }
+
+    /**
+     * Validate {@code csv} and, unless {@code dryRun} or (some row is invalid and not
+     * {@code skipInvalid}), import its valid rows into {@code project}. The caller has checked
+     * EDITOR access and that the project is writable.
+     */
+    public ImportReport importCsv(Project project, User actor, InputStreamSource csv,
+                                  boolean skipInvalid, boolean dryRun) throws IOException {
+        Validator v = new Validator(project);
+        List<RowError> errors = new ArrayList<>();
+        int[] counts = new int[2];   // rows, errors
+        read(csv, v, (row, parsed, rowErrors) -> {
+            counts[0]++;
+            if (rowErrors.isEmpty()) return;
+            counts[1]++;
+            for (RowError e : rowErrors) {
+                if (errors.size() < props.getImportMaxErrors()) errors.add(e);
+            }
+        });
+        if (dryRun || counts[0] == 0 || (counts[1] > 0 && !skipInvalid)) {
+            return new ImportReport(counts[0], 0, counts[1], dryRun, errors);
+        }
+
+        int imported;
+        try {
+            imported = tx.execute(s -> insertAll(project, actor, csv, v, counts[1]));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("[tasks] imported {} task(s) into project {} ({} invalid row(s) skipped)",
+                imported, project.getId(), counts[1]);
+        return new ImportReport(counts[0], imported, counts[1], false, errors);
+    }
+
+    /** Second pass, inside the transaction: insert every valid row, then the one summary notification/event. */
+    private int insertAll(Project project, User actor, InputStreamSource csv, Validator v, int skipped) {
+        Inserter ins = new Inserter(project.getId(), actor.getId());
+        try {
+            read(csv, v, (row, parsed, rowErrors) -> { if (parsed != null) ins.add(parsed); });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ins.flush();
+        if (ins.total == 0) return 0;
+        Long projectId = project.getId();
+        int total = ins.total;
+        notifications.notify(actor.getId(), "TASKS_IMPORTED", "Imported " + total + " task(s)",
+                total + " task(s) were imported into \"" + project.getName() + "\""
+                        + (skipped > 0 ? "; " + skipped + " invalid row(s) skipped." : "."),
+                projectId, null);
+        AfterCommit.run(() -> events.publish(projectId, "tasks.imported", Map.of("count", total, "actorId", actor.getId())));
+        timers.projectTasksChanged(projectId);
+        return total;
+    }
+
+    private interface RowHandler {
+        void accept(long row, Parsed parsed, List<RowError> errors);
+    }
+
+    /** One streaming pass: header, then each data row validated and handed on. Row numbers are spreadsheet rows (header = 1). */
+    private void read(InputStreamSource csv, Validator v, RowHandler handler) throws IOException {
+        try (Reader r = new BufferedReader(new InputStreamReader(csv.getInputStream(), StandardCharsets.UTF_8))) {
+            CsvReader reader = new CsvReader(r, MAX_FIELD);
+            Map<String, Integer> columns;
+            try {
+                List<String> header = reader.next();
+                if (header == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The file is empty");
+                columns = columns(header);
+                long row = 1;
+                int dataRows = 0;
+                List<String> fields;
+                while ((fields = reader.next()) != null) {
+                    row++;
+                    if (fields.size() == 1 && fields.get(0).isBlank()) continue;   // blank line
+                    if (++dataRows > props.getImportMaxRows()) {
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "At most " + props.getImportMaxRows() + " rows per import");
+                    }
+                    List<RowError> errors = new ArrayList<>(0);
+                    Parsed parsed = v.validate(row, columns, fields, errors);
+                    handler.accept(row, errors.isEmpty() ? parsed : null, errors);
+                }
+            } catch (CsvReader.CsvException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed CSV: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Header name (case-insensitive) → column index; Title must be present. */
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("title"))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The header row must include a Title column");
+        return columns;
+    }
+
+    /** Per-import validation state: the project's stages and an assignee lookup built once from UserDirectory. */
+    private final class Validator {
+        private final Map<String, String> stages = new HashMap<>();
+        private final String defaultStage;
+        private final Map<String, Long> byEmail = new HashMap<>();
+        private final Map<String, Long> byName = new HashMap<>();
+        private final Set<String> ambiguousNames = new HashSet<>();
+        private final Set<Long> activeIds = new HashSet<>();
+
+        Validator(Project project) {
+            for (String s : project.getStages()) stages.putIfAbsent(s.toLowerCase(Locale.ROOT), s);
+            defaultStage = project.getStages().isEmpty() ? null : project.getStages().get(0);
+            for (UserDirectory.Entry u : users.all()) {
+                if (!u.active()) continue;
+                activeIds.add(u.id());
+                if (u.email() != null) byEmail.put(u.email().toLowerCase(Locale.ROOT), u.id());
+                if (u.name() != null) {
+                    String key = u.name().trim().toLowerCase(Locale.ROOT);
+                    Long prev = byName.putIfAbsent(key, u.id());
+                    if (prev != null && !prev.equals(u.id())) ambiguousNames.add(key);
+                }
+            }
+        }
+
+        Parsed validate(long row, Map<String, Integer> columns, List<String> fields, List<RowError> errors) {
+            String title = cell(columns, fields, "title");
+            if (title == null) errors.add(new RowError(row, "Title", "Title is required"));
+            else if (title.length() > MAX_TITLE) errors.add(new RowError(row, "Title", "Longer than " + MAX_TITLE + " characters"));
+
+            String status = defaultStage;
+            String rawStatus = cell(columns, fields, "status");
+            if (rawStatus != null) {
+                status = stages.get(rawStatus.toLowerCase(Locale.ROOT));
+                if (status == null) errors.add(new RowError(row, "Status", "Not a stage of this project: " + rawStatus));
+            }
+
+            TaskPriority priority = TaskPriority.MEDIUM;
+            String rawPriority = cell(columns, fields, "priority");
+            if (rawPriority != null) {
+                try {
+                    priority = TaskPriority.valueOf(rawPriority.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    errors.add(new RowError(row, "Priority", "Must be one of " + Arrays.toString(TaskPriority.values())));
+                }
+            }
+
+            Set<Long> assignees = new LinkedHashSet<>();
+            String rawAssignees = cell(columns, fields, "assignees");
+            if (rawAssignees != null) {
+                for (String who : rawAssignees.split("[,;]")) {
+                    who = who.trim();
+                    if (who.isEmpty()) continue;
+                    Long id = assignee(who);
+                    if (id == null) errors.add(new RowError(row, "Assignees", "Unknown or ambiguous user: " + who));
+                    else assignees.add(id);
+                }
+            }
+
+            Set<String> tags = new LinkedHashSet<>();
+            String rawTags = cell(columns, fields, "tags");
+            if (rawTags != null) {
+                for (String tag : rawTags.split(",")) {
+                    tag = tag.trim();
+                    if (tag.isEmpty()) continue;
+                    if (tag.length() > MAX_TAG) errors.add(new RowError(row, "Tags", "Tag longer than " + MAX_TAG + " characters"));
+                    else tags.add(tag);
+                }
+            }
+
+            LocalDate start = date(row, "Start date", cell(columns, fields, "start date"), errors);
+            LocalDate due = date(row, "Due date", cell(columns, fields, "due date"), errors);
+            if (start != null && due != null && due.isBefore(start))
+                errors.add(new RowError(row, "Due date", "Before the start date"));
+
+            boolean milestone = false;
+            String rawMilestone = cell(columns, fields, "milestone");
+            if (rawMilestone != null) {
+                switch (rawMilestone.toLowerCase(Locale.ROOT)) {
+                    case "yes", "y", "true", "1" -> milestone = true;
+                    case "no", "n", "false", "0" -> milestone = false;
+                    default -> errors.add(new RowError(row, "Milestone", "Must be Yes or No"));
+                }
+            }
+
+            if (!errors.isEmpty()) return null;
+            return new Parsed(title, cell(columns, fields, "description"), status, priority,
+                    assignees, tags, start, due, milestone);
+        }
+
+        /** An email, an exact (unique) display name, or "#id" as exported for users without a name. */
+        private Long assignee(String who) {
+            if (who.startsWith("#")) {
+                try {
+                    long id = Long.parseLong(who.substring(1));
+                    return activeIds.contains(id) ? id : null;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            String key = who.toLowerCase(Locale.ROOT);
+            if (key.indexOf('@') >= 0) return byEmail.get(key);
+            return ambiguousNames.contains(key) ? null : byName.get(key);
+        }
+    }
+
+    /** Trimmed cell by header name; null when the column is absent or the cell blank. Undoes the export's formula guard. */
+    private static String cell(Map<String, Integer> columns, List<String> fields, String name) {
+        Integer i = columns.get(name);
+        if (i == null || i >= fields.size()) return null;
+        String s = fields.get(i).trim();
+        if (s.length() > 1 && s.charAt(0) == '\'' && "=+-@".indexOf(s.charAt(1)) >= 0) s = s.substring(1);
+        return s.isEmpty() ? null : s;
+    }
+
+    /** ISO (2025-03-31) or day-first (31/3/2025), as spreadsheets in Ghana write dates. */
+    private static LocalDate date(long row, String column, String raw, List<RowError> errors) {
+        if (raw == null) return null;
+        try {
+            return raw.indexOf('/') >= 0 ? LocalDate.parse(raw, DAY_FIRST) : LocalDate.parse(raw);
+        } catch (DateTimeParseException e) {
+            errors.add(new RowError(row, column, "Not a date (use YYYY-MM-DD or DD/MM/YYYY): " + raw));
+            return null;
+        }
+    }
+
+    /** Buffers validated rows and writes them in JDBC batches; runs inside the import transaction. */
+    private final class Inserter {
+        private final Long projectId;
+        private final Long actorId;
+        private final int batchSize = Math.max(1, props.getImportBatchSize());
+        private final List<Parsed> pending = new ArrayList<>();
+        int total;
+
+        Inserter(Long projectId, Long actorId) {
+            this.projectId = projectId;
+            this.actorId = actorId;
+        }
+
+        void add(Parsed p) {
+            pending.add(p);
+            if (pending.size() == batchSize) flush();
+        }
+
+        void flush() {
+            if (pending.isEmpty()) return;
+            Timestamp now = Timestamp.from(Instant.now());
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbc.batchUpdate(con -> con.prepareStatement(INSERT_TASK, new String[] {"id"}), new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Parsed p = pending.get(i);
+                    ps.setLong(1, projectId);
+                    ps.setString(2, p.title());
+                    ps.setString(3, p.description());
+                    ps.setObject(4, p.startDate());
+                    ps.setObject(5, p.dueDate());
+                    ps.setBoolean(6, p.milestone());
+                    ps.setString(7, p.priority().name());
+                    ps.setString(8, p.status());
+                    ps.setLong(9, actorId);
+                    ps.setTimestamp(10, now);
+                    ps.setTimestamp(11, now);
+                }
+
+                @Override
+                public int getBatchSize() { return pending.size(); }
+            }, keys);
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            if (keyList.size() != pending.size())
+                throw new IllegalStateException("Expected " + pending.size() + " generated ids, got " + keyList.size());
+
+            List<Object[]> assignees = new ArrayList<>();
+            List<Object[]> tags = new ArrayList<>();
+            List<Object[]> activities = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                long taskId = ((Number) keyList.get(i).values().iterator().next()).longValue();
+                Parsed p = pending.get(i);
+                for (Long uid : p.assigneeIds()) assignees.add(new Object[] {taskId, uid});
+                for (String tag : p.tags()) tags.add(new Object[] {taskId, tag});
+                activities.add(new Object[] {projectId, taskId, actorId, "CREATED", "Task imported from CSV", now});
+            }
+            if (!assignees.isEmpty()) jdbc.batchUpdate(INSERT_ASSIGNEE, assignees);
+            if (!tags.isEmpty()) jdbc.batchUpdate(INSERT_TAG, tags);
+            jdbc.batchUpdate(INSERT_ACTIVITY, activities);
+            total += pending.size();
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package gh.edu.techbridge.wms.task;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * Writes a project's task list as one JSON array, streamed: tasks are read in id-keyset
+ * pages of {@value #PAGE}, each page in its own short read-only transaction (its lazy
+ * collections batch-fetched, see Task), mapped to {@link TaskDto} and written straight to
+ * a {@link JsonGenerator} by the application's ObjectMapper, so each element is exactly what
+ * the REST API returns for that task. Memory stays at one page however large the project, and the
+ * client starts receiving rows before the last page is read. The caller checks access
+ * before handing the body to Spring MVC.
+ *
+ * The list is not a consistent snapshot: no transaction spans the pages, so a connection is
+ * never held while a slow client drains the response. A task changed while the list streams
+ * shows whichever state its page read; one created meanwhile appears only if its id is past
+ * the current page. The id keyset never returns a task twice or skips an unchanged one.
+ */
+@Component
+public class TaskListStreamer {
+
+    private static final int PAGE = 500;
+
+    private final TaskRepository tasks;
+    private final ObjectMapper mapper;
+    private final ObjectWriter taskWriter;
+    private final TransactionTemplate readTx;
+
+    public TaskListStreamer(TaskRepository tasks, ObjectMapper mapper, PlatformTransactionManager txManager) {
+        this.tasks = tasks;
+        this.mapper = mapper;
+        // Flushed once per page below, not after every element.
+        this.taskWriter = mapper.writerFor(TaskDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+    }
+
+    public StreamingResponseBody projectTasks(Long projectId) {
+        return out -> {
+            try (JsonGenerator g = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                g.writeStartArray();
+                long afterId = 0;
+                List<TaskDto> page;
+                do {
+                    long from = afterId;
+                    page = readTx.execute(s -> tasks.findPageByProjectId(projectId, from, PageRequest.of(0, PAGE))
+                            .stream().map(TaskDto::of).toList());
+                    for (TaskDto t : page) taskWriter.writeValue(g, t);
+                    g.flush();
+                    if (!page.isEmpty()) afterId = page.get(page.size() - 1).id();
+                } while (page.size() == PAGE);
+                g.writeEndArray();
+            }
+        };
+    }
+}
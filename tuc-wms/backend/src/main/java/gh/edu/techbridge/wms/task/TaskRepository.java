@@ -1,10 +1,65 @@
 package gh.edu.techbridge.wms.task;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
     List<Task> findByProjectId(Long projectId);
     List<Task> findByProjectIdAndParentTaskIdIsNull(Long projectId);
     List<Task> findByParentTaskId(Long parentTaskId);
+
+    /** Id-keyset page of a project's tasks (TaskListStreamer). */
+    @Query("SELECT t FROM Task t WHERE t.projectId = :projectId AND t.id > :afterId ORDER BY t.id")
+    List<Task> findPageByProjectId(@Param("projectId") Long projectId, @Param("afterId") long afterId, Pageable page);
+
+    /** One (task, assignee) pair from the due-date sweep — flat, so no lazy collections are touched. */
+    interface DueAssignment {
+        Long getTaskId();
+        Long getProjectId();
+        String getTitle();
+        LocalDate getDueDate();
+        TaskPriority getPriority();
+        String getStatus();
+        Long getAssigneeId();
+    }
+
+    /** Range scan on idx_task_due joined to wms_task_assignees, oldest due first (daily due digest). */
+    @Query("SELECT t.id AS taskId, t.projectId AS projectId, t.title AS title, t.dueDate AS dueDate, "
+            + "t.priority AS priority, t.status AS status, a AS assigneeId "
+            + "FROM Task t JOIN t.assigneeIds a WHERE t.dueDate BETWEEN :from AND :to ORDER BY t.dueDate, t.id")
+    List<DueAssignment> findDueAssignments(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /** Just what the time-trigger wheel needs to schedule a task (automation TimeTriggerScheduler). */
+    interface TimerRow {
+        Long getId();
+        Long getProjectId();
+        LocalDate getDueDate();
+        Instant getUpdatedAt();
+    }
+
+    /** Range scan on idx_task_due: tasks whose due-date timers may still lie ahead. */
+    @Query("SELECT t.id AS id, t.projectId AS projectId, t.dueDate AS dueDate, t.updatedAt AS updatedAt "
+            + "FROM Task t WHERE t.dueDate >= :from AND t.projectId IN :projectIds")
+    List<TimerRow> findTimerRowsDueFrom(@Param("from") LocalDate from, @Param("projectIds") Collection<Long> projectIds);
+
+    /** Range scan on idx_task_project_updated: tasks changed recently enough to go idle later. */
+    @Query("SELECT t.id AS id, t.projectId AS projectId, t.dueDate AS dueDate, t.updatedAt AS updatedAt "
+            + "FROM Task t WHERE t.projectId IN :projectIds AND t.updatedAt >= :since")
+    List<TimerRow> findTimerRowsUpdatedSince(@Param("projectIds") Collection<Long> projectIds, @Param("since") Instant since);
+
+    /** id → title only, for labelling feed entries without loading whole tasks. */
+    interface TitleRow {
+        Long getId();
+        String getTitle();
+    }
+
+    @Query("SELECT t.id AS id, t.title AS title FROM Task t WHERE t.id IN :ids")
+    List<TitleRow> findTitles(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,163 @@
+package gh.edu.techbridge.wms.task;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Minimal forward-only writer for a one-sheet .xlsx workbook. The package parts are fixed
+ * strings; the worksheet XML is written row by row straight into the deflating zip stream, so
+ * memory is one row plus the zip buffers regardless of row count. Cells are inline strings
+ * or plain numbers — no shared-string table, which is what would otherwise have to be held
+ * in memory until the end. Rows must be written before {@link #close()}.
+ */
+final class XlsxStreamWriter implements Closeable {
+
+    private static final String CONTENT_TYPES = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+            <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+            <Default Extension="xml" ContentType="application/xml"/>\
+            <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+            <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>\
+            <Override PartName="/xl/styles.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml"/>\
+            </Types>""";
+    private static final String ROOT_RELS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>\
+            </Relationships>""";
+    private static final String WORKBOOK_RELS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>\
+            <Relationship Id="rId2" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles" Target="styles.xml"/>\
+            </Relationships>""";
+    // Style 1 = bold, for the header row.
+    private static final String STYLES = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <styleSheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">\
+            <fonts count="2"><font><sz val="11"/><name val="Calibri"/></font><font><b/><sz val="11"/><name val="Calibri"/></font></fonts>\
+            <fills count="2"><fill><patternFill patternType="none"/></fill><fill><patternFill patternType="gray125"/></fill></fills>\
+            <borders count="1"><border><left/><right/><top/><bottom/><diagonal/></border></borders>\
+            <cellStyleXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0"/></cellStyleXfs>\
+            <cellXfs count="2"><xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0"/>\
+            <xf numFmtId="0" fontId="1" fillId="0" borderId="0" xfId="0" applyFont="1"/></cellXfs>\
+            </styleSheet>""";
+    private static final String SHEET_START = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">\
+            <sheetViews><sheetView workbookViewId="0"><pane ySplit="1" topLeftCell="A2" activePane="bottomLeft" state="frozen"/></sheetView></sheetViews>\
+            <sheetData>""";
+    private static final String SHEET_END = "</sheetData></worksheet>";
+
+    private final ZipOutputStream zip;
+    private final Writer xml;
+    private int row;
+
+    XlsxStreamWriter(OutputStream out, String sheetName) throws IOException {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.xml = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 16 * 1024);
+        part("[Content_Types].xml", CONTENT_TYPES);
+        part("_rels/.rels", ROOT_RELS);
+        part("xl/workbook.xml", """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+                xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">\
+                <sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets></workbook>""".formatted(escape(sheetName(sheetName))));
+        part("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+        part("xl/styles.xml", STYLES);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        xml.write(SHEET_START);
+    }
+
+    /** A bold header row. */
+    void header(String... cells) throws IOException {
+        writeRow(cells, true);
+    }
+
+    /** One data row; a {@link Number} becomes a numeric cell, anything else its string form, null an empty cell. */
+    void row(Object... cells) throws IOException {
+        writeRow(cells, false);
+    }
+
+    /** Push buffered rows through the zip stream to the client. */
+    void flush() throws IOException {
+        xml.flush();
+        zip.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        xml.write(SHEET_END);
+        xml.flush();
+        zip.closeEntry();
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writeRow(Object[] cells, boolean bold) throws IOException {
+        row++;
+        xml.write("<row r=\"");
+        xml.write(Integer.toString(row));
+        xml.write("\">");
+        for (int i = 0; i < cells.length; i++) {
+            Object v = cells[i];
+            if (v == null) continue;
+            String ref = column(i) + row;
+            String style = bold ? " s=\"1\"" : "";
+            if (v instanceof Number n) {
+                xml.write("<c r=\"" + ref + "\"" + style + "><v>" + n + "</v></c>");
+            } else {
+                xml.write("<c r=\"" + ref + "\"" + style + " t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                xml.write(escape(v.toString()));
+                xml.write("</t></is></c>");
+            }
+        }
+        xml.write("</row>");
+    }
+
+    private void part(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        xml.write(content);
+        xml.flush();
+        zip.closeEntry();
+    }
+
+    /** A, B, … Z, AA, AB, … for a 0-based column index. */
+    static String column(int index) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26) sb.insert(0, (char) ('A' + (i - 1) % 26));
+        return sb.toString();
+    }
+
+    /** Excel sheet names: at most 31 chars, none of \ / ? * [ ] : */
+    private static String sheetName(String name) {
+        String s = name == null ? "" : name.replaceAll("[\\\\/?*\\[\\]:]", " ").strip();
+        if (s.isEmpty()) s = "Sheet1";
+        return s.length() > 31 ? s.substring(0, 31) : s;
+    }
+
+    /** XML-escape, dropping characters XML 1.0 cannot carry at all (control chars other than tab/CR/LF). */
+    static String escape(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep = switch (c) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                default -> (c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFE || c == 0xFFFF ? "" : null;
+            };
+            if (rep == null) {
+                if (sb != null) sb.append(c);
+            } else {
+                if (sb == null) sb = new StringBuilder(s.length() + 16).append(s, 0, i);
+                sb.append(rep);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+}
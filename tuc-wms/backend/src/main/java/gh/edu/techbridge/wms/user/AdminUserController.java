@@ -3,6 +3,7 @@ package gh.edu.techbridge.wms.user;
 import gh.edu.techbridge.wms.audit.AuditEvent;
 import gh.edu.techbridge.wms.audit.AuditService;
 import gh.edu.techbridge.wms.config.AuthProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -22,11 +23,14 @@ public class AdminUserController {
 
     private final UserRepository users;
     private final AuditService audit;
+    private final ApplicationEventPublisher events;
     private final String allowedDomain;
 
-    public AdminUserController(UserRepository users, AuditService audit, AuthProperties props) {
+    public AdminUserController(UserRepository users, AuditService audit, AuthProperties props,
+                               ApplicationEventPublisher events) {
         this.users = users;
         this.audit = audit;
+        this.events = events;
         this.allowedDomain = props.getAllowedDomain().toLowerCase();
     }
 
@@ -60,6 +64,7 @@ public class AdminUserController {
         // Per-user MFA override (decouples MFA from elevated WMS role; see SSO pass-through design).
         u.setMfaRequired(Boolean.parseBoolean(body.getOrDefault("mfaRequired", "false")));
         u = users.save(u);
+        events.publishEvent(new UserChangedEvent(u.getId()));
         audit.record(AuditEvent.USER_PROVISIONED, email,
                 "pre-provisioned as " + role + (u.isMfaRequired() ? " (mfaRequired)" : "") + " by " + actor.getName(), null);
         return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
@@ -89,6 +94,7 @@ public class AdminUserController {
         return users.findById(id).<ResponseEntity<?>>map(u -> {
             u.setRole(role);
             users.save(u);
+            events.publishEvent(new UserChangedEvent(u.getId()));
             audit.record(AuditEvent.USER_PROVISIONED, u.getEmail(), "role set to " + role + " by " + actor.getName(), null);
             return ResponseEntity.ok(Map.of("id", u.getId(), "role", role.name()));
         }).orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "User not found")));
@@ -105,6 +111,7 @@ public class AdminUserController {
         return users.findById(id).<ResponseEntity<?>>map(u -> {
             u.setFullName(name);
             users.save(u);
+            events.publishEvent(new UserChangedEvent(u.getId()));
             audit.record(AuditEvent.USER_PROVISIONED, u.getEmail(), "name set by " + actor.getName(), null);
             return ResponseEntity.ok(Map.of("id", u.getId(), "name", u.getFullName()));
         }).orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "User not found")));
@@ -117,6 +124,7 @@ public class AdminUserController {
         return users.findById(id).<ResponseEntity<?>>map(u -> {
             u.setActive(active);
             users.save(u);
+            events.publishEvent(new UserChangedEvent(u.getId()));
             audit.record(AuditEvent.USER_PROVISIONED, u.getEmail(),
                     (active ? "reactivated" : "deactivated") + " by " + actor.getName(), null);
             return ResponseEntity.ok(Map.of("id", u.getId(), "active", active));
@@ -0,0 +1,8 @@
+package gh.edu.techbridge.wms.user;
+
+/**
+ * Published after a user's profile, role or active flag changes (admin edits, first-login
+ * provisioning, name refresh on login). {@link UserDirectory} reloads the one entry once the
+ * change commits.
+ */
+public record UserChangedEvent(Long userId) { }
@@ -0,0 +1,114 @@
+package gh.edu.techbridge.wms.user;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory id → {name, email, role, active} map of every user, for display-name resolution.
+ * Task DTOs, activity feeds, member lists and reports resolve names here instead of one
+ * {@code findById} per id. Loaded in one projection query at startup and kept current from
+ * {@link UserChangedEvent}s; an id that is not cached yet (a user provisioned on another
+ * code path) is loaded on first use, in one IN query per {@link #resolveAll} call. Ids the
+ * query does not find are remembered as unknown until a UserChangedEvent names them, so a
+ * stale id costs one query, not one per call. In-memory (single instance), like
+ * ProjectEventService.
+ */
+@Component
+public class UserDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    /** What callers need to show a user — never the secrets or timestamps on User. */
+    public record Entry(Long id, String name, String email, Role role, boolean active) {
+        static Entry of(User u) {
+            return new Entry(u.getId(), u.getFullName(), u.getEmail(), u.getRole(), u.isActive());
+        }
+    }
+
+    private final UserRepository users;
+    private static final int MAX_UNKNOWN = 10_000;
+
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+    private final Set<Long> unknown = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version = new AtomicLong();
+
+    public UserDirectory(UserRepository users) {
+        this.users = users;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        Map<Long, Entry> loaded = new HashMap<>();
+        for (UserRepository.DirectoryRow r : users.findDirectoryRows()) {
+            loaded.put(r.getId(), new Entry(r.getId(), r.getFullName(), r.getEmail(), r.getRole(), r.isActive()));
+        }
+        byId.putAll(loaded);
+        version.incrementAndGet();
+        log.info("[users] directory loaded: {} user(s)", loaded.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent e) {
+        users.findById(e.userId()).ifPresentOrElse(u -> byId.put(u.getId(), Entry.of(u)), () -> byId.remove(e.userId()));
+        unknown.remove(e.userId());
+        version.incrementAndGet();
+    }
+
+    /** The user's entry, or null if there is no such user. */
+    public Entry get(Long id) {
+        if (id == null) return null;
+        Entry e = byId.get(id);
+        return e != null ? e : resolveAll(List.of(id)).get(id);
+    }
+
+    /** Display name, or {@code fallback} for an unknown id. */
+    public String name(Long id, String fallback) {
+        Entry e = get(id);
+        return e == null || e.name() == null ? fallback : e.name();
+    }
+
+    /** Entries for the given ids; unknown ids are absent from the result. At most one query, for cache misses. */
+    public Map<Long, Entry> resolveAll(Collection<Long> ids) {
+        Map<Long, Entry> out = new HashMap<>();
+        List<Long> missing = null;
+        for (Long id : ids) {
+            if (id == null) continue;
+            Entry e = byId.get(id);
+            if (e != null) out.put(id, e);
+            else if (!unknown.contains(id)) (missing == null ? missing = new ArrayList<>() : missing).add(id);
+        }
+        if (missing != null) {
+            boolean added = false;
+            for (User u : users.findAllById(missing)) {
+                Entry e = Entry.of(u);
+                byId.put(u.getId(), e);
+                out.put(u.getId(), e);
+                added = true;
+            }
+            if (unknown.size() > MAX_UNKNOWN) unknown.clear();   // bound a flood of bogus ids
+            for (Long id : missing) {
+                if (!out.containsKey(id)) unknown.add(id);   // byId is checked first, so a racing load still wins
+            }
+            if (added) version.incrementAndGet();
+        }
+        return out;
+    }
+
+    /** Every cached user; a snapshot view for in-memory indexes such as the @mention directory. */
+    public Collection<Entry> all() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    /** Bumped whenever entries are loaded or changed, so derived indexes know when to rebuild. */
+    public long version() {
+        return version.get();
+    }
+}
@@ -1,9 +1,30 @@
 package gh.edu.techbridge.wms.user;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    /** One user as cached by UserDirectory. */
+    interface DirectoryRow {
+        Long getId();
+        String getFullName();
+        String getEmail();
+        Role getRole();
+        boolean isActive();
+    }
+
+    @Query("SELECT u.id AS id, u.fullName AS fullName, u.email AS email, u.role AS role, u.active AS active FROM User u")
+    List<DirectoryRow> findDirectoryRows();
+
+    /** One round trip for a batch of resolved ids plus any emails the directory did not know yet. */
+    @Query("SELECT u FROM User u WHERE u.id IN :ids OR u.email IN :emails")
+    List<User> findByIdInOrEmailIn(@Param("ids") Collection<Long> ids, @Param("emails") Collection<String> emails);
 }
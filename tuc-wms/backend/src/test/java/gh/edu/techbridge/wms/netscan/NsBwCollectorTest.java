@@ -0,0 +1,105 @@
+package gh.edu.techbridge.wms.netscan;
+
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import gh.edu.techbridge.wms.netscan.NsBwCollector.Counters;
+import gh.edu.techbridge.wms.netscan.NsBwCollector.Sample;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NsBwCollectorTest {
+
+    private static final Instant AT = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final NsBwCollector collector = new NsBwCollector(new NetScanProperties(), null, null, null, null);
+
+    @Test
+    void deltaCountsA32BitWrapFromTheTopHalf() {
+        assertEquals(0x200, NsBwCollector.delta(0xFFFF_FF00L, 0x100L));
+        assertEquals(1, NsBwCollector.delta(0xFFFF_FFFFL, 0));
+    }
+
+    @Test
+    void deltaTreatsOtherDropsAsResets() {
+        assertEquals(-1, NsBwCollector.delta(1_000_000, 500));              // reset from a low reading
+        assertEquals(-1, NsBwCollector.delta(5_000_000_000L, 100));         // 64-bit counter went down
+        assertEquals(-1, NsBwCollector.delta((1L << 31) - 1, 0));              // just below the wrap window
+    }
+
+    @Test
+    void deltaHandlesUnsignedGrowth() {
+        assertEquals(500, NsBwCollector.delta(1_000, 1_500));
+        assertEquals(0, NsBwCollector.delta(42, 42));
+        assertEquals(10, NsBwCollector.delta(-20L, -10L));   // above 2^63, read as unsigned
+    }
+
+    @Test
+    void samplesComputeUtilisationFromTheBusierDirection() {
+        // 37.5 MB in 30 s = 10 Mbit/s on a 100 Mbit/s link
+        List<Sample> out = collector.samples(
+                Map.of("eth0", new Counters(0, 0)),
+                Map.of("eth0", new Counters(37_500_000, 1_000)),
+                30, Map.of("eth0", 100), AT);
+
+        assertEquals(List.of(new Sample("eth0", 37_500_000, 1_000, 10.0, AT)), out);
+    }
+
+    @Test
+    void samplesBridgeA32BitWrap() {
+        List<Sample> out = collector.samples(
+                Map.of("eth0", new Counters(0xFFFF_FF00L, 0)),
+                Map.of("eth0", new Counters(0x100L, 0)),
+                30, Map.of("eth0", 100), AT);
+
+        assertEquals(1, out.size());
+        assertEquals(0x200, out.get(0).bytesIn());
+    }
+
+    @Test
+    void samplesSkipAnIntervalAfterAResetFromALowReading() {
+        List<Sample> out = collector.samples(
+                Map.of("eth0", new Counters(1_000_000, 2_000)),
+                Map.of("eth0", new Counters(500, 2_500)),
+                30, Map.of("eth0", 100), AT);
+
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    void samplesTreatADeltaAboveTwiceCapacityAsAReset() {
+        // Looks like a wrap (previous reading in the top half), but ~1.3 GB in 30 s is ~344% of 100 Mbit/s.
+        List<Sample> out = collector.samples(
+                Map.of("eth0", new Counters(3_000_000_000L, 0)),
+                Map.of("eth0", new Counters(1_000, 0)),
+                30, Map.of("eth0", 100), AT);
+
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    void samplesSkipLoopbackAndDevicesWithoutAnInterface() {
+        Map<String, Counters> before = Map.of("lo", new Counters(0, 0), "docker0", new Counters(0, 0));
+        Map<String, Counters> after = Map.of("lo", new Counters(1_000, 1_000), "docker0", new Counters(1_000, 1_000));
+
+        assertTrue(collector.samples(before, after, 30, Map.of("lo", 100, "eth0", 100), AT).isEmpty());
+    }
+
+    @Test
+    void readNetDevParsesRxAndTxBytes() throws Exception {
+        Path file = Path.of(NsBwCollectorTest.class.getResource("/netscan/net_dev").toURI());
+
+        Map<String, Counters> counters = NsBwCollector.readNetDev(file);
+
+        // headers and the malformed bad0 / bad1 lines are skipped
+        assertEquals(Map.of(
+                "lo", new Counters(123_456, 123_456),
+                "eth0", new Counters(Long.parseUnsignedLong("18446744073709551000"), 987_654),
+                "wlan0", new Counters(4_294_967_000L, 5_000)), counters);
+    }
+}
@@ -0,0 +1,50 @@
+package gh.edu.techbridge.wms.netscan;
+
+import gh.edu.techbridge.wms.config.NetScanProperties;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubnetScannerTest {
+
+    @Test
+    void readArpKeepsOnlyCompleteEntriesWithARealMac() throws Exception {
+        Map<String, String> arp = SubnetScanner.readArp(fixture("arp"));
+
+        // .7 is incomplete, .9 has a zero MAC, .12 has a MAC but no ATF_COM flag
+        assertEquals(Map.of(
+                "192.168.1.1", "AA:BB:CC:00:11:22",
+                "192.168.1.20", "02:42:AC:11:00:02",
+                "127.0.0.1", "02:00:00:00:00:01"), arp);
+    }
+
+    @Test
+    void sweepOfLoopbackFindsTheHostAndItsMac() throws Exception {
+        try (ServerSocket listening = new ServerSocket(0)) {
+            NetScanProperties props = new NetScanProperties();
+            props.setIcmpProbe(false);
+            props.setProbePorts(List.of(listening.getLocalPort()));
+            props.setHostTimeoutMs(1000);
+            props.setArpPath(fixture("arp").toString());
+
+            SubnetScanner.Sweep sweep = new SubnetScanner(props).sweep(List.of(SubnetScanner.Range.parse("127.0.0.1/32")));
+
+            assertEquals(1, sweep.hostsProbed());
+            assertEquals(Set.of("127.0.0.1"), sweep.up());
+            // ARP entries outside the swept range are ignored
+            assertEquals(List.of(new SubnetScanner.Found("127.0.0.1", "02:00:00:00:00:01", true)), sweep.devices());
+            assertEquals(0, sweep.unresolved());
+        }
+    }
+
+    private static Path fixture(String name) throws URISyntaxException {
+        return Path.of(SubnetScannerTest.class.getResource("/netscan/" + name).toURI());
+    }
+}
@@ -11,8 +11,8 @@ export function setOnAuthLost(cb: (() => void) | null) { onAuthLost = cb; }
 
 // Fail fast on a stalled network/proxy so the UI never hangs forever.
 const TIMEOUT_MS = 12000;
-function timeoutSignal(): AbortSignal | undefined {
-  try { return AbortSignal.timeout(TIMEOUT_MS); } catch { return undefined; }
+function timeoutSignal(ms = TIMEOUT_MS): AbortSignal | undefined {
+  try { return AbortSignal.timeout(ms); } catch { return undefined; }
 }
 
 async function refresh(): Promise<boolean> {
@@ -58,6 +58,15 @@ export const put = <T = any>(path: string, body?: unknown) =>
 export const del = <T = any>(path: string) =>
   api<T>(path, { method: 'DELETE' });
 
+/** Raw-bytes PUT for upload chunks — same 401-retry cycle, but a slow-link-sized timeout. */
+export const putBytes = <T = any>(path: string, body: Blob) =>
+  api<T>(path, {
+    method: 'PUT',
+    body,
+    headers: { 'Content-Type': 'application/octet-stream' },
+    signal: timeoutSignal(120000),
+  });
+
 /**
  * Raw POST — NO 401-retry, NO onAuthLost. Use for public auth endpoints
  * (exchange, mfa/verify) where a 401 means "bad handoff token", not
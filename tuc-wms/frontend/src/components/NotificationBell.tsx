@@ -1,13 +1,13 @@
 import React, { useEffect, useState, useCallback, useRef } from 'react';
 import { useNavigate } from 'react-router-dom';
-import { api, put } from '../api';
+import { api, put, getAccessToken } from '../api';
 import { WmsNotification } from '../types';
 
-const POLL_MS = 30000; // FR-NOTIF-007: badge updates within 30s
+const RECONNECT_MS = 5000; // retry a closed stream (e.g. after the access token rotated)
 
 /**
  * Nav notification bell with unread badge + dropdown panel (FR-NOTIF-002/003/006).
- * Polls the lightweight unread-count every 30s; fetches the list lazily when opened.
+ * The badge is pushed over SSE (/api/notifications/stream) — no polling; fetches the list lazily when opened.
  * Accessible: aria-label, aria-live count, keyboard (Esc closes, Enter opens items).
  */
 export default function NotificationBell() {
@@ -23,11 +23,30 @@ export default function NotificationBell() {
       .then(r => setCount(r.count)).catch(() => { /* transient — keep last */ });
   }, []);
 
-  // Poll the badge.
+  // Live badge: the server pushes the unread count on connect and on every change (FR-NOTIF-006/007).
   useEffect(() => {
-    refreshCount();
-    const t = setInterval(refreshCount, POLL_MS);
-    return () => clearInterval(t);
+    let es: EventSource | null = null;
+    let retry: ReturnType<typeof setTimeout> | undefined;
+    const connect = () => {
+      const token = getAccessToken();
+      es = new EventSource(`/api/notifications/stream${token ? `?access_token=${encodeURIComponent(token)}` : ''}`,
+        { withCredentials: true });
+      es.addEventListener('unread', e => setCount(JSON.parse((e as MessageEvent).data).count));
+      es.addEventListener('notification', e => {
+        const n = JSON.parse((e as MessageEvent).data) as WmsNotification;
+        setItems(prev => [n, ...prev.filter(p => p.id !== n.id)].slice(0, 8));
+      });
+      es.onerror = () => {
+        // The browser auto-reconnects transient drops; a CLOSED stream (401 on a stale token) needs a fresh URL.
+        if (es?.readyState === EventSource.CLOSED) {
+          es.close();
+          refreshCount();   // also triggers a silent token refresh via api()
+          retry = setTimeout(connect, RECONNECT_MS);
+        }
+      };
+    };
+    connect();
+    return () => { es?.close(); if (retry) clearTimeout(retry); };
   }, [refreshCount]);
 
   // Close on outside click / Escape.
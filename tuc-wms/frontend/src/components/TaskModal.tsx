@@ -1,5 +1,5 @@
 import React, { useState, useEffect, useCallback } from 'react';
-import { api, post, put, del, getAccessToken } from '../api';
+import { api, post, put, del, putBytes, getAccessToken } from '../api';
 import { TaskDto, Priority, PRIORITIES, ProjectMember } from '../types';
 import RichTextEditor from './RichTextEditor';
 
@@ -45,6 +45,7 @@ export default function TaskModal({
   const [activitiesList, setActivitiesList] = useState<any[]>([]);
   const [attachmentsList, setAttachmentsList] = useState<any[]>([]);
   const [uploading, setUploading] = useState(false);
+  const [uploadProgress, setUploadProgress] = useState(0);
 
   const toggle = (list: number[], setList: (n: number[]) => void, id: number) =>
     setList(list.includes(id) ? list.filter(x => x !== id) : [...list, id]);
@@ -151,24 +152,47 @@ export default function TaskModal({
   // Attachments Actions
   const handleFileUpload = async (e: React.ChangeEvent<HTMLInputElement>) => {
     const file = e.target.files?.[0];
+    e.target.value = '';
     if (!file || !initial) return;
 
-    if (file.size > 10 * 1024 * 1024) {
-      setError("File exceeds 10MB size limit");
+    if (file.size > MAX_UPLOAD_BYTES) {
+      setError("File exceeds 250MB size limit");
       return;
     }
 
-    setUploading(true); setError(null);
-    const formData = new FormData();
-    formData.append('file', file);
-
+    // Resumable upload: chunks are PUT at byte offsets; after a network drop we ask the
+    // server how much it has and carry on from there instead of starting over.
+    setUploading(true); setUploadProgress(0); setError(null);
+    const base = `/api/projects/${projectId}/tasks/${initial.id}/attachments/uploads`;
+    let uploadId: string | null = null;
     try {
-      await api(`/api/projects/${projectId}/tasks/${initial.id}/attachments`, {
-        method: 'POST',
-        body: formData,
-      });
+      const [session, sha256] = await Promise.all([
+        post<UploadStatus>(base, { fileName: file.name, contentType: file.type || undefined, size: file.size }),
+        sha256Hex(file),
+      ]);
+      uploadId = session.uploadId;
+      let received = session.received;
+      let failures = 0;
+      while (received < file.size) {
+        setUploadProgress(Math.floor((received * 100) / file.size));
+        try {
+          const st = await putBytes<UploadStatus>(`${base}/${uploadId}?offset=${received}`,
+            file.slice(received, received + session.chunkSize));
+          received = st.received;
+          failures = 0;
+        } catch (err) {
+          if (++failures > CHUNK_RETRIES) throw err;
+          await new Promise(r => setTimeout(r, 1000 * 2 ** failures));
+          try { received = (await api<UploadStatus>(`${base}/${uploadId}`)).received; } catch { /* still offline */ }
+        }
+      }
+      await post(`${base}/${uploadId}/complete`, { sha256 });
+      uploadId = null;
       loadAttachments();
-    } catch (err: any) { setError(err.message); }
+    } catch (err: any) {
+      setError(err.message);
+      if (uploadId) del(`${base}/${uploadId}`).catch(() => { /* expires server-side anyway */ });
+    }
     finally { setUploading(false); }
   };
 
@@ -392,7 +416,7 @@ export default function TaskModal({
             {error && <div style={{ ...errBox, margin: '0 20px' }}>{error}</div>}
             <div style={uploadContainer}>
               <label style={uploadLabel}>
-                {uploading ? 'Uploading…' : '📎 Choose file to upload (Max 10MB)'}
+                {uploading ? `Uploading… ${uploadProgress}%` : '📎 Choose file to upload (Max 250MB)'}
                 <input type="file" onChange={handleFileUpload} disabled={uploading} style={{ display: 'none' }} />
               </label>
             </div>
@@ -412,6 +436,16 @@ function Field({ label, children }: { label: string; children: React.ReactNode }
   );
 }
 
+// Resumable attachment uploads (server caps: tucwms.attachments.max-upload-size / chunk-size).
+const MAX_UPLOAD_BYTES = 250 * 1024 * 1024;
+const CHUNK_RETRIES = 5;
+type UploadStatus = { uploadId: string; size: number; received: number; chunkSize: number };
+
+async function sha256Hex(file: File): Promise<string> {
+  const digest = await crypto.subtle.digest('SHA-256', await file.arrayBuffer());
+  return Array.from(new Uint8Array(digest), b => b.toString(16).padStart(2, '0')).join('');
+}
+
 const cap = (s: string) => s.charAt(0) + s.slice(1).toLowerCase();
 
 const overlay: React.CSSProperties = { position: 'fixed', inset: 0, background: 'rgba(28,22,18,0.45)', display: 'grid', placeItems: 'center', padding: 20, zIndex: 100 };
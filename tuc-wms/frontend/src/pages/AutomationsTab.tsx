@@ -25,9 +25,19 @@ interface AutomationHistory {
   runAt: string;
 }
 
+// Skipped evaluations are stored as hourly per-rule counts, not individual history rows.
+interface SkipStat {
+  ruleId: number;
+  ruleName: string;
+  hourStart: string;
+  skipCount: number;
+  lastReason: string | null;
+}
+
 export default function AutomationsTab({ projectId, archived }: { projectId: number; archived: boolean }) {
   const [rules, setRules] = useState<AutomationRule[]>([]);
   const [history, setHistory] = useState<AutomationHistory[]>([]);
+  const [skips, setSkips] = useState<SkipStat[]>([]);
   const [members, setMembers] = useState<ProjectMember[]>([]);
   const [stages, setStages] = useState<string[]>([]);
   const [loading, setLoading] = useState(true);
@@ -50,11 +60,13 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
       api<AutomationRule[]>(`/api/projects/${projectId}/automations/rules`),
       api<AutomationHistory[]>(`/api/projects/${projectId}/automations/history`),
       api<ProjectMember[]>(`/api/projects/${projectId}/members`),
-      api<{ stages: string[] }>(`/api/projects/${projectId}`)
+      api<{ stages: string[] }>(`/api/projects/${projectId}`),
+      api<SkipStat[]>(`/api/projects/${projectId}/automations/history/skips?hours=24`)
     ])
-      .then(([r, h, m, p]) => {
+      .then(([r, h, m, p, sk]) => {
         setRules(r);
         setHistory(h);
+        setSkips(sk);
         setMembers(m);
         setStages(p.stages || []);
         // Set default action config user if users exist
@@ -84,6 +96,10 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
   useEffect(() => {
     if (triggerType === 'STATUS_CHANGED' && stages.length > 0) {
       setTriggerConfig('ANY');
+    } else if (triggerType === 'DUE_DATE_APPROACHING') {
+      setTriggerConfig('1');
+    } else if (triggerType === 'NO_ACTIVITY_FOR_N_DAYS') {
+      setTriggerConfig('7');
     } else {
       setTriggerConfig('');
     }
@@ -152,6 +168,9 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
         ? 'Task stage changes'
         : `Task moves to "${r.triggerConfig}"`;
     }
+    if (r.triggerType === 'DUE_DATE_APPROACHING') return `Due date is ${r.triggerConfig || '1'} day(s) away`;
+    if (r.triggerType === 'OVERDUE') return 'Task becomes overdue';
+    if (r.triggerType === 'NO_ACTIVITY_FOR_N_DAYS') return `No activity for ${r.triggerConfig || '7'} day(s)`;
     return r.triggerType;
   };
 
@@ -234,6 +253,9 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
                   <select value={triggerType} onChange={e => setTriggerType(e.target.value)} style={select}>
                     <option value="TASK_CREATED">A task is created</option>
                     <option value="STATUS_CHANGED">Task stage changes</option>
+                    <option value="DUE_DATE_APPROACHING">Due date is approaching</option>
+                    <option value="OVERDUE">Task becomes overdue</option>
+                    <option value="NO_ACTIVITY_FOR_N_DAYS">No activity for a number of days</option>
                   </select>
                   {triggerType === 'STATUS_CHANGED' && stages.length > 0 && (
                     <select value={triggerConfig} onChange={e => setTriggerConfig(e.target.value)} style={{ ...select, marginTop: 6 }}>
@@ -241,6 +263,11 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
                       {stages.map(s => <option key={s} value={s}>Moves to "{s}"</option>)}
                     </select>
                   )}
+                  {(triggerType === 'DUE_DATE_APPROACHING' || triggerType === 'NO_ACTIVITY_FOR_N_DAYS') && (
+                    <input type="number" min={triggerType === 'DUE_DATE_APPROACHING' ? 0 : 1} max={365}
+                           value={triggerConfig} onChange={e => setTriggerConfig(e.target.value)}
+                           placeholder="days" style={{ ...input, marginTop: 6 }} required />
+                  )}
                 </div>
 
                 <div style={formGroup}>
@@ -303,6 +330,22 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
       {subTab === 'history' && (
         <div>
           <h3 style={sectionTitle}>Execution History logs</h3>
+          {skips.length > 0 && (
+            <div style={{ ...historyList, marginBottom: 14 }}>
+              {summarizeSkips(skips).map(s => (
+                <div key={s.ruleId} style={historyRow}>
+                  <div style={historyStatus}>
+                    <span style={badgeSkipped}>SKIPPED ×{s.count}</span>
+                    <span style={historyTime}>last 24 hours</span>
+                  </div>
+                  <div style={historyDesc}>
+                    <span style={{ fontWeight: 600 }}>Rule "{s.ruleName}": </span>
+                    {s.lastReason}
+                  </div>
+                </div>
+              ))}
+            </div>
+          )}
           {history.length === 0 ? (
             <p style={{ color: 'var(--muted)', fontSize: 14 }}>No rule executions recorded yet.</p>
           ) : (
@@ -330,6 +373,17 @@ export default function AutomationsTab({ projectId, archived }: { projectId: num
   );
 }
 
+/** Fold hourly skip rows (newest first) into one line per rule. */
+function summarizeSkips(rows: SkipStat[]) {
+  const byRule = new Map<number, { ruleId: number; ruleName: string; count: number; lastReason: string | null }>();
+  for (const r of rows) {
+    const s = byRule.get(r.ruleId);
+    if (s) s.count += r.skipCount;
+    else byRule.set(r.ruleId, { ruleId: r.ruleId, ruleName: r.ruleName, count: r.skipCount, lastReason: r.lastReason });
+  }
+  return [...byRule.values()];
+}
+
 const grid: React.CSSProperties = { display: 'flex', gap: 24, flexWrap: 'wrap', alignItems: 'flex-start' };
 const tabHeader: React.CSSProperties = { display: 'flex', gap: 16, borderBottom: '1px solid var(--border)', marginBottom: 18 };
 const idleSubTab: React.CSSProperties = { background: 'none', border: 'none', borderBottom: '2px solid transparent', padding: '6px 12px', fontSize: 13, color: 'var(--muted)', cursor: 'pointer', marginBottom: -1 };
@@ -73,6 +73,7 @@ export default function BoardTab({ projectId, stages, archived, canEditWip, focu
     es.addEventListener('task.created', refresh);
     es.addEventListener('task.updated', refresh);
     es.addEventListener('task.deleted', refresh);
+    es.addEventListener('tasks.imported', refresh);   // one event per CSV import
     es.onerror = () => { /* browser auto-reconnects */ };
     return () => es.close();
   }, [projectId, loadBoard, loadRefs]);